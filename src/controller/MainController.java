@@ -25,6 +25,9 @@ public class MainController {
     // 当前登录用户：保存登录状态和用户信息，用于权限控制
     private User currentUser;
 
+    // 当前会话令牌：登出时注销
+    private String sessionToken;
+
     // 服务实例：各个业务模块的服务对象
     private ProductService productService;
     private OrderService orderService;
@@ -89,12 +92,17 @@ public class MainController {
      */
     private void handleLogin(String username, String password) {
         try {
-            // 1. 调用用户服务进行登录验证
+            // 1. 调用用户服务进行登录验证并创建会话
             // 如果验证失败会抛出ValidationException
-            User user = userService.login(username, password);
+            Session session = userService.startSession(username, password);
+            User user = userService.getSessionUser(session.getToken());
+            if (user == null) {
+                throw new ValidationException("登录会话创建失败");
+            }
 
-            // 2. 保存当前登录用户信息
+            // 2. 保存当前登录用户信息和会话令牌
             this.currentUser = user;
+            this.sessionToken = session.getToken();
 
             // 3. 根据角色显示主界面（不同角色可能有不同权限）
             // GuiView会根据用户角色显示/隐藏某些功能
@@ -168,7 +176,7 @@ public class MainController {
     /**
      * 处理用户登出
      * 清理流程：
-     * 1. 清理当前用户信息
+     * 1. 注销会话，清理当前用户信息
      * 2. 清空各个面板的数据
      * 3. 重置控制器引用
      * 4. 显示登录界面
@@ -176,7 +184,11 @@ public class MainController {
     public void handleLogout() {
         System.out.println("用户 " + (currentUser != null ? currentUser.getName() : "未知") + " 退出登录");
 
-        // 1. 重置当前用户信息
+        // 1. 注销会话并重置当前用户信息
+        if (sessionToken != null) {
+            userService.logoutSession(sessionToken);
+            sessionToken = null;
+        }
         this.currentUser = null;
 
         // 2. 清空所有面板的数据（防止下一个用户看到上一个用户的数据）
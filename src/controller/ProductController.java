@@ -5,6 +5,7 @@ import view.ProductPanel;
 import model.service.ProductServiceInterface;
 import model.entity.Product;
 import exception.ValidationException;
+import exception.OptimisticLockException;
 import util.IdGenerator;
 
 import javax.swing.*;
@@ -276,8 +277,9 @@ public class ProductController {
             Object[] rowData = productPanel.getRowData(selectedRow);
             String productId = (String) rowData[0];
 
-            // 通过商品服务获取商品详细信息
-            Product product = productService.getProductById(productId);
+            // 通过商品服务获取商品详细信息，在副本上编辑，并记录打开对话框时的版本号
+            Product product = productService.getProductById(productId).copy();
+            long expectedVersion = product.getVersion();
 
             // 创建商品编辑对话框的面板
             JPanel panel = new JPanel(new java.awt.GridLayout(4, 2, 5, 5));
@@ -310,8 +312,14 @@ public class ProductController {
                 product.setPrice(Double.parseDouble(priceField.getText().trim()));
                 product.setCategory(categoryField.getText().trim());
 
-                // 调用商品服务更新商品
-                productService.updateProduct(product);
+                // 调用商品服务更新商品（期间被他人修改过则提示冲突）
+                try {
+                    productService.updateProduct(product, expectedVersion);
+                } catch (OptimisticLockException e) {
+                    JOptionPane.showMessageDialog(null, e.getMessage());
+                    loadProducts();
+                    return;
+                }
 
                 // 刷新商品界面显示最新数据
                 loadProducts();
@@ -0,0 +1,12 @@
+package exception;
+
+/**
+ * 乐观锁冲突异常 - 数据在读取后已被其他操作修改
+ */
+public class OptimisticLockException extends BusinessException {
+    private static final long serialVersionUID = 1L;
+
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
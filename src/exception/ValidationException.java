@@ -1,10 +1,26 @@
 package exception;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 数据验证异常
+ * 一次验证发现多处错误时，消息按顺序列出所有错误，getViolations返回逐条的错误信息
  */
 public class ValidationException extends BusinessException {
+    private final List<String> violations;
+
     public ValidationException(String message) {
         super(message);
+        this.violations = Collections.singletonList(message);
+    }
+
+    public ValidationException(List<String> violations) {
+        super(String.join("；", violations));
+        this.violations = List.copyOf(violations);
+    }
+
+    public List<String> getViolations() {
+        return violations;
     }
-}
\ No newline at end of file
+}
@@ -2,11 +2,12 @@ package model.entity;
 
 /**
  * 基础实体类 - 所有实体类的父类
- * 提供id和name这两个公共属性
+ * 提供id和name这两个公共属性，以及用于乐观并发控制的版本号
  */
-public abstract class BaseEntity {
+public abstract class BaseEntity implements Versioned {
     protected String id;
     protected String name;
+    protected long version;     // 版本号
 
     public BaseEntity() {
     }
@@ -31,4 +32,14 @@ public abstract class BaseEntity {
     public void setName(String name) {
         this.name = name;
     }
-}
\ No newline at end of file
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
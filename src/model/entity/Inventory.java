@@ -5,11 +5,12 @@ import exception.BusinessException;
 /**
  * 库存实体类 - 记录商品的库存信息
  */
-public class Inventory {
+public class Inventory implements Versioned {
     private String productId;       // 商品ID
     private int quantity;           // 当前数量
     private int minThreshold;       // 最小库存阈值
     private int maxCapacity;        // 最大库存容量
+    private long version;           // 版本号
 
     public Inventory() {
         this.minThreshold = 10;
@@ -22,6 +23,16 @@ public class Inventory {
         this.quantity = 0;
     }
 
+    // 复制库存记录，用于修改后按版本号提交
+    public Inventory copy() {
+        Inventory copy = new Inventory(productId);
+        copy.quantity = quantity;
+        copy.minThreshold = minThreshold;
+        copy.maxCapacity = maxCapacity;
+        copy.version = version;
+        return copy;
+    }
+
     // 检查是否需要预警
     public boolean needsWarning() {
         return quantity < minThreshold;
@@ -86,6 +97,16 @@ public class Inventory {
         this.maxCapacity = maxCapacity;
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return String.format("商品ID: %s, 库存: %d, 阈值: %d, 容量: %d",
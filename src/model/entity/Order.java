@@ -1,21 +1,25 @@
 package model.entity;
 
-import java.util.ArrayList;
+import util.Money;
+
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 订单实体类 - 包含订单状态流转功能
+ * 订单项按列存放在OrderLines中，总金额随订单项的增删改增量维护
  */
-public class Order {
+public class Order implements Versioned {
     private String orderId;             // 订单ID
     private Customer customer;          // 客户
-    private List<OrderItem> items;      // 订单项列表
-    private double totalAmount;         // 总金额
-    private String status;              // 订单状态
+    private OrderLines items;           // 订单项列表
+    private final AtomicReference<OrderStatus> status; // 订单状态
     private Date createTime;            // 创建时间
+    private Date paymentDeadline;       // 付款截止时间，超时未付款自动取消
+    private long version;               // 版本号
 
-    // 订单状态常量
+    // 订单状态常量（OrderStatus的中文名称）
     public static final String STATUS_PENDING = "待付款";
     public static final String STATUS_PAID = "已付款";
     public static final String STATUS_SHIPPED = "已发货";
@@ -23,8 +27,8 @@ public class Order {
     public static final String STATUS_CANCELLED = "已取消";
 
     public Order() {
-        this.items = new ArrayList<>();
-        this.status = STATUS_PENDING;
+        this.items = new OrderLines();
+        this.status = new AtomicReference<>(OrderStatus.PENDING);
         this.createTime = new Date();
     }
 
@@ -34,26 +38,26 @@ public class Order {
         this.customer = customer;
     }
 
-    // 添加订单项
+    // 添加订单项，复制订单项的值
     public void addItem(OrderItem item) {
         items.add(item);
-        calculateTotalAmount();
+    }
+
+    // 按商品添加订单项
+    public void addItem(Product product, int quantity) {
+        items.add(product, quantity);
     }
 
     // 移除订单项
     public void removeItem(int index) {
         if (index >= 0 && index < items.size()) {
             items.remove(index);
-            calculateTotalAmount();
         }
     }
 
-    // 计算订单总金额
+    // 按各订单项重新计算订单总金额
     public void calculateTotalAmount() {
-        totalAmount = 0;
-        for (OrderItem item : items) {
-            totalAmount += item.getSubtotal();
-        }
+        items.recalculateTotal();
     }
 
     // 获取订单项数量
@@ -63,42 +67,35 @@ public class Order {
 
     // 获取商品总数量
     public int getTotalQuantity() {
-        int total = 0;
-        for (OrderItem item : items) {
-            total += item.getQuantity();
-        }
-        return total;
+        return items.getTotalQuantity();
     }
 
     // 订单状态流转方法
     public boolean changeStatus(String newStatus) {
-        // 简单的状态流转规则
-        if (STATUS_CANCELLED.equals(status)) {
-            return false; // 已取消的订单不能再改变状态
+        OrderStatus next = OrderStatus.fromLabel(newStatus);
+        if (next == null) {
+            return false;
+        }
+        while (true) {
+            OrderStatus current = status.get();
+            if (!current.canTransitionTo(next)) {
+                return false;
+            }
+            if (status.compareAndSet(current, next)) {
+                return true;
+            }
         }
+    }
 
-        // 允许的状态流转
-        switch (status) {
-            case STATUS_PENDING:
-                if (STATUS_PAID.equals(newStatus) || STATUS_CANCELLED.equals(newStatus)) {
-                    status = newStatus;
-                    return true;
-                }
-                break;
-            case STATUS_PAID:
-                if (STATUS_SHIPPED.equals(newStatus) || STATUS_CANCELLED.equals(newStatus)) {
-                    status = newStatus;
-                    return true;
-                }
-                break;
-            case STATUS_SHIPPED:
-                if (STATUS_COMPLETED.equals(newStatus)) {
-                    status = newStatus;
-                    return true;
-                }
-                break;
+    /**
+     * 原子状态流转：仅当当前状态为expected且流转表允许时才改为next
+     * 并发的付款和取消只有一个能成功
+     */
+    public boolean transition(OrderStatus expected, OrderStatus next) {
+        if (expected == null || !expected.canTransitionTo(next)) {
+            return false;
         }
-        return false;
+        return status.compareAndSet(expected, next);
     }
 
     // Getter和Setter方法
@@ -118,34 +115,78 @@ public class Order {
         this.customer = customer;
     }
 
+    // 订单项列表，元素是指向OrderLines各行的视图
     public List<OrderItem> getItems() {
         return items;
     }
 
+    public OrderLines getLines() {
+        return items;
+    }
+
+    // 复制给定订单项的值
     public void setItems(List<OrderItem> items) {
-        this.items = items;
-        calculateTotalAmount();
+        OrderLines lines = new OrderLines(items == null ? 0 : items.size());
+        if (items != null) {
+            lines.addAll(items);
+        }
+        this.items = lines;
     }
 
     public double getTotalAmount() {
-        return totalAmount;
+        return Money.toYuan(items.getTotalCents());
+    }
+
+    public long getTotalCents() {
+        return items.getTotalCents();
     }
 
     public String getStatus() {
-        return status;
+        return status.get().getLabel();
+    }
+
+    public OrderStatus getOrderStatus() {
+        return status.get();
     }
 
+    // 直接设置状态，不检查流转规则
     public void setStatus(String status) {
-        this.status = status;
+        OrderStatus parsed = OrderStatus.fromLabel(status);
+        if (parsed == null) {
+            throw new IllegalArgumentException("未知的订单状态: " + status);
+        }
+        this.status.set(parsed);
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status.set(status);
     }
 
     public Date getCreateTime() {
         return createTime;
     }
 
+    public Date getPaymentDeadline() {
+        return paymentDeadline;
+    }
+
+    public void setPaymentDeadline(Date paymentDeadline) {
+        this.paymentDeadline = paymentDeadline;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return String.format("订单号: %s, 客户: %s, 总金额: %.2f, 状态: %s, 创建时间: %s",
-                orderId, customer.getName(), totalAmount, status, createTime);
+                orderId, customer.getName(), getTotalAmount(), status.get(), createTime);
     }
 }
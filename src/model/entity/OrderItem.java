@@ -1,29 +1,35 @@
 package model.entity;
 
+import util.Money;
+import util.StringInterner;
+
 /**
  * 订单项实体类 - 订单中的单个商品项
+ * 商品ID、名称和分类在大量订单项中重复，赋值时换成StringInterner中的共享实例
  */
 public class OrderItem {
     private String productId;   // 商品ID
     private String productName; // 商品名称
-    private double price;       // 单价
+    private String category;    // 下单时商品所属分类，之后修改商品分类不影响历史订单
+    private long priceCents;    // 单价（分）
     private int quantity;       // 数量
-    private double subtotal;    // 小计金额
+    private long subtotalCents; // 小计金额（分）
 
     public OrderItem() {
     }
 
     public OrderItem(Product product, int quantity) {
-        this.productId = product.getId();
-        this.productName = product.getName();
-        this.price = product.getPrice();
+        this.productId = StringInterner.intern(product.getId());
+        this.productName = StringInterner.intern(product.getName());
+        this.category = StringInterner.intern(product.getCategory());
+        this.priceCents = product.getPriceCents();
         this.quantity = quantity;
         calculateSubtotal();
     }
 
     // 计算小计金额
     public void calculateSubtotal() {
-        this.subtotal = price * quantity;
+        this.subtotalCents = Money.multiply(priceCents, quantity);
     }
 
     public String getProductId() {
@@ -31,7 +37,7 @@ public class OrderItem {
     }
 
     public void setProductId(String productId) {
-        this.productId = productId;
+        this.productId = StringInterner.intern(productId);
     }
 
     public String getProductName() {
@@ -39,15 +45,32 @@ public class OrderItem {
     }
 
     public void setProductName(String productName) {
-        this.productName = productName;
+        this.productName = StringInterner.intern(productName);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = StringInterner.intern(category);
     }
 
     public double getPrice() {
-        return price;
+        return Money.toYuan(priceCents);
     }
 
     public void setPrice(double price) {
-        this.price = price;
+        this.priceCents = Money.ofYuan(price);
+        calculateSubtotal();
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
         calculateSubtotal();
     }
 
@@ -61,12 +84,16 @@ public class OrderItem {
     }
 
     public double getSubtotal() {
-        return subtotal;
+        return Money.toYuan(subtotalCents);
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
     }
 
     @Override
     public String toString() {
         return String.format("商品: %s, 数量: %d, 单价: %.2f, 小计: %.2f",
-                productName, quantity, price, subtotal);
+                getProductName(), getQuantity(), getPrice(), getSubtotal());
     }
 }
\ No newline at end of file
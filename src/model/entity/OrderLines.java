@@ -0,0 +1,343 @@
+package model.entity;
+
+import util.Money;
+import util.StringInterner;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * 订单项容器 - 按列存储的订单项列表
+ * 商品ID、名称、分类、单价、数量分别存放在数组中，小计不单独保存，按单价×数量计算；
+ * 增删改订单项时增量维护总金额和总数量，构建上万行的大订单时每次添加都是O(1)
+ * 作为List<OrderItem>使用时，get返回指向对应行的OrderItem视图，通过视图修改会直接写回数组并更新总金额；
+ * 删除订单项后其后各行的位置前移，之前取得的视图不再可靠，应重新获取
+ */
+public class OrderLines extends AbstractList<OrderItem> implements RandomAccess {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private String[] productIds;
+    private String[] productNames;
+    private String[] categories;
+    private long[] priceCents;
+    private int[] quantities;
+    private int size;
+
+    // 有效小计之和，按128位累加，加减可逆且能判断是否超出long范围
+    private long sumLow;
+    private long sumHigh;
+    // 小计无效（单价无效或溢出）的行数
+    private int invalidLines;
+    private int totalQuantity;
+
+    public OrderLines() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OrderLines(int capacity) {
+        capacity = Math.max(1, capacity);
+        productIds = new String[capacity];
+        productNames = new String[capacity];
+        categories = new String[capacity];
+        priceCents = new long[capacity];
+        quantities = new int[capacity];
+    }
+
+    /**
+     * 追加一行，复制订单项当前的值
+     */
+    @Override
+    public boolean add(OrderItem item) {
+        append(item.getProductId(), item.getProductName(), item.getCategory(),
+                item.getPriceCents(), item.getQuantity());
+        return true;
+    }
+
+    /**
+     * 按商品追加一行，不创建OrderItem对象
+     */
+    public void add(Product product, int quantity) {
+        append(product.getId(), product.getName(), product.getCategory(), product.getPriceCents(), quantity);
+    }
+
+    public void append(String productId, String productName, String category, long price, int quantity) {
+        if (size == quantities.length) {
+            grow();
+        }
+        productIds[size] = StringInterner.intern(productId);
+        productNames[size] = StringInterner.intern(productName);
+        categories[size] = StringInterner.intern(category);
+        priceCents[size] = price;
+        quantities[size] = quantity;
+        size++;
+        modCount++;
+        accumulate(size - 1, true);
+    }
+
+    /**
+     * 返回第index行的视图
+     */
+    @Override
+    public OrderItem get(int index) {
+        checkIndex(index);
+        return new LineView(index);
+    }
+
+    /**
+     * 用订单项的值替换第index行，返回原来的值（独立的OrderItem副本）
+     */
+    @Override
+    public OrderItem set(int index, OrderItem item) {
+        checkIndex(index);
+        OrderItem old = detach(index);
+        accumulate(index, false);
+        productIds[index] = StringInterner.intern(item.getProductId());
+        productNames[index] = StringInterner.intern(item.getProductName());
+        categories[index] = StringInterner.intern(item.getCategory());
+        priceCents[index] = item.getPriceCents();
+        quantities[index] = item.getQuantity();
+        accumulate(index, true);
+        return old;
+    }
+
+    /**
+     * 删除第index行，返回原来的值（独立的OrderItem副本）
+     */
+    @Override
+    public OrderItem remove(int index) {
+        checkIndex(index);
+        OrderItem old = detach(index);
+        accumulate(index, false);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(productIds, index + 1, productIds, index, moved);
+            System.arraycopy(productNames, index + 1, productNames, index, moved);
+            System.arraycopy(categories, index + 1, categories, index, moved);
+            System.arraycopy(priceCents, index + 1, priceCents, index, moved);
+            System.arraycopy(quantities, index + 1, quantities, index, moved);
+        }
+        size--;
+        productIds[size] = null;
+        productNames[size] = null;
+        categories[size] = null;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(productIds, 0, size, null);
+        Arrays.fill(productNames, 0, size, null);
+        Arrays.fill(categories, 0, size, null);
+        size = 0;
+        sumLow = 0;
+        sumHigh = 0;
+        invalidLines = 0;
+        totalQuantity = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String getProductId(int index) {
+        checkIndex(index);
+        return productIds[index];
+    }
+
+    public String getProductName(int index) {
+        checkIndex(index);
+        return productNames[index];
+    }
+
+    public String getCategory(int index) {
+        checkIndex(index);
+        return categories[index];
+    }
+
+    public long getPriceCents(int index) {
+        checkIndex(index);
+        return priceCents[index];
+    }
+
+    public int getQuantity(int index) {
+        checkIndex(index);
+        return quantities[index];
+    }
+
+    public long getSubtotalCents(int index) {
+        checkIndex(index);
+        return Money.multiply(priceCents[index], quantities[index]);
+    }
+
+    public void setPriceCents(int index, long price) {
+        checkIndex(index);
+        accumulate(index, false);
+        priceCents[index] = price;
+        accumulate(index, true);
+    }
+
+    public void setQuantity(int index, int quantity) {
+        checkIndex(index);
+        accumulate(index, false);
+        quantities[index] = quantity;
+        accumulate(index, true);
+    }
+
+    /**
+     * 总金额（分），有任一行小计无效或合计溢出时为Money.INVALID
+     */
+    public long getTotalCents() {
+        return invalidLines > 0 || sumHigh != (sumLow >> 63) ? Money.INVALID : sumLow;
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * 按各行重新计算总金额和总数量
+     */
+    public long recalculateTotal() {
+        sumLow = 0;
+        sumHigh = 0;
+        invalidLines = 0;
+        totalQuantity = 0;
+        for (int i = 0; i < size; i++) {
+            accumulate(i, true);
+        }
+        return getTotalCents();
+    }
+
+    // 把第index行计入或移出合计
+    private void accumulate(int index, boolean add) {
+        totalQuantity += add ? quantities[index] : -quantities[index];
+        long subtotal = Money.multiply(priceCents[index], quantities[index]);
+        if (subtotal == Money.INVALID) {
+            invalidLines += add ? 1 : -1;
+            return;
+        }
+        long value = add ? subtotal : -subtotal;
+        long low = sumLow + value;
+        // 低64位按无符号数比较判断进位，高位加上value的符号扩展
+        sumHigh += (value >> 63) + (Long.compareUnsigned(low, sumLow) < 0 ? 1 : 0);
+        sumLow = low;
+    }
+
+    private OrderItem detach(int index) {
+        OrderItem item = new OrderItem();
+        item.setProductId(productIds[index]);
+        item.setProductName(productNames[index]);
+        item.setCategory(categories[index]);
+        item.setPriceCents(priceCents[index]);
+        item.setQuantity(quantities[index]);
+        return item;
+    }
+
+    private void grow() {
+        int capacity = quantities.length + (quantities.length >> 1) + 1;
+        productIds = Arrays.copyOf(productIds, capacity);
+        productNames = Arrays.copyOf(productNames, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("订单项序号超出范围: " + index + ", 共" + size + "项");
+        }
+    }
+
+    /**
+     * 指向某一行的订单项视图，读写都直接访问容器中的数组
+     */
+    private final class LineView extends OrderItem {
+        private final int index;
+
+        LineView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void calculateSubtotal() {
+            // 小计按单价×数量实时计算
+        }
+
+        @Override
+        public String getProductId() {
+            return OrderLines.this.getProductId(index);
+        }
+
+        @Override
+        public void setProductId(String productId) {
+            checkIndex(index);
+            productIds[index] = StringInterner.intern(productId);
+        }
+
+        @Override
+        public String getProductName() {
+            return OrderLines.this.getProductName(index);
+        }
+
+        @Override
+        public void setProductName(String productName) {
+            checkIndex(index);
+            productNames[index] = StringInterner.intern(productName);
+        }
+
+        @Override
+        public String getCategory() {
+            return OrderLines.this.getCategory(index);
+        }
+
+        @Override
+        public void setCategory(String category) {
+            checkIndex(index);
+            categories[index] = StringInterner.intern(category);
+        }
+
+        @Override
+        public double getPrice() {
+            return Money.toYuan(OrderLines.this.getPriceCents(index));
+        }
+
+        @Override
+        public void setPrice(double price) {
+            OrderLines.this.setPriceCents(index, Money.ofYuan(price));
+        }
+
+        @Override
+        public long getPriceCents() {
+            return OrderLines.this.getPriceCents(index);
+        }
+
+        @Override
+        public void setPriceCents(long price) {
+            OrderLines.this.setPriceCents(index, price);
+        }
+
+        @Override
+        public int getQuantity() {
+            return OrderLines.this.getQuantity(index);
+        }
+
+        @Override
+        public void setQuantity(int quantity) {
+            OrderLines.this.setQuantity(index, quantity);
+        }
+
+        @Override
+        public double getSubtotal() {
+            return Money.toYuan(OrderLines.this.getSubtotalCents(index));
+        }
+
+        @Override
+        public long getSubtotalCents() {
+            return OrderLines.this.getSubtotalCents(index);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package model.entity;
+
+/**
+ * 订单状态枚举 - 表驱动的状态机
+ * 状态流转：待付款 → 已付款 → 已发货 → 已完成
+ *              ↘        ↘
+ *               已取消 ←─┘
+ */
+public enum OrderStatus {
+    PENDING("待付款"),
+    PAID("已付款"),
+    SHIPPED("已发货"),
+    COMPLETED("已完成"),
+    CANCELLED("已取消");
+
+    // 状态流转表：TRANSITIONS[from.ordinal()][to.ordinal()]为true表示允许流转
+    private static final boolean[][] TRANSITIONS = new boolean[values().length][values().length];
+
+    static {
+        allow(PENDING, PAID);
+        allow(PENDING, CANCELLED);
+        allow(PAID, SHIPPED);
+        allow(PAID, CANCELLED);
+        allow(SHIPPED, COMPLETED);
+    }
+
+    private final String label;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    private static void allow(OrderStatus from, OrderStatus to) {
+        TRANSITIONS[from.ordinal()][to.ordinal()] = true;
+    }
+
+    /**
+     * 判断能否从当前状态流转到目标状态
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        return next != null && TRANSITIONS[ordinal()][next.ordinal()];
+    }
+
+    /**
+     * 是否为终态（已完成、已取消）
+     */
+    public boolean isTerminal() {
+        for (boolean allowed : TRANSITIONS[ordinal()]) {
+            if (allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 状态的中文名称，与Order.STATUS_*常量一致
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 根据中文名称解析状态，无法识别时返回null
+     */
+    public static OrderStatus fromLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        for (OrderStatus status : values()) {
+            if (status.label.equals(label)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -1,12 +1,13 @@
 package model.entity;
 
-
+import util.Money;
+import util.StringInterner;
 
 /**
  * 商品实体类 - 继承BaseEntity
  */
 public class Product extends BaseEntity {
-    private double price;          // 价格
+    private long priceCents;       // 价格（分），超过两位小数时为Money.INVALID
     private String category;       // 分类
     private int stock;             // 库存数量
 
@@ -17,18 +18,35 @@ public class Product extends BaseEntity {
 
     public Product(String id, String name, double price, String category) {
         super(id, name);
-        this.price = price;
-        this.category = category;
+        this.priceCents = Money.ofYuan(price);
+        this.category = StringInterner.intern(category);
         this.stock = 0;
     }
 
+    // 复制商品，用于修改后按版本号提交
+    public Product copy() {
+        Product copy = new Product(getId(), getName(), 0, getCategory());
+        copy.priceCents = getPriceCents();
+        copy.stock = getStock();
+        copy.version = getVersion();
+        return copy;
+    }
+
     // Getter和Setter方法
     public double getPrice() {
-        return price;
+        return Money.toYuan(priceCents);
     }
 
     public void setPrice(double price) {
-        this.price = price;
+        this.priceCents = Money.ofYuan(price);
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
     }
 
     public String getCategory() {
@@ -36,7 +54,7 @@ public class Product extends BaseEntity {
     }
 
     public void setCategory(String category) {
-        this.category = category;
+        this.category = StringInterner.intern(category);
     }
 
     public int getStock() {
@@ -64,6 +82,6 @@ public class Product extends BaseEntity {
     @Override
     public String toString() {
         return String.format("商品ID: %s, 名称: %s, 价格: %.2f, 分类: %s, 库存: %d",
-                id, name, price, category, stock);
+                getId(), getName(), getPrice(), getCategory(), getStock());
     }
 }
@@ -0,0 +1,11 @@
+package model.entity;
+
+/**
+ * 带版本号的实体 - 用于乐观并发控制
+ * 每次成功写入仓库后版本号加1，写入方携带读取时的版本号，版本不一致说明已被他人修改
+ */
+public interface Versioned {
+    long getVersion();
+
+    void setVersion(long version);
+}
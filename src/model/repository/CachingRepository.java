@@ -0,0 +1,116 @@
+package model.repository;
+
+import util.TinyLfuCache;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 读穿透缓存仓库 - 位于服务层和底层仓库之间
+ * 按ID读取时先查缓存，未命中再读底层仓库并放入缓存；写操作先写底层仓库，成功后把新值同步到缓存，失败则使缓存失效
+ * 底层仓库是内存仓库时，可以把本对象注册为其变更监听器，绕过缓存直接写底层仓库的修改也会同步到缓存
+ * 列表类查询直接访问底层仓库
+ * @param <T> 实体类型
+ */
+public class CachingRepository<T> implements Repository<T>, ChangeListener<T> {
+    private final Repository<T> backend;
+    private final Function<? super T, String> keyOf;
+    private final TinyLfuCache<String, T> cache;
+
+    /**
+     * @param backend 底层仓库
+     * @param keyOf 获取实体主键
+     * @param maximumSize 缓存的最大实体数
+     */
+    public CachingRepository(Repository<T> backend, Function<? super T, String> keyOf, int maximumSize) {
+        this.backend = backend;
+        this.keyOf = keyOf;
+        this.cache = new TinyLfuCache<>(maximumSize);
+    }
+
+    @Override
+    public T findById(String id) {
+        if (id == null) {
+            return null;
+        }
+        return cache.get(id, backend::findById);
+    }
+
+    @Override
+    public boolean add(T item) {
+        boolean success = backend.add(item);
+        writeThrough(item, success);
+        return success;
+    }
+
+    @Override
+    public boolean delete(String id) {
+        boolean success = backend.delete(id);
+        if (id != null) {
+            cache.invalidate(id);
+        }
+        return success;
+    }
+
+    @Override
+    public boolean update(T item) {
+        boolean success = backend.update(item);
+        writeThrough(item, success);
+        return success;
+    }
+
+    @Override
+    public boolean update(T item, long expectedVersion) {
+        boolean success = backend.update(item, expectedVersion);
+        writeThrough(item, success);
+        return success;
+    }
+
+    @Override
+    public List<T> findAll() {
+        return backend.findAll();
+    }
+
+    @Override
+    public int count() {
+        return backend.count();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return findById(id) != null;
+    }
+
+    /**
+     * 底层仓库的变更通知：已缓存的实体替换为新值，删除的实体失效
+     */
+    @Override
+    public void onChange(String id, T item) {
+        if (item == null) {
+            cache.invalidate(id);
+        } else {
+            cache.replace(id, item);
+        }
+    }
+
+    public TinyLfuCache.Stats getStats() {
+        return cache.stats();
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    // 写成功时已缓存的实体替换为新值，写失败时缓存可能已过期，直接失效
+    private void writeThrough(T item, boolean success) {
+        String key = item == null ? null : keyOf.apply(item);
+        if (key == null) {
+            return;
+        }
+        if (success) {
+            cache.replace(key, item);
+        } else {
+            cache.invalidate(key);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package model.repository;
+
+/**
+ * 仓库变更监听器 - 实体增加、修改、删除后调用
+ * @param <T> 实体类型
+ */
+public interface ChangeListener<T> {
+    /**
+     * @param id 实体主键
+     * @param item 变更后的实体，为null表示已删除
+     */
+    void onChange(String id, T item);
+}
@@ -0,0 +1,224 @@
+package model.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * 查询条件 - 字段上的等值、范围、包含条件，以及它们的AND/OR组合
+ * 条件本身可以直接用来判断实体是否匹配；查询计划器根据条件的结构选择可用的索引
+ * @param <T> 实体类型
+ */
+public abstract class Criteria<T> implements Predicate<T> {
+
+    /**
+     * 字段等于某个值
+     */
+    public static <T, V> Criteria<T> eq(Field<T, V> field, V value) {
+        return new Eq<>(field, value);
+    }
+
+    /**
+     * 字段在[min, max]范围内，min或max为null表示不限
+     */
+    public static <T, V extends Comparable<? super V>> Criteria<T> between(Field<T, V> field, V min, V max) {
+        return new Between<>(field, min, max);
+    }
+
+    /**
+     * 字符串字段包含关键词，不区分大小写
+     */
+    public static <T> Criteria<T> contains(Field<T, String> field, String keyword) {
+        return new Contains<>(field, keyword);
+    }
+
+    /**
+     * 任意条件，无法使用索引，只能逐个判断
+     */
+    public static <T> Criteria<T> where(String description, Predicate<? super T> predicate) {
+        return new Custom<>(description, predicate);
+    }
+
+    /**
+     * 所有条件都满足（AND）
+     * 不命名为and/or：Criteria实现了Predicate，同名静态方法会与Predicate的实例方法and/or冲突
+     */
+    @SafeVarargs
+    public static <T> Criteria<T> allOf(Criteria<T>... parts) {
+        List<Criteria<T>> list = new ArrayList<>(parts.length);
+        for (Criteria<T> part : parts) {
+            list.add(part);
+        }
+        return new And<>(list);
+    }
+
+    public static <T> Criteria<T> allOf(List<Criteria<T>> parts) {
+        return new And<>(parts);
+    }
+
+    /**
+     * 任一条件满足（OR）
+     */
+    @SafeVarargs
+    public static <T> Criteria<T> anyOf(Criteria<T>... parts) {
+        List<Criteria<T>> list = new ArrayList<>(parts.length);
+        for (Criteria<T> part : parts) {
+            list.add(part);
+        }
+        return new Or<>(list);
+    }
+
+    public static <T> Criteria<T> anyOf(List<Criteria<T>> parts) {
+        return new Or<>(parts);
+    }
+
+    // 等值条件
+    static final class Eq<T, V> extends Criteria<T> {
+        final Field<T, V> field;
+        final V value;
+
+        Eq(Field<T, V> field, V value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(T item) {
+            return Objects.equals(field.get(item), value);
+        }
+
+        @Override
+        public String toString() {
+            return field + " = " + value;
+        }
+    }
+
+    // 范围条件，两端都包含
+    static final class Between<T, V extends Comparable<? super V>> extends Criteria<T> {
+        final Field<T, V> field;
+        final V min;
+        final V max;
+
+        Between(Field<T, V> field, V min, V max) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean test(T item) {
+            V value = field.get(item);
+            return value != null && (min == null || value.compareTo(min) >= 0)
+                    && (max == null || value.compareTo(max) <= 0);
+        }
+
+        @Override
+        public String toString() {
+            return field + " in [" + (min == null ? "" : min) + ", " + (max == null ? "" : max) + "]";
+        }
+    }
+
+    // 包含关键词条件
+    static final class Contains<T> extends Criteria<T> {
+        final Field<T, String> field;
+        final String keyword;
+
+        Contains(Field<T, String> field, String keyword) {
+            this.field = field;
+            this.keyword = keyword.toLowerCase();
+        }
+
+        @Override
+        public boolean test(T item) {
+            String value = field.get(item);
+            return value != null && value.toLowerCase().contains(keyword);
+        }
+
+        @Override
+        public String toString() {
+            return field + " contains '" + keyword + "'";
+        }
+    }
+
+    // 自定义条件
+    static final class Custom<T> extends Criteria<T> {
+        final String description;
+        final Predicate<? super T> predicate;
+
+        Custom(String description, Predicate<? super T> predicate) {
+            this.description = description;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean test(T item) {
+            return predicate.test(item);
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    // 所有子条件都满足
+    static final class And<T> extends Criteria<T> {
+        final List<Criteria<T>> parts;
+
+        And(List<Criteria<T>> parts) {
+            this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+        }
+
+        @Override
+        public boolean test(T item) {
+            for (Criteria<T> part : parts) {
+                if (!part.test(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(parts, " AND ");
+        }
+    }
+
+    // 任一子条件满足
+    static final class Or<T> extends Criteria<T> {
+        final List<Criteria<T>> parts;
+
+        Or(List<Criteria<T>> parts) {
+            this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+        }
+
+        @Override
+        public boolean test(T item) {
+            for (Criteria<T> part : parts) {
+                if (part.test(item)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(parts, " OR ");
+        }
+    }
+
+    private static String join(List<? extends Criteria<?>> parts, String separator) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(parts.get(i));
+        }
+        return sb.append(')').toString();
+    }
+}
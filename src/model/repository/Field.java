@@ -0,0 +1,46 @@
+package model.repository;
+
+import java.util.function.Function;
+
+/**
+ * 可查询的实体字段 - 字段名加取值函数
+ * 查询条件和索引通过字段名对应，同名字段视为同一个字段
+ * @param <T> 实体类型
+ * @param <V> 字段值类型
+ */
+public final class Field<T, V> {
+    private final String name;
+    private final Function<? super T, ? extends V> getter;
+
+    private Field(String name, Function<? super T, ? extends V> getter) {
+        this.name = name;
+        this.getter = getter;
+    }
+
+    public static <T, V> Field<T, V> of(String name, Function<? super T, ? extends V> getter) {
+        return new Field<>(name, getter);
+    }
+
+    public V get(T item) {
+        return getter.apply(item);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Field && name.equals(((Field<?, ?>) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,132 @@
+package model.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 字段值索引 - 字段值 -> 实体ID集合
+ * 哈希索引支持等值条件；有序索引同时支持范围条件。字段值为null的实体不进入索引
+ * @param <T> 实体类型
+ * @param <V> 字段值类型，有序索引要求可比较
+ */
+public class FieldIndex<T, V> extends Index<T> {
+    private final Field<T, V> field;
+    private final boolean sorted;
+    private final Map<V, Set<String>> postings;
+    // 实体ID -> 已索引的字段值，删除和修改时据此找到旧位置
+    private final Map<String, V> indexed = new HashMap<>();
+
+    /**
+     * 哈希索引
+     */
+    public static <T, V> FieldIndex<T, V> hash(Field<T, V> field) {
+        return new FieldIndex<>(field, false);
+    }
+
+    /**
+     * 有序索引
+     */
+    public static <T, V extends Comparable<? super V>> FieldIndex<T, V> sorted(Field<T, V> field) {
+        return new FieldIndex<>(field, true);
+    }
+
+    private FieldIndex(Field<T, V> field, boolean sorted) {
+        super(field);
+        this.field = field;
+        this.sorted = sorted;
+        this.postings = sorted ? new TreeMap<>() : new HashMap<>();
+    }
+
+    @Override
+    public synchronized void update(String id, T item) {
+        V value = item == null ? null : field.get(item);
+        V old = indexed.get(id);
+        if (Objects.equals(old, value)) {
+            return;
+        }
+        if (old != null) {
+            Set<String> ids = postings.get(old);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(old);
+            }
+            indexed.remove(id);
+        }
+        if (value != null) {
+            postings.computeIfAbsent(value, key -> new HashSet<>()).add(id);
+            indexed.put(id, value);
+        }
+        changed();
+    }
+
+    @Override
+    public synchronized int estimate(Criteria<T> condition) {
+        if (condition instanceof Criteria.Eq) {
+            Criteria.Eq<T, ?> eq = (Criteria.Eq<T, ?>) condition;
+            if (!field.equals(eq.field) || eq.value == null) {
+                return -1;
+            }
+            Set<String> ids = postings.get(eq.value);
+            return ids == null ? 0 : ids.size();
+        }
+        Collection<Set<String>> range = range(condition);
+        if (range == null) {
+            return -1;
+        }
+        int count = 0;
+        for (Set<String> ids : range) {
+            count += ids.size();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized Set<String> lookup(Criteria<T> condition) {
+        if (condition instanceof Criteria.Eq) {
+            Criteria.Eq<T, ?> eq = (Criteria.Eq<T, ?>) condition;
+            if (!field.equals(eq.field) || eq.value == null) {
+                return null;
+            }
+            Set<String> ids = postings.get(eq.value);
+            return ids == null ? new HashSet<>() : new HashSet<>(ids);
+        }
+        Collection<Set<String>> range = range(condition);
+        if (range == null) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (Set<String> ids : range) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    // 有序索引上范围条件覆盖的各个ID集合，不支持时返回null
+    @SuppressWarnings("unchecked")
+    private Collection<Set<String>> range(Criteria<T> condition) {
+        if (!sorted || !(condition instanceof Criteria.Between)) {
+            return null;
+        }
+        Criteria.Between<T, ?> between = (Criteria.Between<T, ?>) condition;
+        if (!field.equals(between.field)) {
+            return null;
+        }
+        NavigableMap<V, Set<String>> map = (NavigableMap<V, Set<String>>) postings;
+        V min = (V) between.min;
+        V max = (V) between.max;
+        if (min != null && max != null) {
+            return map.subMap(min, true, max, true).values();
+        } else if (min != null) {
+            return map.tailMap(min, true).values();
+        } else if (max != null) {
+            return map.headMap(max, true).values();
+        }
+        return map.values();
+    }
+}
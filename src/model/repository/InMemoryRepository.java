@@ -0,0 +1,293 @@
+package model.repository;
+
+import model.entity.Versioned;
+import util.PersistentHashMap;
+import util.SortedView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 内存仓库基类 - 提供通用的CRUD和基于版本号的乐观并发更新
+ * 子类只需指定实体的主键
+ * 数据保存在持久化哈希映射中，每次写入生成新的映射并原子地替换根引用；读取不加锁，
+ * snapshot()以O(1)得到一份快照，报表、导出可以在快照上长时间遍历，不受并发增删和替换的影响
+ * 同一个键的写操作按分段锁串行，不同键的写操作只在替换根引用时竞争
+ * 可以注册有序视图、二级索引和变更监听器，每次增删改都在同一个键的写锁内先写入实体、再通知视图、索引和监听器，
+ * 因此收到通知时新值已经可以读到，按通知去读仓库的缓存不会读到旧值
+ * query按条件查询时由查询计划器选择索引，没有可用索引时全表扫描
+ * @param <T> 实体类型
+ */
+public abstract class InMemoryRepository<T extends Versioned> implements Repository<T> {
+    // 写锁分段数
+    private static final int LOCK_STRIPES = 64;
+
+    // 当前数据的根引用，key为实体主键
+    private final AtomicReference<PersistentHashMap<String, T>> root =
+            new AtomicReference<>(PersistentHashMap.empty());
+    private final Object[] writeLocks = new Object[LOCK_STRIPES];
+    // 已注册的有序视图
+    private final List<SortedView<T, ?>> views = new CopyOnWriteArrayList<>();
+    // 已注册的二级索引
+    private final List<Index<T>> indexes = new CopyOnWriteArrayList<>();
+    // 其他变更监听器，例如缓存失效
+    private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final QueryPlanner<T> planner = new QueryPlanner<>(indexes);
+
+    protected InMemoryRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            writeLocks[i] = new Object();
+        }
+    }
+
+    // 获取实体的主键
+    protected abstract String keyOf(T item);
+
+    /**
+     * 当前数据的快照，O(1)
+     * 快照固定的是包含哪些实体、每个ID对应哪个对象：之后的增删和update替换不会影响已取得的快照；
+     * 但实体对象本身是可变的，在仓库外直接修改的字段（如订单状态的流转）在快照中也能看到
+     */
+    public PersistentHashMap<String, T> snapshot() {
+        return root.get();
+    }
+
+    @Override
+    public boolean add(T item) {
+        if (item == null || keyOf(item) == null) {
+            return false;
+        }
+        String key = keyOf(item);
+        synchronized (lockFor(key)) {
+            install(key, item);
+            publish(key, item);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(String id) {
+        if (id == null) {
+            return false;
+        }
+        synchronized (lockFor(id)) {
+            if (!root.get().containsKey(id)) {
+                return false;
+            }
+            install(id, null);
+            publish(id, null);
+        }
+        return true;
+    }
+
+    @Override
+    public T findById(String id) {
+        return id == null ? null : root.get().get(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return new ArrayList<>(root.get().values());
+    }
+
+    /**
+     * 无条件覆盖更新，版本号在原版本基础上加1
+     */
+    @Override
+    public boolean update(T item) {
+        if (item == null || keyOf(item) == null) {
+            return false;
+        }
+        String key = keyOf(item);
+        synchronized (lockFor(key)) {
+            T old = root.get().get(key);
+            if (old == null) {
+                return false;
+            }
+            item.setVersion(old.getVersion() + 1);
+            install(key, item);
+            publish(key, item);
+        }
+        return true;
+    }
+
+    /**
+     * 乐观并发更新：仅当仓库中的版本号等于expectedVersion时写入
+     */
+    @Override
+    public boolean update(T item, long expectedVersion) {
+        if (item == null || keyOf(item) == null) {
+            return false;
+        }
+        String key = keyOf(item);
+        synchronized (lockFor(key)) {
+            T old = root.get().get(key);
+            if (old == null || old.getVersion() != expectedVersion) {
+                return false;
+            }
+            item.setVersion(expectedVersion + 1);
+            install(key, item);
+            publish(key, item);
+        }
+        return true;
+    }
+
+    @Override
+    public int count() {
+        return root.get().size();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return id != null && root.get().containsKey(id);
+    }
+
+    /**
+     * 注册一个按排序键排列的有序视图，之后仓库的每次变更都会同步到视图
+     * @param sortKey 从实体中取排序键
+     * @param keyOrder 排序键的顺序
+     */
+    public <K> SortedView<T, K> createSortedView(Function<? super T, ? extends K> sortKey,
+                                                  Comparator<? super K> keyOrder) {
+        SortedView<T, K> view = new SortedView<>(sortKey, keyOrder);
+        views.add(view);
+        for (Map.Entry<String, T> entry : root.get().entrySet()) {
+            view.put(entry.getKey(), entry.getValue());
+        }
+        return view;
+    }
+
+    public void removeSortedView(SortedView<T, ?> view) {
+        views.remove(view);
+    }
+
+    /**
+     * 实体在仓库外被直接修改后调用，按当前值重新计算各视图中的位置
+     */
+    public void refresh(String id) {
+        if (id == null || !hasSubscribers()) {
+            return;
+        }
+        synchronized (lockFor(id)) {
+            T current = root.get().get(id);
+            if (current != null) {
+                publish(id, current);
+            }
+        }
+    }
+
+    /**
+     * 按条件查询，结果按查询指定的顺序排列并分页
+     */
+    public List<T> query(Query<T> query) {
+        PersistentHashMap<String, T> snapshot = root.get();
+        Criteria<T> criteria = query.getCriteria();
+        Set<String> candidates = criteria == null ? null : planner.candidates(criteria, null);
+        // 不需要排序时凑够一页即可停止
+        int wanted = query.getOrder() == null ?
+                (int) Math.min((long) query.getOffset() + query.getLimit(), Integer.MAX_VALUE) : Integer.MAX_VALUE;
+
+        List<T> result = new ArrayList<>();
+        if (candidates == null) {
+            for (T item : snapshot.values()) {
+                if (result.size() >= wanted) {
+                    break;
+                }
+                if (criteria == null || criteria.test(item)) {
+                    result.add(item);
+                }
+            }
+        } else {
+            for (String id : candidates) {
+                if (result.size() >= wanted) {
+                    break;
+                }
+                T item = snapshot.get(id);
+                // 索引只给出候选，仍需按完整条件核对
+                if (item != null && criteria.test(item)) {
+                    result.add(item);
+                }
+            }
+        }
+        if (query.getOrder() != null) {
+            result.sort(query.getOrder());
+        }
+        int from = Math.min(query.getOffset(), result.size());
+        int to = (int) Math.min((long) from + query.getLimit(), result.size());
+        return from == 0 && to == result.size() ? result : new ArrayList<>(result.subList(from, to));
+    }
+
+    /**
+     * 说明查询会如何执行：走哪些索引，或者全表扫描
+     */
+    public String explain(Query<T> query) {
+        Criteria<T> criteria = query.getCriteria();
+        StringBuilder plan = new StringBuilder();
+        if (criteria == null || planner.candidates(criteria, plan) == null) {
+            return "SCAN " + count();
+        }
+        return plan.toString();
+    }
+
+    /**
+     * 注册二级索引，并用当前数据建立索引
+     */
+    protected void addIndex(Index<T> index) {
+        indexes.add(index);
+        for (Map.Entry<String, T> entry : root.get().entrySet()) {
+            index.update(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void addChangeListener(ChangeListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    public Collection<Index<T>> getIndexes() {
+        return Collections.unmodifiableList(indexes);
+    }
+
+    private boolean hasSubscribers() {
+        return !views.isEmpty() || !indexes.isEmpty() || !listeners.isEmpty();
+    }
+
+    private Object lockFor(String key) {
+        int h = key.hashCode();
+        return writeLocks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    // 替换根引用，item为null表示删除；调用方持有该键的写锁，重试只会因为其他键的写入
+    private void install(String key, T item) {
+        PersistentHashMap<String, T> current;
+        PersistentHashMap<String, T> next;
+        do {
+            current = root.get();
+            next = item == null ? current.minus(key) : current.plus(key, item);
+        } while (current != next && !root.compareAndSet(current, next));
+    }
+
+    // 把变更同步到所有有序视图、索引和监听器，item为null表示删除；在install之后调用
+    private void publish(String key, T item) {
+        for (SortedView<T, ?> view : views) {
+            view.put(key, item);
+        }
+        for (Index<T> index : indexes) {
+            index.update(key, item);
+        }
+        for (ChangeListener<T> listener : listeners) {
+            listener.onChange(key, item);
+        }
+    }
+}
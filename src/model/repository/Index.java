@@ -0,0 +1,48 @@
+package model.repository;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二级索引 - 维护字段值到实体ID的映射，供查询计划器缩小候选范围
+ * 由仓库在实体增删改时同步更新；每次索引内容变化版本号加1
+ * @param <T> 实体类型
+ */
+public abstract class Index<T> {
+    private final Field<T, ?> field;
+    private final AtomicLong version = new AtomicLong();
+
+    protected Index(Field<T, ?> field) {
+        this.field = field;
+    }
+
+    public Field<T, ?> getField() {
+        return field;
+    }
+
+    /**
+     * 索引版本号，索引内容每变化一次加1
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    protected void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * 实体增加或修改后调用，item为null表示实体已删除
+     */
+    public abstract void update(String id, T item);
+
+    /**
+     * 估计满足条件的候选数量，索引不支持该条件时返回-1
+     */
+    public abstract int estimate(Criteria<T> condition);
+
+    /**
+     * 返回满足条件的候选ID，结果可能多于真正满足条件的实体，需要再逐个判断；不支持该条件时返回null
+     */
+    public abstract Set<String> lookup(Criteria<T> condition);
+}
@@ -9,58 +9,10 @@ import java.util.Map;
 /**
  * 库存数据访问实现类 - 使用内存存储
  */
-public class InventoryRepository implements Repository<Inventory> {
-    // 使用Map存储库存数据，key为商品ID
-    private Map<String, Inventory> inventoryMap = new HashMap<>();
-
-    @Override
-    public boolean add(Inventory inventory) {
-        if (inventory == null || inventory.getProductId() == null) {
-            return false;
-        }
-        inventoryMap.put(inventory.getProductId(), inventory);
-        return true;
-    }
-
-    @Override
-    public boolean delete(String productId) {
-        if (inventoryMap.containsKey(productId)) {
-            inventoryMap.remove(productId);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public Inventory findById(String productId) {
-        return inventoryMap.get(productId);
-    }
-
-    @Override
-    public List<Inventory> findAll() {
-        return new ArrayList<>(inventoryMap.values());
-    }
-
-    @Override
-    public boolean update(Inventory inventory) {
-        if (inventory == null || inventory.getProductId() == null) {
-            return false;
-        }
-        if (inventoryMap.containsKey(inventory.getProductId())) {
-            inventoryMap.put(inventory.getProductId(), inventory);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public int count() {
-        return inventoryMap.size();
-    }
-
+public class InventoryRepository extends InMemoryRepository<Inventory> {
     @Override
-    public boolean exists(String productId) {
-        return inventoryMap.containsKey(productId);
+    protected String keyOf(Inventory inventory) {
+        return inventory.getProductId();
     }
 
     // 特定于库存的查询方法
@@ -70,7 +22,7 @@ public class InventoryRepository implements Repository<Inventory> {
      */
     public List<Inventory> getLowStockItems() {
         List<Inventory> result = new ArrayList<>();
-        for (Inventory inventory : inventoryMap.values()) {
+        for (Inventory inventory : snapshot().values()) {
             if (inventory.needsWarning()) {
                 result.add(inventory);
             }
@@ -83,7 +35,7 @@ public class InventoryRepository implements Repository<Inventory> {
      */
     public List<Inventory> findByQuantityRange(int min, int max) {
         List<Inventory> result = new ArrayList<>();
-        for (Inventory inventory : inventoryMap.values()) {
+        for (Inventory inventory : snapshot().values()) {
             int quantity = inventory.getQuantity();
             if (quantity >= min && quantity <= max) {
                 result.add(inventory);
@@ -101,7 +53,7 @@ public class InventoryRepository implements Repository<Inventory> {
         int totalQuantity = 0;
         int lowStockCount = 0;
 
-        for (Inventory inventory : inventoryMap.values()) {
+        for (Inventory inventory : snapshot().values()) {
             totalItems++;
             totalQuantity += inventory.getQuantity();
             if (inventory.needsWarning()) {
@@ -0,0 +1,129 @@
+package model.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文本n-gram索引 - 支持不区分大小写的"包含关键词"条件
+ * 每个文本按单字和相邻两字建立倒排表；查询时取关键词各个片段倒排表的交集作为候选，再逐个核对
+ * @param <T> 实体类型
+ */
+public class NGramIndex<T> extends Index<T> {
+    private final Field<T, String> field;
+    // 片段 -> 包含该片段的实体ID
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    // 实体ID -> 已索引的文本（小写）
+    private final Map<String, String> indexed = new HashMap<>();
+
+    public NGramIndex(Field<T, String> field) {
+        super(field);
+        this.field = field;
+    }
+
+    @Override
+    public synchronized void update(String id, T item) {
+        String text = item == null ? null : field.get(item);
+        text = text == null ? null : text.toLowerCase();
+        String old = indexed.get(id);
+        if (old == null ? text == null : old.equals(text)) {
+            return;
+        }
+        if (old != null) {
+            for (String gram : grams(old)) {
+                Set<String> ids = postings.get(gram);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+            indexed.remove(id);
+        }
+        if (text != null) {
+            for (String gram : grams(text)) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+            indexed.put(id, text);
+        }
+        changed();
+    }
+
+    @Override
+    public synchronized int estimate(Criteria<T> condition) {
+        String keyword = keywordOf(condition);
+        if (keyword == null) {
+            return -1;
+        }
+        int best = Integer.MAX_VALUE;
+        for (String gram : queryGrams(keyword)) {
+            Set<String> ids = postings.get(gram);
+            best = Math.min(best, ids == null ? 0 : ids.size());
+        }
+        return best;
+    }
+
+    @Override
+    public synchronized Set<String> lookup(Criteria<T> condition) {
+        String keyword = keywordOf(condition);
+        if (keyword == null) {
+            return null;
+        }
+        Set<String> result = null;
+        for (String gram : queryGrams(keyword)) {
+            Set<String> ids = postings.get(gram);
+            if (ids == null) {
+                return new HashSet<>();
+            }
+            if (result == null) {
+                result = new HashSet<>(ids);
+            } else if (ids.size() < result.size()) {
+                Set<String> smaller = new HashSet<>(ids);
+                smaller.retainAll(result);
+                result = smaller;
+            } else {
+                result.retainAll(ids);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // 条件对应的关键词，不是本字段的非空包含条件时返回null
+    private String keywordOf(Criteria<T> condition) {
+        if (!(condition instanceof Criteria.Contains)) {
+            return null;
+        }
+        Criteria.Contains<T> contains = (Criteria.Contains<T>) condition;
+        if (!field.equals(contains.field) || contains.keyword.isEmpty()) {
+            return null;
+        }
+        return contains.keyword;
+    }
+
+    // 建索引用的片段：所有单字和相邻两字
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+            if (i + 1 < text.length()) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    // 查询用的片段：单字关键词用单字，否则用相邻两字
+    private static Set<String> queryGrams(String keyword) {
+        if (keyword.length() == 1) {
+            return Set.of(keyword);
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 1 < keyword.length(); i++) {
+            grams.add(keyword.substring(i, i + 2));
+        }
+        return grams;
+    }
+}
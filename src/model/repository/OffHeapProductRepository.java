@@ -0,0 +1,618 @@
+package model.repository;
+
+import model.entity.Product;
+import util.Money;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 堆外商品目录 - 商品数据保存在直接内存中，按列存放
+ * 记录按每段16384条分段，每段是一块直接内存，段内价格、版本、库存等定长数值列各自连续存放，
+ * 按价格等数值列扫描时顺序访问连续内存；ID、名称、分类以UTF-8写入分段的字符串区，记录中只保存(段, 偏移, 长度)引用
+ * 返回的商品是指向记录的只读享元视图，读取数值字段直接访问直接内存；百万级商品在堆上只有ID索引的一个long数组
+ * 修改商品时先copy()，在副本上修改后调用update(副本, 版本号)提交，视图的setter抛出UnsupportedOperationException
+ * 写操作串行执行；读取不加锁，索引条目和分段数组通过volatile发布
+ * 每条记录带一个序号(seqlock)：写入期间为奇数，写完后以release方式变回偶数；读取时序号为偶数且读前读后一致才采用，
+ * 因此copy()得到的价格、库存、版本属于同一次写入，不会把新版本号和旧价格拼在一起
+ * 删除的记录只做标记，槽位和字符串不复用
+ */
+public class OffHeapProductRepository implements Repository<Product> {
+    // 每段记录数
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // 段内各列的起始位置
+    private static final int PRICE = 0;
+    private static final int VERSION = PRICE + 8 * CHUNK_SIZE;
+    private static final int ID_REF = VERSION + 8 * CHUNK_SIZE;
+    private static final int NAME_REF = ID_REF + 8 * CHUNK_SIZE;
+    private static final int CATEGORY_REF = NAME_REF + 8 * CHUNK_SIZE;
+    private static final int SEQUENCE = CATEGORY_REF + 8 * CHUNK_SIZE;
+    private static final int STOCK = SEQUENCE + 8 * CHUNK_SIZE;
+    private static final int FLAGS = STOCK + 4 * CHUNK_SIZE;
+    private static final int CHUNK_BYTES = FLAGS + CHUNK_SIZE;
+
+    // 按long访问序号列，支持acquire/release等内存序
+    private static final VarHandle SEQUENCE_HANDLE =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    // 字符串区每段1MB；引用编码为 段号(20位) | 偏移(20位) | 长度(24位)
+    private static final int STRING_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_STRING_BYTES = (1 << 24) - 1;
+    private static final long NULL_REF = -1L;
+
+    // ID索引：开放寻址，条目为 (哈希 << 32) | (槽位 + 1)，0为空，TOMBSTONE为已删除
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile ByteBuffer[] stringChunks = new ByteBuffer[0];
+    private volatile AtomicLongArray index = new AtomicLongArray(16);
+    private volatile int slotCount;
+    private volatile int liveCount;
+
+    // 以下字段只在写锁内访问
+    private int indexUsed;
+    private int stringChunk = -1;
+    private int stringPosition = STRING_CHUNK_SIZE;
+
+    @Override
+    public synchronized boolean add(Product item) {
+        if (item == null || item.getId() == null) {
+            return false;
+        }
+        int slot = find(item.getId());
+        if (slot >= 0) {
+            write(slot, item, item.getVersion());
+            return true;
+        }
+        slot = slotCount;
+        if ((slot >>> CHUNK_BITS) == chunks.length) {
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            // 按8字节对齐，序号列的原子访问要求地址对齐
+            grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_BYTES + 7).alignedSlice(8);
+            chunks = grown;
+        }
+        chunk(slot).putLong(ID_REF + offset(slot, 8), appendString(item.getId()));
+        chunk(slot).putLong(NAME_REF + offset(slot, 8), NULL_REF);
+        chunk(slot).putLong(CATEGORY_REF + offset(slot, 8), NULL_REF);
+        write(slot, item, item.getVersion());
+        chunk(slot).put(FLAGS + (slot & CHUNK_MASK), LIVE);
+        slotCount = slot + 1;
+        insertIndex(item.getId().hashCode(), slot);
+        liveCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        int position = id == null ? -1 : probe(id);
+        if (position < 0) {
+            return false;
+        }
+        int slot = (int) index.get(position) - 1;
+        beginWrite(slot);
+        chunk(slot).put(FLAGS + (slot & CHUNK_MASK), DELETED);
+        endWrite(slot);
+        index.set(position, TOMBSTONE);
+        liveCount--;
+        return true;
+    }
+
+    @Override
+    public Product findById(String id) {
+        int slot = id == null ? -1 : find(id);
+        return slot < 0 ? null : new ProductView(slot);
+    }
+
+    /**
+     * 所有商品的视图列表
+     */
+    @Override
+    public List<Product> findAll() {
+        List<Product> result = new ArrayList<>(liveCount);
+        int count = slotCount;
+        for (int slot = 0; slot < count; slot++) {
+            if (isLive(slot)) {
+                result.add(new ProductView(slot));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean update(Product item) {
+        int slot = item == null || item.getId() == null ? -1 : find(item.getId());
+        if (slot < 0) {
+            return false;
+        }
+        long version = version(slot) + 1;
+        write(slot, item, version);
+        setVersion(item, version);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean update(Product item, long expectedVersion) {
+        int slot = item == null || item.getId() == null ? -1 : find(item.getId());
+        if (slot < 0 || version(slot) != expectedVersion) {
+            return false;
+        }
+        write(slot, item, expectedVersion + 1);
+        setVersion(item, expectedVersion + 1);
+        return true;
+    }
+
+    @Override
+    public int count() {
+        return liveCount;
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return id != null && find(id) >= 0;
+    }
+
+    /**
+     * 用同一个享元视图依次访问每个商品，不创建对象；视图只在回调期间有效，需要保留时调用copy()
+     */
+    public void forEach(Consumer<? super Product> action) {
+        ProductView cursor = new ProductView(0);
+        int count = slotCount;
+        for (int slot = 0; slot < count; slot++) {
+            if (isLive(slot)) {
+                cursor.slot = slot;
+                action.accept(cursor);
+            }
+        }
+    }
+
+    /**
+     * 按价格区间（分，含两端）扫描价格列
+     */
+    public List<Product> findByPriceRange(long minCents, long maxCents) {
+        List<Product> result = new ArrayList<>();
+        ByteBuffer[] current = chunks;
+        int count = slotCount;
+        for (int slot = 0; slot < count; slot++) {
+            ByteBuffer chunk = current[slot >>> CHUNK_BITS];
+            int row = slot & CHUNK_MASK;
+            long sequence;
+            long price;
+            byte flags;
+            do {
+                sequence = beginRead(chunk, row);
+                price = chunk.getLong(PRICE + (row << 3));
+                flags = chunk.get(FLAGS + row);
+            } while (!validate(chunk, row, sequence));
+            if (price >= minCents && price <= maxCents && flags == LIVE) {
+                result.add(new ProductView(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 占用的直接内存字节数
+     */
+    public long getOffHeapBytes() {
+        long bytes = (long) chunks.length * CHUNK_BYTES;
+        for (ByteBuffer chunk : stringChunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    // ---- 记录读写 ----
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    private static int offset(int slot, int width) {
+        return (slot & CHUNK_MASK) * width;
+    }
+
+    private boolean isLive(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int row = slot & CHUNK_MASK;
+        long sequence;
+        byte flags;
+        do {
+            sequence = beginRead(chunk, row);
+            flags = chunk.get(FLAGS + row);
+        } while (!validate(chunk, row, sequence));
+        return flags == LIVE;
+    }
+
+    private long priceCents(int slot) {
+        return readLong(slot, PRICE);
+    }
+
+    private long version(int slot) {
+        return readLong(slot, VERSION);
+    }
+
+    private int stock(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int row = slot & CHUNK_MASK;
+        long sequence;
+        int stock;
+        do {
+            sequence = beginRead(chunk, row);
+            stock = chunk.getInt(STOCK + (row << 2));
+        } while (!validate(chunk, row, sequence));
+        return stock;
+    }
+
+    private String string(int slot, int column) {
+        return readString(readLong(slot, column));
+    }
+
+    private long readLong(int slot, int column) {
+        ByteBuffer chunk = chunk(slot);
+        int row = slot & CHUNK_MASK;
+        long sequence;
+        long value;
+        do {
+            sequence = beginRead(chunk, row);
+            value = chunk.getLong(column + (row << 3));
+        } while (!validate(chunk, row, sequence));
+        return value;
+    }
+
+    // 一次读出记录的全部字段，各字段属于同一次写入
+    private Product snapshot(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int row = slot & CHUNK_MASK;
+        long sequence;
+        long price;
+        long version;
+        long nameRef;
+        long categoryRef;
+        int stock;
+        do {
+            sequence = beginRead(chunk, row);
+            price = chunk.getLong(PRICE + (row << 3));
+            version = chunk.getLong(VERSION + (row << 3));
+            nameRef = chunk.getLong(NAME_REF + (row << 3));
+            categoryRef = chunk.getLong(CATEGORY_REF + (row << 3));
+            stock = chunk.getInt(STOCK + (row << 2));
+        } while (!validate(chunk, row, sequence));
+
+        Product copy = new Product(string(slot, ID_REF), readString(nameRef), 0, readString(categoryRef));
+        copy.setPriceCents(price);
+        copy.setStock(stock);
+        copy.setVersion(version);
+        return copy;
+    }
+
+    // 等到记录不在写入中，返回当前序号
+    private static long beginRead(ByteBuffer chunk, int row) {
+        while (true) {
+            long sequence = (long) SEQUENCE_HANDLE.getAcquire(chunk, SEQUENCE + (row << 3));
+            if ((sequence & 1) == 0) {
+                return sequence;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // 读取期间序号没有变化时，读到的字段是一致的
+    private static boolean validate(ByteBuffer chunk, int row, long sequence) {
+        VarHandle.loadLoadFence();
+        return (long) SEQUENCE_HANDLE.getOpaque(chunk, SEQUENCE + (row << 3)) == sequence;
+    }
+
+    // 开始写入记录，序号变为奇数；在写锁内调用
+    private void beginWrite(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int position = SEQUENCE + offset(slot, 8);
+        long sequence = (long) SEQUENCE_HANDLE.getOpaque(chunk, position);
+        SEQUENCE_HANDLE.setOpaque(chunk, position, sequence + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    // 结束写入，序号变回偶数；读者看到新序号时也能看到本次写入的全部字段
+    private void endWrite(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int position = SEQUENCE + offset(slot, 8);
+        long sequence = (long) SEQUENCE_HANDLE.getOpaque(chunk, position);
+        SEQUENCE_HANDLE.setRelease(chunk, position, sequence + 1);
+    }
+
+    // 写入除ID以外的字段，字符串未变化时沿用原来的引用
+    // 先从item读出全部值再开始写入：item可能就是这条记录的视图，写入期间读取视图会一直等待
+    private void write(int slot, Product item, long version) {
+        long priceCents = item.getPriceCents();
+        int stock = item.getStock();
+        ByteBuffer chunk = chunk(slot);
+        long nameRef = stringRef(chunk.getLong(NAME_REF + offset(slot, 8)), item.getName());
+        long categoryRef = stringRef(chunk.getLong(CATEGORY_REF + offset(slot, 8)), item.getCategory());
+
+        beginWrite(slot);
+        chunk.putLong(PRICE + offset(slot, 8), priceCents);
+        chunk.putInt(STOCK + offset(slot, 4), stock);
+        chunk.putLong(VERSION + offset(slot, 8), version);
+        chunk.putLong(NAME_REF + offset(slot, 8), nameRef);
+        chunk.putLong(CATEGORY_REF + offset(slot, 8), categoryRef);
+        endWrite(slot);
+    }
+
+    // 字符串未变化时返回原来的引用，否则追加到字符串区
+    private long stringRef(long ref, String value) {
+        return stringEquals(ref, value) ? ref : appendString(value);
+    }
+
+    // 视图的版本号直接读自记录，只回填堆上的商品
+    private static void setVersion(Product item, long version) {
+        if (!(item instanceof ProductView)) {
+            item.setVersion(version);
+        }
+    }
+
+    // ---- 字符串区 ----
+
+    private long appendString(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("字符串过长: " + bytes.length + "字节");
+        }
+        int chunkIndex;
+        int position;
+        if (bytes.length > STRING_CHUNK_SIZE) {
+            // 超过一段的字符串单独占用一段
+            chunkIndex = addStringChunk(bytes.length);
+            position = 0;
+        } else {
+            if (stringPosition + bytes.length > STRING_CHUNK_SIZE) {
+                stringChunk = addStringChunk(STRING_CHUNK_SIZE);
+                stringPosition = 0;
+            }
+            chunkIndex = stringChunk;
+            position = stringPosition;
+            stringPosition += bytes.length;
+        }
+        stringChunks[chunkIndex].put(position, bytes);
+        return ((long) chunkIndex << 44) | ((long) position << 24) | bytes.length;
+    }
+
+    private int addStringChunk(int size) {
+        ByteBuffer[] grown = Arrays.copyOf(stringChunks, stringChunks.length + 1);
+        grown[stringChunks.length] = ByteBuffer.allocateDirect(size);
+        stringChunks = grown;
+        return stringChunks.length - 1;
+    }
+
+    private String readString(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (ref & MAX_STRING_BYTES)];
+        stringChunks[(int) (ref >>> 44)].get((int) ((ref >>> 24) & (STRING_CHUNK_SIZE - 1)), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(long ref, String value) {
+        if (ref == NULL_REF || value == null) {
+            return ref == NULL_REF && value == null;
+        }
+        return bytesEqual(ref, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean bytesEqual(long ref, byte[] bytes) {
+        int length = (int) (ref & MAX_STRING_BYTES);
+        if (length != bytes.length) {
+            return false;
+        }
+        ByteBuffer chunk = stringChunks[(int) (ref >>> 44)];
+        int position = (int) ((ref >>> 24) & (STRING_CHUNK_SIZE - 1));
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---- ID索引 ----
+
+    private int find(String id) {
+        AtomicLongArray table = index;
+        int position = probe(table, id);
+        return position < 0 ? -1 : (int) table.get(position) - 1;
+    }
+
+    private int probe(String id) {
+        return probe(index, id);
+    }
+
+    // 返回ID所在的索引位置，不存在时返回-1
+    private int probe(AtomicLongArray table, String id) {
+        int hash = id.hashCode();
+        int mask = table.length() - 1;
+        byte[] bytes = null;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            long entry = table.get(i);
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry != TOMBSTONE && (int) (entry >>> 32) == hash) {
+                if (bytes == null) {
+                    bytes = id.getBytes(StandardCharsets.UTF_8);
+                }
+                int slot = (int) entry - 1;
+                if (bytesEqual(chunk(slot).getLong(ID_REF + offset(slot, 8)), bytes)) {
+                    return i;
+                }
+            }
+        }
+    }
+
+    private void insertIndex(int hash, int slot) {
+        if ((indexUsed + 1) * 2 > index.length()) {
+            rehash();
+        }
+        AtomicLongArray table = index;
+        int mask = table.length() - 1;
+        int i = mix(hash) & mask;
+        while (table.get(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        table.set(i, ((long) hash << 32) | (slot + 1L));
+        indexUsed++;
+    }
+
+    // 扩容并清除已删除的条目，新表填好后再发布
+    private void rehash() {
+        AtomicLongArray old = index;
+        int live = 0;
+        for (int i = 0; i < old.length(); i++) {
+            long entry = old.get(i);
+            if (entry != 0 && entry != TOMBSTONE) {
+                live++;
+            }
+        }
+        int capacity = 16;
+        while (capacity < (live + 1) * 4) {
+            capacity <<= 1;
+        }
+        AtomicLongArray table = new AtomicLongArray(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.length(); i++) {
+            long entry = old.get(i);
+            if (entry != 0 && entry != TOMBSTONE) {
+                int j = mix((int) (entry >>> 32)) & mask;
+                while (table.get(j) != 0) {
+                    j = (j + 1) & mask;
+                }
+                table.set(j, entry);
+            }
+        }
+        index = table;
+        indexUsed = live;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 指向一条记录的只读商品视图
+     */
+    private final class ProductView extends Product {
+        private int slot;
+
+        ProductView(int slot) {
+            this.slot = slot;
+        }
+
+        /**
+         * 一次读出全部字段的堆上副本，修改后调用update(副本, 版本号)提交
+         */
+        @Override
+        public Product copy() {
+            return snapshot(slot);
+        }
+
+        @Override
+        public String getId() {
+            return string(slot, ID_REF);
+        }
+
+        @Override
+        public void setId(String id) {
+            throw readOnly();
+        }
+
+        @Override
+        public String getName() {
+            return string(slot, NAME_REF);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public String getCategory() {
+            return string(slot, CATEGORY_REF);
+        }
+
+        @Override
+        public void setCategory(String category) {
+            throw readOnly();
+        }
+
+        @Override
+        public double getPrice() {
+            return Money.toYuan(priceCents(slot));
+        }
+
+        @Override
+        public void setPrice(double price) {
+            throw readOnly();
+        }
+
+        @Override
+        public long getPriceCents() {
+            return priceCents(slot);
+        }
+
+        @Override
+        public void setPriceCents(long priceCents) {
+            throw readOnly();
+        }
+
+        @Override
+        public int getStock() {
+            return stock(slot);
+        }
+
+        @Override
+        public void setStock(int stock) {
+            throw readOnly();
+        }
+
+        @Override
+        public void increaseStock(int amount) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean decreaseStock(int amount) {
+            throw readOnly();
+        }
+
+        @Override
+        public long getVersion() {
+            return version(slot);
+        }
+
+        @Override
+        public void setVersion(long version) {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("堆外商品视图是只读的，请在copy()得到的副本上修改后调用update提交");
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package model.repository;
 
 import model.entity.Order;
+import model.entity.OrderStatus;
+import util.Money;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -8,59 +11,22 @@ import java.util.Map;
 
 /**
  * 订单数据访问实现类 - 使用内存存储
+ * 订单状态在仓库外通过CAS修改，状态变化后需要调用refresh同步索引
  */
-public class OrderRepository implements Repository<Order> {
-    // 使用Map存储订单数据
-    private Map<String, Order> orderMap = new HashMap<>();
-
-    @Override
-    public boolean add(Order order) {
-        if (order == null || order.getOrderId() == null) {
-            return false;
-        }
-        orderMap.put(order.getOrderId(), order);
-        return true;
-    }
-
-    @Override
-    public boolean delete(String id) {
-        if (orderMap.containsKey(id)) {
-            orderMap.remove(id);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public Order findById(String id) {
-        return orderMap.get(id);
-    }
-
-    @Override
-    public List<Order> findAll() {
-        return new ArrayList<>(orderMap.values());
-    }
+public class OrderRepository extends InMemoryRepository<Order> {
+    // 可查询字段
+    public static final Field<Order, OrderStatus> STATUS = Field.of("status", Order::getOrderStatus);
+    public static final Field<Order, String> CUSTOMER = Field.of("customer",
+            order -> order.getCustomer() == null ? null : order.getCustomer().getId());
 
-    @Override
-    public boolean update(Order order) {
-        if (order == null || order.getOrderId() == null) {
-            return false;
-        }
-        if (orderMap.containsKey(order.getOrderId())) {
-            orderMap.put(order.getOrderId(), order);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public int count() {
-        return orderMap.size();
+    public OrderRepository() {
+        addIndex(FieldIndex.hash(STATUS));
+        addIndex(FieldIndex.hash(CUSTOMER));
     }
 
     @Override
-    public boolean exists(String id) {
-        return orderMap.containsKey(id);
+    protected String keyOf(Order order) {
+        return order.getOrderId();
     }
 
     // 特定于订单的查询方法
@@ -69,37 +35,41 @@ public class OrderRepository implements Repository<Order> {
      * 根据客户ID查找订单
      */
     public List<Order> findByCustomerId(String customerId) {
-        List<Order> result = new ArrayList<>();
-        for (Order order : orderMap.values()) {
-            if (order.getCustomer() != null &&
-                    customerId.equals(order.getCustomer().getId())) {
-                result.add(order);
-            }
-        }
-        return result;
+        return query(new Query<Order>().where(Criteria.eq(CUSTOMER, customerId)));
     }
 
     /**
      * 根据状态查找订单
      */
     public List<Order> findByStatus(String status) {
-        List<Order> result = new ArrayList<>();
-        for (Order order : orderMap.values()) {
-            if (status.equals(order.getStatus())) {
-                result.add(order);
-            }
+        return findByStatus(OrderStatus.fromLabel(status));
+    }
+
+    /**
+     * 根据状态枚举查找订单
+     */
+    public List<Order> findByStatus(OrderStatus status) {
+        if (status == null) {
+            return new ArrayList<>();
         }
-        return result;
+        return query(new Query<Order>().where(Criteria.eq(STATUS, status)));
     }
 
     /**
      * 获取各个状态的订单数量统计
      */
     public Map<String, Integer> getStatusStatistics() {
+        // 按状态序号计数，不装箱；只有出现过的状态出现在结果中
+        OrderStatus[] statuses = OrderStatus.values();
+        int[] counts = new int[statuses.length];
+        for (Order order : snapshot().values()) {
+            counts[order.getOrderStatus().ordinal()]++;
+        }
         Map<String, Integer> stats = new HashMap<>();
-        for (Order order : orderMap.values()) {
-            String status = order.getStatus();
-            stats.put(status, stats.getOrDefault(status, 0) + 1);
+        for (int i = 0; i < statuses.length; i++) {
+            if (counts[i] > 0) {
+                stats.put(statuses[i].getLabel(), counts[i]);
+            }
         }
         return stats;
     }
@@ -108,10 +78,10 @@ public class OrderRepository implements Repository<Order> {
      * 获取销售额统计
      */
     public double getTotalSales() {
-        double total = 0;
-        for (Order order : orderMap.values()) {
-            total += order.getTotalAmount();
+        long totalCents = 0;
+        for (Order order : snapshot().values()) {
+            totalCents = Money.add(totalCents, order.getTotalCents());
         }
-        return total;
+        return Money.toYuan(totalCents);
     }
 }
\ No newline at end of file
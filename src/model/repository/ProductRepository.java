@@ -1,67 +1,30 @@
 package model.repository;
 
 import model.entity.Product;
+import util.Money;
+
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 商品数据访问实现类 - 使用内存存储
  * 实现Repository接口，提供具体的商品数据操作
  */
-public class ProductRepository implements Repository<Product> {
-    // 使用Map存储商品数据，key为商品ID
-    private Map<String, Product> productMap = new HashMap<>();
-
-    @Override
-    public boolean add(Product product) {
-        if (product == null || product.getId() == null) {
-            return false;
-        }
-        productMap.put(product.getId(), product);
-        return true;
-    }
-
-    @Override
-    public boolean delete(String id) {
-        if (productMap.containsKey(id)) {
-            productMap.remove(id);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public Product findById(String id) {
-        return productMap.get(id);
-    }
-
-    @Override
-    public List<Product> findAll() {
-        return new ArrayList<>(productMap.values());
-    }
-
-    @Override
-    public boolean update(Product product) {
-        if (product == null || product.getId() == null) {
-            return false;
-        }
-        if (productMap.containsKey(product.getId())) {
-            productMap.put(product.getId(), product);
-            return true;
-        }
-        return false;
-    }
+public class ProductRepository extends InMemoryRepository<Product> {
+    // 可查询字段
+    public static final Field<Product, String> NAME = Field.of("name", Product::getName);
+    public static final Field<Product, String> CATEGORY = Field.of("category", Product::getCategory);
+    public static final Field<Product, Long> PRICE = Field.of("price", Product::getPriceCents);
 
-    @Override
-    public int count() {
-        return productMap.size();
+    public ProductRepository() {
+        addIndex(FieldIndex.hash(CATEGORY));
+        addIndex(FieldIndex.sorted(PRICE));
+        addIndex(new NGramIndex<>(NAME));
     }
 
     @Override
-    public boolean exists(String id) {
-        return productMap.containsKey(id);
+    protected String keyOf(Product product) {
+        return product.getId();
     }
 
     // 特定于商品的查询方法
@@ -70,40 +33,22 @@ public class ProductRepository implements Repository<Product> {
      * 根据分类查找商品
      */
     public List<Product> findByCategory(String category) {
-        List<Product> result = new ArrayList<>();
-        for (Product product : productMap.values()) {
-            if (category.equals(product.getCategory())) {
-                result.add(product);
-            }
-        }
-        return result;
+        return query(new Query<Product>().where(Criteria.eq(CATEGORY, category)));
     }
 
     /**
      * 根据价格范围查找商品
      */
     public List<Product> findByPriceRange(double minPrice, double maxPrice) {
-        List<Product> result = new ArrayList<>();
-        for (Product product : productMap.values()) {
-            double price = product.getPrice();
-            if (price >= minPrice && price <= maxPrice) {
-                result.add(product);
-            }
-        }
-        return result;
+        return query(new Query<Product>().where(
+                Criteria.between(PRICE, Money.ceilYuan(minPrice), Money.floorYuan(maxPrice))));
     }
 
     /**
      * 根据名称关键词搜索商品
      */
     public List<Product> searchByName(String keyword) {
-        List<Product> result = new ArrayList<>();
-        for (Product product : productMap.values()) {
-            if (product.getName().toLowerCase().contains(keyword.toLowerCase())) {
-                result.add(product);
-            }
-        }
-        return result;
+        return query(new Query<Product>().where(Criteria.contains(NAME, keyword)));
     }
 
     /**
@@ -111,7 +56,7 @@ public class ProductRepository implements Repository<Product> {
      */
     public List<String> getAllCategories() {
         List<String> categories = new ArrayList<>();
-        for (Product product : productMap.values()) {
+        for (Product product : snapshot().values()) {
             String category = product.getCategory();
             if (!categories.contains(category)) {
                 categories.add(category);
@@ -125,7 +70,7 @@ public class ProductRepository implements Repository<Product> {
      */
     public List<Product> getLowStockProducts(int threshold) {
         List<Product> result = new ArrayList<>();
-        for (Product product : productMap.values()) {
+        for (Product product : snapshot().values()) {
             if (product.getStock() < threshold) {
                 result.add(product);
             }
@@ -0,0 +1,63 @@
+package model.repository;
+
+import java.util.Comparator;
+
+/**
+ * 查询 - 条件、排序、分页
+ * 通过InMemoryRepository.query执行，计划器会优先使用索引缩小候选范围
+ * @param <T> 实体类型
+ */
+public class Query<T> {
+    private Criteria<T> criteria;
+    private Comparator<? super T> order;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * 设置查询条件，不设置表示全部
+     */
+    public Query<T> where(Criteria<T> criteria) {
+        this.criteria = criteria;
+        return this;
+    }
+
+    public Query<T> orderBy(Comparator<? super T> order) {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * 按字段排序，字段值为null的排在最后
+     */
+    public <V extends Comparable<? super V>> Query<T> orderBy(Field<T, V> field, boolean ascending) {
+        Comparator<V> values = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        this.order = Comparator.comparing(field::get, Comparator.nullsLast(values));
+        return this;
+    }
+
+    public Query<T> offset(int offset) {
+        this.offset = Math.max(0, offset);
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    public Criteria<T> getCriteria() {
+        return criteria;
+    }
+
+    public Comparator<? super T> getOrder() {
+        return order;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,128 @@
+package model.repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 查询计划器 - 根据条件结构选择索引
+ * 单个条件选择估计候选数最少的索引；AND按估计值从小到大依次求交集，候选已经足够少时停止；
+ * OR要求每个分支都能走索引，结果取并集；没有可用索引时返回null，由仓库全表扫描
+ * @param <T> 实体类型
+ */
+class QueryPlanner<T> {
+    // 候选数不超过该值时不再继续求交集，直接逐个判断更快
+    private static final int INTERSECT_CUTOFF = 32;
+
+    private final List<Index<T>> indexes;
+
+    QueryPlanner(List<Index<T>> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * 估计候选数量，无法使用索引时返回-1
+     */
+    int estimate(Criteria<T> criteria) {
+        if (criteria instanceof Criteria.And) {
+            int best = -1;
+            for (Criteria<T> part : ((Criteria.And<T>) criteria).parts) {
+                int estimate = estimate(part);
+                if (estimate >= 0 && (best < 0 || estimate < best)) {
+                    best = estimate;
+                }
+            }
+            return best;
+        }
+        if (criteria instanceof Criteria.Or) {
+            long sum = 0;
+            for (Criteria<T> part : ((Criteria.Or<T>) criteria).parts) {
+                int estimate = estimate(part);
+                if (estimate < 0) {
+                    return -1;
+                }
+                sum += estimate;
+            }
+            return (int) Math.min(sum, Integer.MAX_VALUE);
+        }
+        Index<T> index = bestIndex(criteria);
+        return index == null ? -1 : index.estimate(criteria);
+    }
+
+    /**
+     * 计算候选ID集合，无法使用索引时返回null
+     * @param plan 不为null时追加计划说明
+     */
+    Set<String> candidates(Criteria<T> criteria, StringBuilder plan) {
+        if (criteria instanceof Criteria.And) {
+            List<Criteria<T>> indexed = new ArrayList<>();
+            List<Integer> estimates = new ArrayList<>();
+            for (Criteria<T> part : ((Criteria.And<T>) criteria).parts) {
+                int estimate = estimate(part);
+                if (estimate >= 0) {
+                    int position = 0;
+                    while (position < estimates.size() && estimates.get(position) <= estimate) {
+                        position++;
+                    }
+                    indexed.add(position, part);
+                    estimates.add(position, estimate);
+                }
+            }
+            if (indexed.isEmpty()) {
+                return null;
+            }
+            append(plan, "INTERSECT(");
+            Set<String> result = candidates(indexed.get(0), plan);
+            for (int i = 1; i < indexed.size() && result.size() > INTERSECT_CUTOFF; i++) {
+                append(plan, ", ");
+                result.retainAll(candidates(indexed.get(i), plan));
+            }
+            append(plan, ")");
+            return result;
+        }
+        if (criteria instanceof Criteria.Or) {
+            if (estimate(criteria) < 0) {
+                return null;
+            }
+            append(plan, "UNION(");
+            Set<String> result = new HashSet<>();
+            boolean first = true;
+            for (Criteria<T> part : ((Criteria.Or<T>) criteria).parts) {
+                if (!first) {
+                    append(plan, ", ");
+                }
+                first = false;
+                result.addAll(candidates(part, plan));
+            }
+            append(plan, ")");
+            return result;
+        }
+        Index<T> index = bestIndex(criteria);
+        if (index == null) {
+            return null;
+        }
+        Set<String> result = index.lookup(criteria);
+        append(plan, "INDEX " + index.getField() + " [" + criteria + "] -> " + result.size());
+        return result;
+    }
+
+    private Index<T> bestIndex(Criteria<T> criteria) {
+        Index<T> best = null;
+        int bestEstimate = -1;
+        for (Index<T> index : indexes) {
+            int estimate = index.estimate(criteria);
+            if (estimate >= 0 && (best == null || estimate < bestEstimate)) {
+                best = index;
+                bestEstimate = estimate;
+            }
+        }
+        return best;
+    }
+
+    private static void append(StringBuilder plan, String text) {
+        if (plan != null) {
+            plan.append(text);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package model.repository;
+
+import model.entity.Versioned;
+import util.TinyLfuCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 查询结果缓存 - 按调用方给出的规范化查询键缓存命中实体的ID
+ * 缓存条目记录查询条件涉及的各个索引在查询时的版本号；索引内容变化时版本号加1，
+ * 命中时只要这些版本号都没变，结果集合就不会变化，因此失效是精确的，不依赖过期时间
+ * 只缓存ID，命中时再从仓库取当前的实体，实体的其他字段（如库存）变化不影响缓存
+ * 条件涉及没有索引的字段、自定义条件或指定了排序的查询无法判断何时失效，不缓存，直接执行
+ * @param <T> 实体类型
+ */
+public class QueryResultCache<T extends Versioned> {
+
+    private static final class Entry {
+        final Index<?>[] indexes;
+        final long[] versions;
+        final String[] ids;
+
+        Entry(Index<?>[] indexes, long[] versions, String[] ids) {
+            this.indexes = indexes;
+            this.versions = versions;
+            this.ids = ids;
+        }
+
+        boolean isCurrent() {
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i].getVersion() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final InMemoryRepository<T> repository;
+    private final TinyLfuCache<String, Entry> cache;
+    // 底层缓存把过期条目也算作命中，这里单独统计结果是否可用
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public QueryResultCache(InMemoryRepository<T> repository, int maximumSize) {
+        this.repository = repository;
+        this.cache = new TinyLfuCache<>(maximumSize);
+    }
+
+    /**
+     * 执行查询，结果未变化时直接返回缓存的结果
+     * @param key 规范化后的查询参数，相同的键必须对应相同的查询
+     */
+    public List<T> query(String key, Query<T> query) {
+        Index<?>[] indexes = dependencies(query);
+        if (indexes == null) {
+            return repository.query(query);
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.isCurrent()) {
+            List<T> result = resolve(entry, query.getCriteria());
+            if (result != null) {
+                hits.increment();
+                return result;
+            }
+        }
+        misses.increment();
+
+        // 先记下版本号再查询；仓库先写入实体再更新索引的版本号，
+        // 版本号未变说明之前的写入都已能读到，查询期间发生的变更会使这个条目在下次读取时失效
+        long[] versions = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            versions[i] = indexes[i].getVersion();
+        }
+        List<T> result = repository.query(query);
+        String[] ids = new String[result.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = repository.keyOf(result.get(i));
+        }
+        cache.put(key, new Entry(indexes, versions, ids));
+        return result;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public TinyLfuCache.Stats stats() {
+        long missCount = misses.sum();
+        return new TinyLfuCache.Stats(hits.sum(), missCount, missCount, cache.stats().getEvictionCount());
+    }
+
+    // 按ID取当前实体，取完后版本号仍未变才可用；
+    // 实体已写入但索引还未更新的间隙中版本号不变，因此再按条件核对一次，与直接查询的结果保持一致
+    private List<T> resolve(Entry entry, Criteria<T> criteria) {
+        List<T> result = new ArrayList<>(entry.ids.length);
+        for (String id : entry.ids) {
+            T item = repository.findById(id);
+            if (item == null || !criteria.test(item)) {
+                return null;
+            }
+            result.add(item);
+        }
+        return entry.isCurrent() ? result : null;
+    }
+
+    // 查询条件依赖的索引，无法精确判断失效时返回null
+    private Index<?>[] dependencies(Query<T> query) {
+        if (query.getCriteria() == null || query.getOrder() != null) {
+            return null;
+        }
+        Set<Index<?>> indexes = new LinkedHashSet<>();
+        return collect(query.getCriteria(), indexes) ? indexes.toArray(new Index<?>[0]) : null;
+    }
+
+    private boolean collect(Criteria<T> criteria, Set<Index<?>> out) {
+        if (criteria instanceof Criteria.And || criteria instanceof Criteria.Or) {
+            List<Criteria<T>> parts = criteria instanceof Criteria.And ?
+                    ((Criteria.And<T>) criteria).parts : ((Criteria.Or<T>) criteria).parts;
+            for (Criteria<T> part : parts) {
+                if (!collect(part, out)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Field<T, ?> field;
+        if (criteria instanceof Criteria.Eq) {
+            Criteria.Eq<T, ?> eq = (Criteria.Eq<T, ?>) criteria;
+            // 索引不记录null值，值为null的实体增加时版本号不变
+            if (eq.value == null) {
+                return false;
+            }
+            field = eq.field;
+        } else if (criteria instanceof Criteria.Between) {
+            field = ((Criteria.Between<T, ?>) criteria).field;
+        } else if (criteria instanceof Criteria.Contains) {
+            field = ((Criteria.Contains<T>) criteria).field;
+        } else {
+            return false;
+        }
+        for (Index<T> index : repository.getIndexes()) {
+            if (index.getField().equals(field)) {
+                out.add(index);
+                return true;
+            }
+        }
+        return false;
+    }
+}
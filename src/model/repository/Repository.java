@@ -23,6 +23,9 @@ public interface Repository<T> {
     // 更新数据
     boolean update(T item);
 
+    // 乐观并发更新：仅当当前版本号等于expectedVersion时更新，否则返回false
+    boolean update(T item, long expectedVersion);
+
     // 获取数据数量
     int count();
 
@@ -2,65 +2,15 @@ package model.repository;
 
 import model.entity.User;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 用户数据访问实现类 - 使用内存存储
  */
-public class UserRepository implements Repository<User> {
-    // 使用Map存储用户数据
-    private Map<String, User> userMap = new HashMap<>();
-
-    @Override
-    public boolean add(User user) {
-        if (user == null || user.getId() == null) {
-            return false;
-        }
-        userMap.put(user.getId(), user);
-        return true;
-    }
-
-    @Override
-    public boolean delete(String id) {
-        if (userMap.containsKey(id)) {
-            userMap.remove(id);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public User findById(String id) {
-        return userMap.get(id);
-    }
-
-    @Override
-    public List<User> findAll() {
-        return new ArrayList<>(userMap.values());
-    }
-
-    @Override
-    public boolean update(User user) {
-        if (user == null || user.getId() == null) {
-            return false;
-        }
-        if (userMap.containsKey(user.getId())) {
-            userMap.put(user.getId(), user);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public int count() {
-        return userMap.size();
-    }
-
+public class UserRepository extends InMemoryRepository<User> {
     @Override
-    public boolean exists(String id) {
-        return userMap.containsKey(id);
+    protected String keyOf(User user) {
+        return user.getId();
     }
 
     // 特定于用户的查询方法
@@ -69,7 +19,7 @@ public class UserRepository implements Repository<User> {
      * 根据用户名查找用户
      */
     public User findByUsername(String username) {
-        for (User user : userMap.values()) {
+        for (User user : snapshot().values()) {
             if (username.equals(user.getName())) {
                 return user;
             }
@@ -82,7 +32,7 @@ public class UserRepository implements Repository<User> {
      */
     public List<User> findByRole(String role) {
         List<User> result = new ArrayList<>();
-        for (User user : userMap.values()) {
+        for (User user : snapshot().values()) {
             if (role.equals(user.getRole())) {
                 result.add(user);
             }
@@ -0,0 +1,97 @@
+package model.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量状态流转结果
+ * 按订单顺序用一个字节记录每个订单的处理结果，避免为每个订单创建结果对象
+ */
+public class BulkTransitionResult {
+
+    /**
+     * 单个订单的处理结果
+     */
+    public enum Outcome {
+        SUCCESS,            // 流转成功
+        NOT_FOUND,          // 订单不存在
+        ILLEGAL_TRANSITION, // 当前状态不允许流转到目标状态
+        CONFLICT,           // 订单状态已被并发修改
+        SKIPPED,            // 不满足筛选条件
+        FAILED              // 其他错误
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final String[] orderIds;
+    private final byte[] outcomes;
+
+    BulkTransitionResult(String[] orderIds) {
+        this.orderIds = orderIds;
+        this.outcomes = new byte[orderIds.length];
+    }
+
+    // 由各个子任务写入各自区间，互不重叠
+    void set(int index, Outcome outcome) {
+        outcomes[index] = (byte) outcome.ordinal();
+    }
+
+    /**
+     * 处理的订单总数
+     */
+    public int size() {
+        return orderIds.length;
+    }
+
+    public String getOrderId(int index) {
+        return orderIds[index];
+    }
+
+    public Outcome getOutcome(int index) {
+        return OUTCOMES[outcomes[index]];
+    }
+
+    /**
+     * 指定结果的订单数量
+     */
+    public int count(Outcome outcome) {
+        int count = 0;
+        byte code = (byte) outcome.ordinal();
+        for (byte b : outcomes) {
+            if (b == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getSuccessCount() {
+        return count(Outcome.SUCCESS);
+    }
+
+    /**
+     * 指定结果的订单ID列表
+     */
+    public List<String> getOrderIds(Outcome outcome) {
+        List<String> result = new ArrayList<>();
+        byte code = (byte) outcome.ordinal();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == code) {
+                result.add(orderIds[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("批量流转结果: 共").append(size()).append("个订单");
+        for (Outcome outcome : OUTCOMES) {
+            int count = count(outcome);
+            if (count > 0) {
+                sb.append(", ").append(outcome).append('=').append(count);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package model.service;
+
+import java.util.Date;
+
+/**
+ * 客户消费汇总 - 累计消费金额、订单数和最近下单时间
+ * 不可变对象，每次变化生成新的实例
+ */
+public class CustomerSpend {
+    private final String customerId;
+    private final String customerName;
+    private final long spentCents;      // 累计消费（分）
+    private final int orderCount;       // 有效订单数
+    private final long lastOrderTime;   // 最近下单时间
+
+    public CustomerSpend(String customerId, String customerName, long spentCents,
+                         int orderCount, long lastOrderTime) {
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.spentCents = spentCents;
+        this.orderCount = orderCount;
+        this.lastOrderTime = lastOrderTime;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public long getSpentCents() {
+        return spentCents;
+    }
+
+    public double getTotalSpent() {
+        return spentCents / 100.0;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public Date getLastOrderTime() {
+        return lastOrderTime == 0 ? null : new Date(lastOrderTime);
+    }
+
+    public long getLastOrderMillis() {
+        return lastOrderTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("客户ID: %s, 姓名: %s, 累计消费: %.2f, 订单数: %d",
+                customerId, customerName, getTotalSpent(), orderCount);
+    }
+}
@@ -0,0 +1,144 @@
+package model.service;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderStatus;
+import util.Money;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 客户消费汇总表
+ * 以客户ID为键，在订单创建时累加消费金额和订单数、订单取消时扣回
+ * 同时维护按消费金额排序的排行和各消费区间的客户数，查询前N名客户和区间分布都不需要扫描订单
+ */
+public class CustomerSpendTracker implements OrderStatusListener {
+    // 默认消费区间下限（分）：0、1000元、5000元、2万元、10万元
+    private static final long[] DEFAULT_BANDS = {0L, 100_000L, 500_000L, 2_000_000L, 10_000_000L};
+
+    private final Map<String, CustomerSpend> spends = new HashMap<>();
+    // 按消费金额从高到低排序，金额相同按客户ID排序
+    private final TreeSet<CustomerSpend> ranking = new TreeSet<>((a, b) -> {
+        int bySpent = Long.compare(b.getSpentCents(), a.getSpentCents());
+        return bySpent != 0 ? bySpent : a.getCustomerId().compareTo(b.getCustomerId());
+    });
+    private final long[] bandLowerBounds;
+    private final int[] bandCounts;
+
+    public CustomerSpendTracker() {
+        this(DEFAULT_BANDS);
+    }
+
+    /**
+     * @param bandLowerBounds 各消费区间的下限（分），必须从0开始递增
+     */
+    public CustomerSpendTracker(long[] bandLowerBounds) {
+        if (bandLowerBounds.length == 0 || bandLowerBounds[0] != 0) {
+            throw new IllegalArgumentException("消费区间必须从0开始");
+        }
+        for (int i = 1; i < bandLowerBounds.length; i++) {
+            if (bandLowerBounds[i] <= bandLowerBounds[i - 1]) {
+                throw new IllegalArgumentException("消费区间下限必须递增");
+            }
+        }
+        this.bandLowerBounds = bandLowerBounds.clone();
+        this.bandCounts = new int[bandLowerBounds.length];
+    }
+
+    @Override
+    public void onTransition(Order order, OrderStatus from, OrderStatus to) {
+        Customer customer = order.getCustomer();
+        if (customer == null || customer.getId() == null) {
+            return;
+        }
+        long amountCents = order.getTotalCents();
+        if (!Money.isValid(amountCents)) {
+            return;
+        }
+        if (from == null) {
+            long time = order.getCreateTime() != null ?
+                    order.getCreateTime().getTime() : System.currentTimeMillis();
+            apply(customer, amountCents, 1, time);
+        } else if (to == OrderStatus.CANCELLED) {
+            apply(customer, -amountCents, -1, 0);
+        }
+    }
+
+    /**
+     * 获取客户的消费汇总，没有订单时返回null
+     */
+    public synchronized CustomerSpend get(String customerId) {
+        return spends.get(customerId);
+    }
+
+    /**
+     * 消费金额最高的前n名客户
+     */
+    public synchronized List<CustomerSpend> getTopCustomers(int n) {
+        List<CustomerSpend> result = new ArrayList<>(Math.min(n, ranking.size()));
+        for (CustomerSpend spend : ranking) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(spend);
+        }
+        return result;
+    }
+
+    /**
+     * 各消费区间的客户数，键为区间描述
+     */
+    public synchronized Map<String, Integer> getSpendBandCounts() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < bandLowerBounds.length; i++) {
+            String label = i + 1 < bandLowerBounds.length ?
+                    String.format("%.0f-%.0f", bandLowerBounds[i] / 100.0, bandLowerBounds[i + 1] / 100.0) :
+                    String.format("%.0f以上", bandLowerBounds[i] / 100.0);
+            result.put(label, bandCounts[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 当前有消费记录的客户数
+     */
+    public synchronized int getCustomerCount() {
+        return spends.size();
+    }
+
+    private synchronized void apply(Customer customer, long deltaCents, int deltaOrders, long orderTime) {
+        String customerId = customer.getId();
+        CustomerSpend old = spends.get(customerId);
+        long spent = deltaCents;
+        int orders = deltaOrders;
+        long lastOrder = orderTime;
+        if (old != null) {
+            ranking.remove(old);
+            bandCounts[bandOf(old.getSpentCents())]--;
+            spent += old.getSpentCents();
+            orders += old.getOrderCount();
+            lastOrder = Math.max(lastOrder, old.getLastOrderMillis());
+        }
+        String name = customer.getName() != null ? customer.getName() :
+                (old != null ? old.getCustomerName() : null);
+        CustomerSpend updated = new CustomerSpend(customerId, name, Math.max(0, spent),
+                Math.max(0, orders), lastOrder);
+        spends.put(customerId, updated);
+        ranking.add(updated);
+        bandCounts[bandOf(updated.getSpentCents())]++;
+    }
+
+    // 消费金额所在的区间下标
+    private int bandOf(long spentCents) {
+        int band = 0;
+        while (band + 1 < bandLowerBounds.length && spentCents >= bandLowerBounds[band + 1]) {
+            band++;
+        }
+        return band;
+    }
+}
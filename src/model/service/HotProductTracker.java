@@ -0,0 +1,88 @@
+package model.service;
+
+import model.entity.Order;
+import model.entity.OrderLines;
+import model.entity.OrderStatus;
+import util.ObjectLongHashMap;
+import util.SortedView;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 热销商品跟踪器
+ * 在订单创建时累加商品销量、订单取消时扣回，同时维护按销量排序的有序视图
+ * 查询前K个热销商品只需取有序视图的第一页，不再扫描全部订单
+ */
+public class HotProductTracker implements OrderStatusListener {
+    // 按销量从高到低排序，销量相同按商品ID排序
+    private final SortedView<Rank, Long> ranking =
+            new SortedView<>(rank -> rank.quantity, Comparator.reverseOrder());
+
+    @Override
+    public void onTransition(Order order, OrderStatus from, OrderStatus to) {
+        if (from == null) {
+            apply(order, 1);
+        } else if (to == OrderStatus.CANCELLED) {
+            apply(order, -1);
+        }
+    }
+
+    /**
+     * 获取商品当前的有效销量（不含已取消订单）
+     */
+    public synchronized long getSoldQuantity(String productId) {
+        Rank rank = ranking.get(productId);
+        return rank == null ? 0 : rank.quantity;
+    }
+
+    /**
+     * 按销量从高到低返回最多limit个满足条件的商品ID
+     */
+    public synchronized List<String> getTopProductIds(int limit, Predicate<String> include) {
+        List<Rank> top = ranking.page(0, limit, false,
+                include == null ? null : rank -> include.test(rank.productId));
+        List<String> result = new ArrayList<>(top.size());
+        for (Rank rank : top) {
+            result.add(rank.productId);
+        }
+        return result;
+    }
+
+    // 按订单项调整销量，sign为1表示下单，-1表示取消
+    // 同一商品的多行先合并，每个商品在有序视图中只调整一次
+    private synchronized void apply(Order order, int sign) {
+        OrderLines lines = order.getLines();
+        if (lines.size() == 1) {
+            adjust(lines.getProductId(0), (long) sign * lines.getQuantity(0));
+            return;
+        }
+        ObjectLongHashMap<String> deltas = new ObjectLongHashMap<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            deltas.addTo(lines.getProductId(i), (long) sign * lines.getQuantity(i));
+        }
+        deltas.forEach(this::adjust);
+    }
+
+    private void adjust(String productId, long delta) {
+        if (productId == null || delta == 0) {
+            return;
+        }
+        Rank old = ranking.get(productId);
+        long quantity = (old == null ? 0 : old.quantity) + delta;
+        ranking.put(productId, quantity > 0 ? new Rank(productId, quantity) : null);
+    }
+
+    // 排名项，创建后不再修改
+    private static final class Rank {
+        private final String productId;
+        private final long quantity;
+
+        Rank(String productId, long quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+    }
+}
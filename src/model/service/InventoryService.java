@@ -2,13 +2,25 @@ package model.service;
 
 import model.entity.Inventory;
 import model.entity.Product;
+import model.repository.CachingRepository;
 import model.repository.InventoryRepository;
+import model.repository.ProductRepository;
 import exception.ValidationException;
 import exception.BusinessException;
+import exception.OptimisticLockException;
+import util.SortedView;
+import util.StripedStockCounter;
+import util.TinyLfuCache;
 import util.ValidationUtil;
+import util.Validator;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
 
 /**
  * 库存业务逻辑服务类
@@ -17,8 +29,48 @@ public class InventoryService implements InventoryServiceInterface {
     private InventoryRepository inventoryRepository;
     private static InventoryService instance;
 
+    // 热点商品的分段库存计数器，开启热点模式后以计数器为准
+    private final Map<String, StripedStockCounter> hotSkuCounters = new ConcurrentHashMap<>();
+
+    // 按库存数量排序的有序视图，随库存记录增删改同步更新
+    private final SortedView<Inventory, Integer> inventoryByQuantity;
+
+    // 按商品ID读取库存记录的缓存
+    private static final int INVENTORY_CACHE_SIZE = 10_000;
+    private final CachingRepository<Inventory> inventoryCache;
+
+    // 库存模式锁：普通模式下的库存变更持有读锁，开启、关闭热点模式持有写锁，按商品ID分段
+    private static final int MODE_LOCK_STRIPES = 64;
+    private final ReentrantReadWriteLock[] modeLocks = new ReentrantReadWriteLock[MODE_LOCK_STRIPES];
+
+    // 乐观更新冲突时的最大重试次数
+    private static final int MAX_UPDATE_RETRIES = 16;
+
+    // 库存数据验证规则
+    private static final Validator<Inventory> INVENTORY_VALIDATOR = Validator.<Inventory>builder("库存不能为空")
+            .field()
+            .notBlank(Inventory::getProductId, "商品ID不能为空")
+            .length(Inventory::getProductId, 3, 50, "商品ID长度必须在3-50个字符之间")
+            .field()
+            .range(Inventory::getQuantity, 0, Integer.MAX_VALUE, "库存数量不能为负数")
+            .field()
+            .range(Inventory::getMinThreshold, 0, Integer.MAX_VALUE, "最小库存阈值不能为负数")
+            .field()
+            .range(Inventory::getMaxCapacity, 1, Integer.MAX_VALUE, "最大库存容量必须大于0")
+            .rule(inventory -> inventory.getMaxCapacity() > inventory.getMinThreshold(), "最大库存容量必须大于最小阈值")
+            .field()
+            .rule(inventory -> inventory.getQuantity() <= inventory.getMaxCapacity(), "库存数量不能超过最大容量")
+            .build();
+
     private InventoryService() {
         this.inventoryRepository = new InventoryRepository();
+        this.inventoryCache = new CachingRepository<>(inventoryRepository, Inventory::getProductId, INVENTORY_CACHE_SIZE);
+        inventoryRepository.addChangeListener(inventoryCache);
+        this.inventoryByQuantity =
+                inventoryRepository.createSortedView(Inventory::getQuantity, Comparator.naturalOrder());
+        for (int i = 0; i < MODE_LOCK_STRIPES; i++) {
+            modeLocks[i] = new ReentrantReadWriteLock();
+        }
     }
 
     public static synchronized InventoryService getInstance() {
@@ -48,36 +100,57 @@ public class InventoryService implements InventoryServiceInterface {
             throw new ValidationException("调整数量必须大于0");
         }
 
-        Inventory inventory = inventoryRepository.findById(productId);
-        if (inventory == null) {
-            throw new ValidationException("库存记录不存在: " + productId);
+        // 持有模式读锁，调整期间热点模式不会开启或关闭
+        Lock lock = modeLock(productId).readLock();
+        lock.lock();
+        try {
+            adjustStock(productId, amount, operation);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // 保存旧的库存数量用于比较
-        int oldQuantity = inventory.getQuantity();
+    // 在副本上修改后按版本号提交，与下单扣减等并发写入冲突时重新读取后重试
+    private void adjustStock(String productId, int amount, String operation)
+            throws ValidationException, BusinessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            Inventory current = inventoryRepository.findById(productId);
+            if (current == null) {
+                throw new ValidationException("库存记录不存在: " + productId);
+            }
 
-        if ("in".equalsIgnoreCase(operation) || "increase".equalsIgnoreCase(operation)) {
-            // 验证入库数量是否超出容量
-            if (inventory.isOverCapacity(amount)) {
-                throw new ValidationException("超出最大库存容量: 当前" + inventory.getQuantity() +
-                        "，最大" + inventory.getMaxCapacity() + "，入库" + amount);
+            StripedStockCounter counter = hotSkuCounters.get(productId);
+            if (counter != null) {
+                adjustHotStock(current, counter, amount, operation);
+                return;
             }
-            inventory.increase(amount);
-        } else if ("out".equalsIgnoreCase(operation) || "decrease".equalsIgnoreCase(operation)) {
-            // 验证出库数量是否充足
-            if (!ValidationUtil.isNonNegativeNumber(inventory.getQuantity() - amount)) {
-                throw new BusinessException("库存不足: 当前" + inventory.getQuantity() + "，需要" + amount);
+
+            Inventory updated = current.copy();
+            if ("in".equalsIgnoreCase(operation) || "increase".equalsIgnoreCase(operation)) {
+                // 验证入库数量是否超出容量
+                if (current.isOverCapacity(amount)) {
+                    throw new ValidationException("超出最大库存容量: 当前" + current.getQuantity() +
+                            "，最大" + current.getMaxCapacity() + "，入库" + amount);
+                }
+                updated.increase(amount);
+            } else if ("out".equalsIgnoreCase(operation) || "decrease".equalsIgnoreCase(operation)) {
+                // 验证出库数量是否充足
+                if (!ValidationUtil.isNonNegativeNumber(current.getQuantity() - amount)) {
+                    throw new BusinessException("库存不足: 当前" + current.getQuantity() + "，需要" + amount);
+                }
+                updated.decrease(amount);
+            } else {
+                throw new ValidationException("不支持的操作类型: " + operation);
             }
-            inventory.decrease(amount);
-        } else {
-            throw new ValidationException("不支持的操作类型: " + operation);
-        }
 
-        boolean success = inventoryRepository.update(inventory);
-        if (!success) {
-            throw new ValidationException("调整库存失败");
+            if (inventoryRepository.update(updated, current.getVersion())) {
+                // 按差值同步，并发调整的同步先后顺序不影响结果
+                int delta = updated.getQuantity() - current.getQuantity();
+                updateProductStock(productId, stock -> Math.max(0, stock + delta));
+                return;
+            }
         }
-        syncProductStock(productId, inventory.getQuantity());
+        throw new OptimisticLockException("库存更新冲突，请重试: " + productId);
     }
 
     /**
@@ -151,10 +224,33 @@ public class InventoryService implements InventoryServiceInterface {
     public void updateInventory(Inventory inventory) throws ValidationException {
         validateInventory(inventory);
 
+        Lock lock = modeLock(inventory.getProductId()).readLock();
+        lock.lock();
+        try {
+            overwriteInventory(inventory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 无条件覆盖库存记录，调用方持有模式读锁
+    private void overwriteInventory(Inventory inventory) throws ValidationException {
         if (!inventoryRepository.exists(inventory.getProductId())) {
             throw new ValidationException("库存记录不存在: " + inventory.getProductId());
         }
 
+        // 热点商品：把新数量与计数器总量的差值记到计数器上
+        StripedStockCounter counter = hotSkuCounters.get(inventory.getProductId());
+        if (counter != null) {
+            int delta = inventory.getQuantity() - counter.sum();
+            if (delta > 0) {
+                counter.increment(delta);
+            } else if (delta < 0 && !counter.tryDecrement(-delta)) {
+                throw new ValidationException("库存已被并发扣减，无法更新为: " + inventory.getQuantity());
+            }
+            inventory.setQuantity(counter.sum());
+        }
+
         boolean success = inventoryRepository.update(inventory);
         if (!success) {
             throw new ValidationException("更新库存失败");
@@ -164,6 +260,39 @@ public class InventoryService implements InventoryServiceInterface {
         syncProductStock(inventory.getProductId(), inventory.getQuantity());
     }
 
+    /**
+     * 按版本号更新库存 - 乐观并发控制
+     * 期间库存记录被其他操作修改过则抛出OptimisticLockException，调用方可重新读取后重试
+     */
+    @Override
+    public void updateInventory(Inventory inventory, long expectedVersion)
+            throws ValidationException, BusinessException {
+        validateInventory(inventory);
+
+        if (!inventoryRepository.exists(inventory.getProductId())) {
+            throw new ValidationException("库存记录不存在: " + inventory.getProductId());
+        }
+
+        Lock lock = modeLock(inventory.getProductId()).readLock();
+        lock.lock();
+        try {
+            // 热点商品以分段计数器为准，不参与版本比较
+            if (isHotSku(inventory.getProductId())) {
+                overwriteInventory(inventory);
+                return;
+            }
+
+            if (!inventoryRepository.update(inventory, expectedVersion)) {
+                throw new OptimisticLockException("库存记录已被其他操作修改: " + inventory.getProductId());
+            }
+
+            // 同步更新商品的库存
+            syncProductStock(inventory.getProductId(), inventory.getQuantity());
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * 根据商品ID获取库存
      */
@@ -173,7 +302,7 @@ public class InventoryService implements InventoryServiceInterface {
             throw new ValidationException("商品ID不能为空");
         }
 
-        Inventory inventory = inventoryRepository.findById(productId);
+        Inventory inventory = inventoryCache.findById(productId);
         if (inventory == null) {
             throw new ValidationException("库存记录不存在: " + productId);
         }
@@ -210,117 +339,288 @@ public class InventoryService implements InventoryServiceInterface {
      */
     @Override
     public List<Inventory> getInventorySortedByQuantity(boolean ascending) {
-        List<Inventory> inventoryList = inventoryRepository.findAll();
-
-        // 使用冒泡排序
-        for (int i = 0; i < inventoryList.size() - 1; i++) {
-            for (int j = 0; j < inventoryList.size() - i - 1; j++) {
-                Inventory inv1 = inventoryList.get(j);
-                Inventory inv2 = inventoryList.get(j + 1);
-
-                boolean needSwap = ascending ?
-                        inv1.getQuantity() > inv2.getQuantity() :
-                        inv1.getQuantity() < inv2.getQuantity();
+        return inventoryByQuantity.page(0, Integer.MAX_VALUE, !ascending);
+    }
 
-                if (needSwap) {
-                    inventoryList.set(j, inv2);
-                    inventoryList.set(j + 1, inv1);
-                }
-            }
+    /**
+     * 按库存数量排序分页获取库存记录
+     * @param offset 跳过的记录数
+     * @param limit 每页记录数
+     */
+    @Override
+    public List<Inventory> getInventorySortedByQuantity(boolean ascending, int offset, int limit) {
+        if (!ValidationUtil.isNonNegativeNumber(offset)) {
+            offset = 0;
+        }
+        if (!ValidationUtil.isPositiveNumber(limit)) {
+            limit = 10; // 默认值
         }
+        return inventoryByQuantity.page(offset, limit, !ascending);
+    }
 
-        return inventoryList;
+    /**
+     * 库存缓存的命中统计
+     */
+    public TinyLfuCache.Stats getInventoryCacheStats() {
+        return inventoryCache.getStats();
     }
 
-    // 私有方法：验证库存数据 - 使用ValidationUtil增强验证
+    // 私有方法：验证库存数据，一次报告所有错误
     private void validateInventory(Inventory inventory) throws ValidationException {
-        if (inventory == null) {
-            throw new ValidationException("库存不能为空");
-        }
+        INVENTORY_VALIDATOR.check(inventory);
+    }
 
-        if (!ValidationUtil.isNotBlank(inventory.getProductId())) {
-            throw new ValidationException("商品ID不能为空");
+    /**
+     * 同步更新商品的库存数量
+     * 通过ProductService取得同一个商品仓库，按版本号提交，冲突时重新读取后重试
+     */
+    private void syncProductStock(String productId, int newQuantity) {
+        if (!ValidationUtil.isNonNegativeNumber(newQuantity)) {
+            System.err.println("同步失败: 库存数量无效 - " + newQuantity);
+            return;
         }
+        updateProductStock(productId, stock -> newQuantity);
+    }
 
-        // 验证商品ID长度
-        if (!ValidationUtil.isValidLength(inventory.getProductId(), 3, 50)) {
-            throw new ValidationException("商品ID长度必须在3-50个字符之间");
-        }
+    // 按当前库存计算新库存并按版本号写入商品仓库；商品缓存和视图通过仓库的变更通知同步
+    private void updateProductStock(String productId, IntUnaryOperator newStock) {
+        writeProductStock(productId, newStock, true);
+    }
 
-        // 验证库存数量
-        if (!ValidationUtil.isNonNegativeNumber(inventory.getQuantity())) {
-            throw new ValidationException("库存数量不能为负数");
+    // 按版本号写入商品库存，冲突时重新读取后重试；verbose为false时不输出日志（热点商品每次扣减都会回写）
+    private void writeProductStock(String productId, IntUnaryOperator newStock, boolean verbose) {
+        ProductRepository productRepository = ProductService.getInstance().getProductRepository();
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            Product current = productRepository.findById(productId);
+            if (current == null) {
+                if (verbose) {
+                    System.err.println("同步失败: 商品不存在 - " + productId);
+                }
+                return;
+            }
+            int stock = newStock.applyAsInt(current.getStock());
+            if (current.getStock() == stock) {
+                return;
+            }
+            Product updated = current.copy();
+            updated.setStock(stock);
+            if (productRepository.update(updated, current.getVersion())) {
+                if (verbose) {
+                    System.out.println("成功同步商品库存: " + productId + " -> " + stock);
+                }
+                return;
+            }
         }
+        System.err.println("同步商品库存失败: " + productId + " - 版本冲突重试次数过多");
+    }
 
-        if (!ValidationUtil.isNonNegativeNumber(inventory.getMinThreshold())) {
-            throw new ValidationException("最小库存阈值不能为负数");
-        }
+    @Override
+    public boolean needsWarning(String productId) throws ValidationException {
+        Inventory inventory = getInventoryByProductId(productId);
+        return inventory.needsWarning();
+    }
 
-        if (!ValidationUtil.isPositiveNumber(inventory.getMaxCapacity())) {
-            throw new ValidationException("最大库存容量必须大于0");
+    @Override
+    public int getStockQuantity(String productId) throws ValidationException {
+        Inventory inventory = getInventoryByProductId(productId);
+        StripedStockCounter counter = hotSkuCounters.get(productId);
+        if (counter != null) {
+            return counter.sum();
         }
+        return inventory.getQuantity();
+    }
 
-        if (inventory.getMaxCapacity() <= inventory.getMinThreshold()) {
-            throw new ValidationException("最大库存容量必须大于最小阈值");
+    /**
+     * 开启热点商品模式
+     * 把商品当前库存拆分到stripes个分段中，之后的下单扣减优先在线程本地分段上完成
+     * 持有模式写锁，等进行中的普通模式库存变更都完成后再按库存记录的数量建立计数器
+     */
+    public void enableHotSku(String productId, int stripes) throws ValidationException {
+        if (!ValidationUtil.isPositiveNumber(stripes)) {
+            throw new ValidationException("分段数量必须大于0");
+        }
+        getInventoryByProductId(productId);
+        Lock lock = modeLock(productId).writeLock();
+        lock.lock();
+        try {
+            Inventory inventory = inventoryRepository.findById(productId);
+            if (inventory == null) {
+                throw new ValidationException("库存记录不存在: " + productId);
+            }
+            hotSkuCounters.computeIfAbsent(productId, id -> new StripedStockCounter(stripes, inventory.getQuantity()));
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // 验证库存数量是否超过容量
-        if (inventory.getQuantity() > inventory.getMaxCapacity()) {
-            throw new ValidationException("库存数量不能超过最大容量");
+    /**
+     * 关闭热点模式，把分段库存合并回库存记录
+     * 先关闭计数器再移除：关闭时取走的余量是精确的库存，之后在这个计数器上的扣减、归还都会失败并按普通模式重试
+     */
+    public void disableHotSku(String productId) throws ValidationException {
+        Lock lock = modeLock(productId).writeLock();
+        lock.lock();
+        try {
+            StripedStockCounter counter = hotSkuCounters.get(productId);
+            if (counter == null) {
+                return;
+            }
+            int total = counter.close();
+            hotSkuCounters.remove(productId);
+
+            for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+                Inventory current = inventoryRepository.findById(productId);
+                if (current == null) {
+                    break;
+                }
+                Inventory updated = current.copy();
+                updated.setQuantity(total);
+                if (inventoryRepository.update(updated, current.getVersion())) {
+                    break;
+                }
+            }
+            syncProductStock(productId, total);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // 验证库存数量是否在合理范围内
-        if (!ValidationUtil.isValidInventory(inventory.getQuantity(),
-                inventory.getMinThreshold(), inventory.getMaxCapacity())) {
-            throw new ValidationException("库存数量不在有效范围内");
+    /**
+     * 判断商品是否处于热点模式
+     */
+    public boolean isHotSku(String productId) {
+        return productId != null && hotSkuCounters.containsKey(productId);
+    }
+
+    /**
+     * 普通模式下的库存变更操作
+     */
+    @FunctionalInterface
+    public interface StockAction {
+        void run() throws BusinessException;
+    }
+
+    /**
+     * 按商品当前的库存模式扣减库存
+     * 热点模式下在分段计数器上扣减，不加锁；否则在模式读锁内执行normal，执行期间不会切换模式
+     * @return 热点库存不足时返回false；普通模式的库存不足由normal抛出异常
+     */
+    public boolean reserveStock(String productId, int amount, StockAction normal) throws BusinessException {
+        while (true) {
+            StripedStockCounter counter = hotSkuCounters.get(productId);
+            if (counter != null) {
+                if (counter.tryDecrement(amount)) {
+                    publishHotStock(productId, counter);
+                    return true;
+                }
+                if (!counter.isClosed()) {
+                    return false;
+                }
+                // 计数器已关闭，按新的模式重试
+                continue;
+            }
+            if (runNormal(productId, normal)) {
+                return true;
+            }
         }
     }
 
     /**
-     * 同步更新商品的库存数量
-     * 关键修改：通过ProductService来更新商品库存，确保使用相同的Repository实例
+     * 按商品当前的库存模式归还库存（如取消订单），模式的处理与reserveStock相同
      */
-    private void syncProductStock(String productId, int newQuantity) {
-        try {
-            // 通过ProductService获取商品服务实例
-            ProductService productService = ProductService.getInstance();
-
-            // 获取商品
-            Product product = productService.getProductById(productId);
-            if (product != null) {
-                // 验证新库存数量
-                if (!ValidationUtil.isNonNegativeNumber(newQuantity)) {
-                    System.err.println("同步失败: 库存数量无效 - " + newQuantity);
+    public void releaseStock(String productId, int amount, StockAction normal) throws BusinessException {
+        while (true) {
+            StripedStockCounter counter = hotSkuCounters.get(productId);
+            if (counter != null) {
+                if (counter.increment(amount)) {
+                    publishHotStock(productId, counter);
                     return;
                 }
+                continue;
+            }
+            if (runNormal(productId, normal)) {
+                return;
+            }
+        }
+    }
 
-                // 更新商品库存
-                product.setStock(newQuantity);
-                // 使用ProductService更新商品，确保使用相同的Repository
-                productService.updateProduct(product);
-                System.out.println("成功同步商品库存: " + productId + " -> " + newQuantity);
-            } else {
-                System.err.println("同步失败: 商品不存在 - " + productId);
+    // 在模式读锁内执行普通模式的变更；期间已切换为热点模式时不执行，返回false
+    private boolean runNormal(String productId, StockAction normal) throws BusinessException {
+        Lock lock = modeLock(productId).readLock();
+        lock.lock();
+        try {
+            if (hotSkuCounters.containsKey(productId)) {
+                return false;
             }
+            normal.run();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        } catch (ValidationException e) {
-            System.err.println("同步商品库存失败(验证错误): " + productId + " - " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("同步商品库存失败: " + productId + " - " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * 从热点商品的分段计数器中扣减库存，库存不足时返回false
+     */
+    public boolean tryReserveHotStock(String productId, int amount) throws ValidationException {
+        StripedStockCounter counter = hotSkuCounters.get(productId);
+        if (counter == null) {
+            throw new ValidationException("商品未开启热点模式: " + productId);
+        }
+        if (!counter.tryDecrement(amount)) {
+            if (counter.isClosed()) {
+                throw new ValidationException("商品未开启热点模式: " + productId);
+            }
+            return false;
         }
+        publishHotStock(productId, counter);
+        return true;
     }
 
-    @Override
-    public boolean needsWarning(String productId) throws ValidationException {
-        Inventory inventory = getInventoryByProductId(productId);
-        return inventory.needsWarning();
+    private ReentrantReadWriteLock modeLock(String productId) {
+        return modeLocks[(productId.hashCode() & 0x7fffffff) % MODE_LOCK_STRIPES];
     }
 
-    @Override
-    public int getStockQuantity(String productId) throws ValidationException {
-        Inventory inventory = getInventoryByProductId(productId);
-        return inventory.getQuantity();
+    // 热点商品的入库/出库直接作用在分段计数器上，调用方持有模式读锁，计数器不会被关闭
+    private void adjustHotStock(Inventory inventory, StripedStockCounter counter, int amount, String operation)
+            throws ValidationException, BusinessException {
+        String productId = inventory.getProductId();
+        if ("in".equalsIgnoreCase(operation) || "increase".equalsIgnoreCase(operation)) {
+            if (counter.sum() + amount > inventory.getMaxCapacity()) {
+                throw new ValidationException("超出最大库存容量: 当前" + counter.sum() +
+                        "，最大" + inventory.getMaxCapacity() + "，入库" + amount);
+            }
+            counter.increment(amount);
+        } else if ("out".equalsIgnoreCase(operation) || "decrease".equalsIgnoreCase(operation)) {
+            if (!counter.tryDecrement(amount)) {
+                throw new BusinessException("库存不足: 当前" + counter.sum() + "，需要" + amount);
+            }
+        } else {
+            throw new ValidationException("不支持的操作类型: " + operation);
+        }
+        publishHotStock(productId, counter);
+    }
+
+    // 把计数器总量回写到库存记录和商品上，仅用于展示，不再走完整的更新校验流程
+    // 按版本号提交副本：版本号递增，之前读取的副本再按旧版本提交会失败，不会用过期的库存覆盖计数器的结果；
+    // 总量在读取记录之后再取，并发回写时最后提交成功的一方带的是最新总量
+    private void publishHotStock(String productId, StripedStockCounter counter) {
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            Inventory current = inventoryRepository.findById(productId);
+            if (current == null) {
+                break;
+            }
+            int total = counter.sum();
+            if (current.getQuantity() == total) {
+                break;
+            }
+            Inventory updated = current.copy();
+            updated.setQuantity(total);
+            if (inventoryRepository.update(updated, current.getVersion())) {
+                break;
+            }
+        }
+        writeProductStock(productId, stock -> counter.sum(), false);
     }
 
     @Override
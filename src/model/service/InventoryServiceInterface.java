@@ -13,6 +13,7 @@ public interface InventoryServiceInterface {
     // 库存管理
     void addInventory(Inventory inventory) throws ValidationException;
     void updateInventory(Inventory inventory) throws ValidationException;
+    void updateInventory(Inventory inventory, long expectedVersion) throws ValidationException, BusinessException;
     void adjustInventory(String productId, int amount, String operation)
             throws ValidationException, BusinessException;
     Inventory getInventoryByProductId(String productId) throws ValidationException;
@@ -26,6 +27,7 @@ public interface InventoryServiceInterface {
     // 统计和分析
     Map<String, Object> getInventoryStatistics();
     List<Inventory> getInventorySortedByQuantity(boolean ascending);
+    List<Inventory> getInventorySortedByQuantity(boolean ascending, int offset, int limit);
 
     // 库存验证
     boolean canStockIn(String productId, int amount) throws ValidationException;
@@ -0,0 +1,265 @@
+package model.service;
+
+import model.entity.Order;
+import model.entity.OrderLines;
+import model.entity.Product;
+import model.repository.OrderRepository;
+import model.repository.ProductRepository;
+import util.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * 订单分析引擎 - 用于无法预聚合的临时报表
+ * 把订单切分成多个分片，在ForkJoin线程池中并行执行筛选和分组聚合，再合并各分片的结果
+ */
+public class OrderAnalyticsEngine {
+
+    /**
+     * 分组维度
+     * 按状态、客户分组时每个订单计一次；按商品、分类分组时每个订单项计一次
+     */
+    public enum GroupBy {
+        NONE, STATUS, CUSTOMER, PRODUCT, CATEGORY
+    }
+
+    /**
+     * 分组聚合结果：数量、金额合计、件数合计
+     */
+    public static class Aggregate {
+        private long count;
+        private long amountCents;
+        private long quantity;
+
+        void add(long amountCents, long quantity) {
+            this.count++;
+            this.amountCents += amountCents;
+            this.quantity += quantity;
+        }
+
+        void merge(Aggregate other) {
+            count += other.count;
+            amountCents += other.amountCents;
+            quantity += other.quantity;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getAmount() {
+            return Money.toYuan(amountCents);
+        }
+
+        public long getAmountCents() {
+            return amountCents;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public double getAverageAmount() {
+            return count == 0 ? 0 : Money.toYuan(amountCents) / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("数量: %d, 金额: %.2f, 件数: %d, 平均金额: %.2f",
+                    count, getAmount(), quantity, getAverageAmount());
+        }
+    }
+
+    // 不分组时结果中使用的键
+    public static final String ALL = "全部";
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final ForkJoinPool pool;
+
+    public OrderAnalyticsEngine(OrderRepository orderRepository, ProductRepository productRepository) {
+        this(orderRepository, productRepository, ForkJoinPool.commonPool());
+    }
+
+    public OrderAnalyticsEngine(OrderRepository orderRepository, ProductRepository productRepository,
+                                ForkJoinPool pool) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.pool = pool;
+    }
+
+    /**
+     * 并行筛选并分组聚合
+     * @param filter 订单筛选条件，为null表示全部订单
+     * @param groupBy 分组维度
+     */
+    public Map<String, Aggregate> aggregate(Predicate<Order> filter, GroupBy groupBy) {
+        Order[] orders = snapshot();
+        return pool.invoke(new AggregateTask(orders, filter, groupBy, 0, orders.length,
+                splitThreshold(orders.length)));
+    }
+
+    /**
+     * 并行筛选订单，结果保持订单快照中的顺序
+     */
+    public List<Order> select(Predicate<Order> filter) {
+        Order[] orders = snapshot();
+        if (filter == null) {
+            return new ArrayList<>(Arrays.asList(orders));
+        }
+        return pool.invoke(new SelectTask(orders, filter, 0, orders.length, splitThreshold(orders.length)));
+    }
+
+    private Order[] snapshot() {
+        return orderRepository.snapshot().values().toArray(new Order[0]);
+    }
+
+    // 每个CPU核心大约分到8个分片，分片不小于1024个订单
+    private int splitThreshold(int size) {
+        return Math.max(1024, size / (pool.getParallelism() * 8));
+    }
+
+    // 分组聚合的分片任务
+    private class AggregateTask extends RecursiveTask<Map<String, Aggregate>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Order[] orders;
+        private final Predicate<Order> filter;
+        private final GroupBy groupBy;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        AggregateTask(Order[] orders, Predicate<Order> filter, GroupBy groupBy,
+                      int from, int to, int threshold) {
+            this.orders = orders;
+            this.filter = filter;
+            this.groupBy = groupBy;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Map<String, Aggregate> compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                AggregateTask left = new AggregateTask(orders, filter, groupBy, from, mid, threshold);
+                left.fork();
+                Map<String, Aggregate> right =
+                        new AggregateTask(orders, filter, groupBy, mid, to, threshold).compute();
+                return mergeInto(left.join(), right);
+            }
+
+            Map<String, Aggregate> result = new HashMap<>();
+            // 分片内缓存商品分类，避免重复查询商品仓库
+            Map<String, String> categories = groupBy == GroupBy.CATEGORY ? new HashMap<>() : null;
+            for (int i = from; i < to; i++) {
+                Order order = orders[i];
+                if (filter != null && !filter.test(order)) {
+                    continue;
+                }
+                switch (groupBy) {
+                    case NONE:
+                        group(result, ALL).add(order.getTotalCents(), order.getTotalQuantity());
+                        break;
+                    case STATUS:
+                        group(result, order.getStatus()).add(order.getTotalCents(), order.getTotalQuantity());
+                        break;
+                    case CUSTOMER:
+                        String customerId = order.getCustomer() == null ? null : order.getCustomer().getId();
+                        group(result, customerId).add(order.getTotalCents(), order.getTotalQuantity());
+                        break;
+                    case PRODUCT:
+                        OrderLines productLines = order.getLines();
+                        for (int line = 0; line < productLines.size(); line++) {
+                            group(result, productLines.getProductId(line))
+                                    .add(productLines.getSubtotalCents(line), productLines.getQuantity(line));
+                        }
+                        break;
+                    case CATEGORY:
+                        OrderLines categoryLines = order.getLines();
+                        for (int line = 0; line < categoryLines.size(); line++) {
+                            // 优先使用下单时记录的分类
+                            String category = categoryLines.getCategory(line) != null ? categoryLines.getCategory(line) :
+                                    categories.computeIfAbsent(categoryLines.getProductId(line), this::categoryOf);
+                            group(result, category)
+                                    .add(categoryLines.getSubtotalCents(line), categoryLines.getQuantity(line));
+                        }
+                        break;
+                }
+            }
+            return result;
+        }
+
+        private String categoryOf(String productId) {
+            Product product = productRepository.findById(productId);
+            return product == null ? "未知" : product.getCategory();
+        }
+
+        private Aggregate group(Map<String, Aggregate> result, String key) {
+            return result.computeIfAbsent(key == null ? "未知" : key, k -> new Aggregate());
+        }
+
+        // 把较小的结果合并进较大的结果
+        private Map<String, Aggregate> mergeInto(Map<String, Aggregate> a, Map<String, Aggregate> b) {
+            Map<String, Aggregate> target = a.size() >= b.size() ? a : b;
+            Map<String, Aggregate> source = target == a ? b : a;
+            for (Map.Entry<String, Aggregate> entry : source.entrySet()) {
+                Aggregate existing = target.get(entry.getKey());
+                if (existing == null) {
+                    target.put(entry.getKey(), entry.getValue());
+                } else {
+                    existing.merge(entry.getValue());
+                }
+            }
+            return target;
+        }
+    }
+
+    // 并行筛选的分片任务
+    private static class SelectTask extends RecursiveTask<List<Order>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Order[] orders;
+        private final Predicate<Order> filter;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SelectTask(Order[] orders, Predicate<Order> filter, int from, int to, int threshold) {
+            this.orders = orders;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected List<Order> compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                SelectTask left = new SelectTask(orders, filter, from, mid, threshold);
+                left.fork();
+                List<Order> right = new SelectTask(orders, filter, mid, to, threshold).compute();
+                List<Order> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            List<Order> result = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (filter.test(orders[i])) {
+                    result.add(orders[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -2,15 +2,33 @@ package model.service;
 
 import model.entity.Order;
 import model.entity.OrderItem;
+import model.entity.OrderLines;
+import model.entity.OrderStatus;
 import model.entity.Product;
 import model.entity.Customer;
+import model.repository.Criteria;
 import model.repository.OrderRepository;
 import model.repository.ProductRepository;
+import model.repository.Query;
+import model.repository.Repository;
 import exception.ValidationException;
 import exception.BusinessException;
+import exception.OptimisticLockException;
+import util.IdempotencyCache;
+import util.Money;
+import util.TimerWheel;
 import util.ValidationUtil;
+import util.Validator;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
 
 /**
  * 订单业务逻辑服务类
@@ -21,13 +39,94 @@ public class OrderService implements OrderServiceInterface {
     private ProductRepository productRepository;
     private static OrderService instance;
 
+    // 幂等提交缓存：最多保留1万条提交结果，24小时后过期
+    private static final int IDEMPOTENCY_CACHE_SIZE = 10000;
+    private static final long IDEMPOTENCY_TTL_MILLIS = 24L * 60 * 60 * 1000;
+    private final IdempotencyCache<Order> submissionCache =
+            new IdempotencyCache<>(IDEMPOTENCY_CACHE_SIZE, IDEMPOTENCY_TTL_MILLIS);
+
+    // 按ID读取商品时经过的缓存
+    private final Repository<Product> productLookup;
+
     // 引用InventoryService用于库存同步
     private InventoryService inventoryService;
 
+    // 订单状态流转监听器
+    private final List<OrderStatusListener> statusListeners = new CopyOnWriteArrayList<>();
+
+    // 订单数据验证规则：订单项按列直接读取，不创建订单项视图
+    private static final Validator<Order> ORDER_VALIDATOR = Validator.<Order>builder("订单不能为空")
+            .field()
+            .notBlank(Order::getOrderId, "订单ID不能为空")
+            .length(Order::getOrderId, 3, 50, "订单ID长度必须在3-50个字符之间")
+            .field()
+            .notNull(Order::getCustomer, "订单必须关联客户")
+            .field()
+            .rule(order -> order.getCustomer() == null || ValidationUtil.isNotBlank(order.getCustomer().getId()),
+                    "客户ID不能为空")
+            .field()
+            .rule(order -> order.getCustomer() == null || ValidationUtil.isNotBlank(order.getCustomer().getName()),
+                    "客户姓名不能为空")
+            .field()
+            .rule(order -> !order.getLines().isEmpty(), "订单必须包含商品")
+            .field()
+            .rule(OrderService::allLinesHaveProduct, "商品ID不能为空")
+            .field()
+            .rule(OrderService::allLinesHavePositiveQuantity, "商品数量必须大于0")
+            .build();
+
+    // 乐观更新冲突时的最大重试次数
+    private static final int MAX_UPDATE_RETRIES = 16;
+
+    // 批量状态流转：每个子任务最少处理的订单数
+    private static final int BULK_SPLIT_THRESHOLD = 256;
+    private final ForkJoinPool bulkPool = ForkJoinPool.commonPool();
+
+    // 未付款订单超时自动取消：默认30分钟，时间轮精度1秒
+    private static final long DEFAULT_PAYMENT_TIMEOUT_MILLIS = 30L * 60 * 1000;
+    private static final long PAYMENT_TIMER_TICK_MILLIS = 1000;
+    private volatile long paymentTimeoutMillis = DEFAULT_PAYMENT_TIMEOUT_MILLIS;
+    private final TimerWheel paymentTimer = new TimerWheel(PAYMENT_TIMER_TICK_MILLIS);
+    // 待付款订单的超时任务，付款或取消后撤销
+    private final Map<String, TimerWheel.Timeout> paymentTimeouts = new ConcurrentHashMap<>();
+
+    // 热销商品跟踪器，随订单创建和取消增量维护
+    private final HotProductTracker hotProductTracker = new HotProductTracker();
+
+    // 按时间分桶的销售汇总
+    private final SalesRollup salesRollup = new SalesRollup();
+
+    // 客户消费汇总表
+    private final CustomerSpendTracker customerSpendTracker = new CustomerSpendTracker();
+
+    // 分类 × 状态 × 日期的销售额立方体
+    private final RevenueCube revenueCube = new RevenueCube();
+
+    // 按天的不重复客户数和商品销量估计
+    private final OrderSketches orderSketches;
+
     private OrderService() {
         this.orderRepository = new OrderRepository();
         this.productRepository = ProductService.getInstance().getProductRepository();
+        this.productLookup = ProductService.getInstance().getProductCache();
         this.inventoryService = InventoryService.getInstance();
+        this.orderSketches = new OrderSketches(productId -> {
+            Product product = productLookup.findById(productId);
+            return product == null ? null : product.getCategory();
+        });
+
+        // 订单离开待付款状态时撤销超时任务
+        addStatusListener((order, from, to) -> {
+            if (from == OrderStatus.PENDING) {
+                cancelPaymentTimeout(order.getOrderId());
+            }
+        });
+        addStatusListener(hotProductTracker);
+        addStatusListener(salesRollup);
+        addStatusListener(customerSpendTracker);
+        addStatusListener(orderSketches);
+        addStatusListener(revenueCube);
+        paymentTimer.start();
     }
 
     public static synchronized OrderService getInstance() {
@@ -50,44 +149,49 @@ public class OrderService implements OrderServiceInterface {
             String productId = item.getProductId();
             int quantity = item.getQuantity();
 
-            // 验证商品数量
-            if (!ValidationUtil.isPositiveNumber(quantity)) {
-                throw new ValidationException("商品数量必须大于0: " + productId);
-            }
-
-            // 获取商品信息
-            Product product = productRepository.findById(productId);
+            // 获取商品信息（经过商品缓存）
+            Product product = productLookup.findById(productId);
             if (product == null) {
                 throw new ValidationException("商品不存在: " + productId);
             }
 
-            // 检查库存是否充足
-            if (product.getStock() < quantity) {
+            boolean hotSku = inventoryService.isHotSku(productId);
+
+            // 检查库存是否充足（热点商品在分段计数器上扣减时检查）
+            if (!hotSku && product.getStock() < quantity) {
                 throw new BusinessException("商品库存不足: " + product.getName() +
                         "，需要" + quantity + "，库存" + product.getStock());
             }
 
             // 验证订单项价格
-            if (!ValidationUtil.isPositiveNumber(item.getPrice())) {
+            long priceCents = item.getPriceCents();
+            if (Money.isValid(priceCents) && priceCents <= 0) {
                 throw new ValidationException("商品价格必须大于0: " + product.getName());
             }
 
-            if (!ValidationUtil.isValidPrice(item.getPrice())) {
+            if (!ValidationUtil.isValidPrice(priceCents)) {
                 throw new ValidationException("商品价格格式无效: " + product.getName());
             }
 
-            // 扣减商品库存
-            product.setStock(product.getStock() - quantity);
-            productRepository.update(product);
-
-            syncInventoryDecrease(productId, quantity);
+            // 热点商品从分段计数器扣减；普通商品扣减商品库存并同步库存记录，期间不会切换库存模式
+            boolean reserved = inventoryService.reserveStock(productId, quantity, () -> {
+                deductProductStock(productId, quantity);
+                syncInventoryDecrease(productId, quantity);
+            });
+            if (!reserved) {
+                throw new BusinessException("商品库存不足: " + product.getName() +
+                        "，需要" + quantity + "，库存" + inventoryService.getStockQuantity(productId));
+            }
 
-            // 设置订单项的商品名称和价格（如果未设置）
+            // 设置订单项的商品名称、分类和价格（如果未设置）
             if (item.getProductName() == null) {
                 item.setProductName(product.getName());
             }
-            if (item.getPrice() == 0) {
-                item.setPrice(product.getPrice());
+            if (item.getCategory() == null) {
+                item.setCategory(product.getCategory());
+            }
+            if (item.getPriceCents() == 0) {
+                item.setPriceCents(product.getPriceCents());
             }
         }
 
@@ -95,24 +199,47 @@ public class OrderService implements OrderServiceInterface {
         order.calculateTotalAmount();
 
         // 验证订单总金额
-        if (!ValidationUtil.isPositiveNumber(order.getTotalAmount())) {
+        if (!ValidationUtil.isValidPrice(order.getTotalCents())) {
             throw new ValidationException("订单总金额必须大于0");
         }
 
-        // 更新客户消费总额
+        // 更新客户消费总额（按客户ID的累计消费由CustomerSpendTracker维护）
         if (order.getCustomer() != null) {
             order.getCustomer().addSpent(order.getTotalAmount());
         }
 
-        // 保存订单
-        boolean success = orderRepository.add(order);
-        if (!success) {
-            throw new BusinessException("创建订单失败");
+        // 设置付款截止时间
+        long deadline = System.currentTimeMillis() + paymentTimeoutMillis;
+        order.setPaymentDeadline(new Date(deadline));
+
+        // 保存订单并通知创建事件；订单保存后即可被取消、超时等流转查到，
+        // 保存和通知都在订单的监视器内完成，流转要等创建事件送达监听器后才能进行
+        synchronized (order) {
+            boolean success = orderRepository.add(order);
+            if (!success) {
+                throw new BusinessException("创建订单失败");
+            }
+            fireTransition(order, null, OrderStatus.PENDING);
         }
 
+        schedulePaymentTimeout(order.getOrderId(), deadline);
         return order;
     }
 
+    /**
+     * 幂等创建订单
+     * 客户端超时重试时携带相同的幂等键，重复提交直接返回首次创建的订单，不会重复扣减库存
+     * 幂等键为空时等同于普通创建
+     */
+    @Override
+    public Order createOrder(Order order, String idempotencyKey)
+            throws ValidationException, BusinessException {
+        if (!ValidationUtil.isNotBlank(idempotencyKey)) {
+            return createOrder(order);
+        }
+        return submissionCache.getOrCompute(idempotencyKey, () -> createOrder(order));
+    }
+
     /**
      * 更新订单状态
      */
@@ -132,15 +259,25 @@ public class OrderService implements OrderServiceInterface {
             throw new ValidationException("订单不存在: " + orderId);
         }
 
+        OrderStatus target = OrderStatus.fromLabel(newStatus);
+        if (target == null) {
+            throw new ValidationException("未知的订单状态: " + newStatus);
+        }
+
+        // 取消订单需要恢复库存，统一走取消流程
+        if (target == OrderStatus.CANCELLED) {
+            return cancelOrder(orderId);
+        }
+
         // 验证状态流转是否合法
-        if (!ValidationUtil.isValidStatusTransition(order.getStatus(), newStatus)) {
-            throw new BusinessException("订单状态流转非法: 从" + order.getStatus() + "到" + newStatus);
+        OrderStatus current = order.getOrderStatus();
+        if (!current.canTransitionTo(target)) {
+            throw new BusinessException("订单状态流转非法: 从" + current + "到" + target);
         }
 
-        // 使用订单实体的状态流转方法
-        boolean success = order.changeStatus(newStatus);
-        if (!success) {
-            throw new BusinessException("订单状态流转失败: 从" + order.getStatus() + "到" + newStatus);
+        // 原子状态流转，并发修改时只有一个能成功
+        if (!transition(order, current, target)) {
+            throw new BusinessException("订单状态流转失败: 订单状态已被并发修改为" + order.getStatus());
         }
 
         // 更新订单
@@ -159,8 +296,14 @@ public class OrderService implements OrderServiceInterface {
         }
 
         // 检查订单是否可以取消
-        if (!order.getStatus().equals(Order.STATUS_PENDING)) {
-            throw new BusinessException("只有待付款订单可以取消");
+        OrderStatus current = order.getOrderStatus();
+        if (!current.canTransitionTo(OrderStatus.CANCELLED)) {
+            throw new BusinessException("订单当前状态不可取消: " + current);
+        }
+
+        // 先原子地改为已取消，保证与并发付款只有一个成功，且库存只恢复一次
+        if (!transition(order, current, OrderStatus.CANCELLED)) {
+            throw new BusinessException("取消订单失败: 订单状态已被并发修改为" + order.getStatus());
         }
 
         // 恢复商品库存和库存记录
@@ -168,22 +311,237 @@ public class OrderService implements OrderServiceInterface {
             String productId = item.getProductId();
             int quantity = item.getQuantity();
 
-            Product product = productRepository.findById(productId);
-            if (product != null) {
-                // 恢复商品库存
-                product.setStock(product.getStock() + quantity);
-                productRepository.update(product);
-                syncInventoryIncrease(productId, quantity);
-            }
+            inventoryService.releaseStock(productId, quantity, () -> {
+                if (restoreProductStock(productId, quantity)) {
+                    syncInventoryIncrease(productId, quantity);
+                }
+            });
         }
 
-        // 更新订单状态为已取消
-        order.setStatus(Order.STATUS_CANCELLED);
         orderRepository.update(order);
 
         return true;
     }
 
+    /**
+     * 批量状态流转 - 按订单ID
+     * 订单被分片到ForkJoin线程池并行处理，每个订单单独做原子流转，互不影响
+     * 目标状态为已取消时走取消流程恢复库存
+     */
+    @Override
+    public BulkTransitionResult bulkUpdateStatus(Collection<String> orderIds, OrderStatus target)
+            throws ValidationException {
+        if (orderIds == null) {
+            throw new ValidationException("订单ID列表不能为空");
+        }
+        if (target == null) {
+            throw new ValidationException("目标状态不能为空");
+        }
+        String[] ids = orderIds.toArray(new String[0]);
+        BulkTransitionResult result = new BulkTransitionResult(ids);
+        bulkPool.invoke(new BulkTransitionTask(ids, null, null, target, result, 0, ids.length));
+        return result;
+    }
+
+    /**
+     * 批量状态流转 - 对满足条件的所有订单
+     * 不满足条件的订单在结果中记为SKIPPED
+     */
+    @Override
+    public BulkTransitionResult bulkUpdateStatus(Predicate<Order> filter, OrderStatus target)
+            throws ValidationException {
+        if (filter == null) {
+            throw new ValidationException("筛选条件不能为空");
+        }
+        if (target == null) {
+            throw new ValidationException("目标状态不能为空");
+        }
+        Order[] orders = orderRepository.snapshot().values().toArray(new Order[0]);
+        String[] ids = new String[orders.length];
+        for (int i = 0; i < orders.length; i++) {
+            ids[i] = orders[i].getOrderId();
+        }
+        BulkTransitionResult result = new BulkTransitionResult(ids);
+        bulkPool.invoke(new BulkTransitionTask(ids, orders, filter, target, result, 0, ids.length));
+        return result;
+    }
+
+    /**
+     * 批量状态流转 - 把某个状态的所有订单流转到目标状态（如已付款 → 已发货）
+     */
+    @Override
+    public BulkTransitionResult bulkUpdateStatus(OrderStatus from, OrderStatus target)
+            throws ValidationException {
+        if (from == null) {
+            throw new ValidationException("原状态不能为空");
+        }
+        return bulkUpdateStatus(order -> order.getOrderStatus() == from, target);
+    }
+
+    // 对单个订单执行状态流转
+    private BulkTransitionResult.Outcome applyTransition(Order order, OrderStatus target) {
+        OrderStatus current = order.getOrderStatus();
+        if (!current.canTransitionTo(target)) {
+            return BulkTransitionResult.Outcome.ILLEGAL_TRANSITION;
+        }
+        if (target == OrderStatus.CANCELLED) {
+            try {
+                cancelOrder(order.getOrderId());
+                return BulkTransitionResult.Outcome.SUCCESS;
+            } catch (BusinessException e) {
+                return order.getOrderStatus() != current ?
+                        BulkTransitionResult.Outcome.CONFLICT : BulkTransitionResult.Outcome.FAILED;
+            }
+        }
+        if (!transition(order, current, target)) {
+            return BulkTransitionResult.Outcome.CONFLICT;
+        }
+        orderRepository.update(order);
+        return BulkTransitionResult.Outcome.SUCCESS;
+    }
+
+    // 批量状态流转的分片任务，每个任务只写结果中自己负责的区间
+    private class BulkTransitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] ids;
+        private final Order[] orders;       // 为null时按ID从仓库读取
+        private final Predicate<Order> filter;
+        private final OrderStatus target;
+        private final BulkTransitionResult result;
+        private final int from;
+        private final int to;
+
+        BulkTransitionTask(String[] ids, Order[] orders, Predicate<Order> filter, OrderStatus target,
+                           BulkTransitionResult result, int from, int to) {
+            this.ids = ids;
+            this.orders = orders;
+            this.filter = filter;
+            this.target = target;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BULK_SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BulkTransitionTask(ids, orders, filter, target, result, from, mid),
+                        new BulkTransitionTask(ids, orders, filter, target, result, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                Order order = orders != null ? orders[i] : orderRepository.findById(ids[i]);
+                if (order == null) {
+                    result.set(i, BulkTransitionResult.Outcome.NOT_FOUND);
+                } else if (filter != null && !filter.test(order)) {
+                    result.set(i, BulkTransitionResult.Outcome.SKIPPED);
+                } else {
+                    try {
+                        result.set(i, applyTransition(order, target));
+                    } catch (RuntimeException e) {
+                        result.set(i, BulkTransitionResult.Outcome.FAILED);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置未付款订单的超时时间，只影响之后创建的订单
+     */
+    public void setPaymentTimeout(long timeoutMillis) throws ValidationException {
+        if (timeoutMillis <= 0) {
+            throw new ValidationException("付款超时时间必须大于0");
+        }
+        this.paymentTimeoutMillis = timeoutMillis;
+    }
+
+    public long getPaymentTimeout() {
+        return paymentTimeoutMillis;
+    }
+
+    /**
+     * 待付款的超时任务数量
+     */
+    public int getPendingPaymentTimeoutCount() {
+        return paymentTimeouts.size();
+    }
+
+    private void schedulePaymentTimeout(String orderId, long deadline) {
+        TimerWheel.Timeout timeout = paymentTimer.scheduleAt(() -> expireUnpaidOrder(orderId), deadline);
+        TimerWheel.Timeout previous = paymentTimeouts.put(orderId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void cancelPaymentTimeout(String orderId) {
+        TimerWheel.Timeout timeout = paymentTimeouts.remove(orderId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 付款超时：订单仍为待付款时自动取消并恢复库存
+     */
+    private void expireUnpaidOrder(String orderId) {
+        paymentTimeouts.remove(orderId);
+        Order order = orderRepository.findById(orderId);
+        if (order == null || order.getOrderStatus() != OrderStatus.PENDING) {
+            return;
+        }
+        try {
+            cancelOrder(orderId);
+            System.out.println("订单付款超时，已自动取消: " + orderId);
+        } catch (BusinessException e) {
+            // 与付款并发时付款优先
+            System.out.println("订单超时取消跳过: " + orderId + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 注册订单状态流转监听器
+     */
+    public void addStatusListener(OrderStatusListener listener) {
+        if (listener != null) {
+            statusListeners.add(listener);
+        }
+    }
+
+    /**
+     * 移除订单状态流转监听器
+     */
+    public void removeStatusListener(OrderStatusListener listener) {
+        statusListeners.remove(listener);
+    }
+
+    // 原子状态流转，成功后通知监听器
+    // 在订单的监视器内修改状态并通知，同一订单的事件按发生顺序送达，不会早于创建事件
+    private boolean transition(Order order, OrderStatus from, OrderStatus to) {
+        synchronized (order) {
+            if (!order.transition(from, to)) {
+                return false;
+            }
+            // 状态是在仓库外修改的，同步状态索引
+            orderRepository.refresh(order.getOrderId());
+            fireTransition(order, from, to);
+            return true;
+        }
+    }
+
+    private void fireTransition(Order order, OrderStatus from, OrderStatus to) {
+        for (OrderStatusListener listener : statusListeners) {
+            try {
+                listener.onTransition(order, from, to);
+            } catch (RuntimeException e) {
+                System.err.println("订单状态监听器执行失败: " + order.getOrderId() + " - " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * 根据ID获取订单
      */
@@ -234,63 +592,77 @@ public class OrderService implements OrderServiceInterface {
     }
 
     /**
-     * 搜索订单
+     * 搜索订单 - 由分析引擎并行筛选
      */
     @Override
     public List<Order> searchOrders(String customerId, String status) {
-        List<Order> allOrders = orderRepository.findAll();
-        List<Order> result = new java.util.ArrayList<>();
-
-        for (Order order : allOrders) {
-            boolean match = true;
-
-            if (customerId != null && !customerId.trim().isEmpty()) {
-                if (order.getCustomer() == null ||
-                        !customerId.equals(order.getCustomer().getId())) {
-                    match = false;
-                }
-            }
-
-            if (status != null && !status.trim().isEmpty()) {
-                if (!status.equals(order.getStatus())) {
-                    match = false;
-                }
-            }
-
-            if (match) {
-                result.add(order);
+        List<Criteria<Order>> conditions = new java.util.ArrayList<>();
+        if (customerId != null && !customerId.trim().isEmpty()) {
+            conditions.add(Criteria.eq(OrderRepository.CUSTOMER, customerId));
+        }
+        if (status != null && !status.trim().isEmpty()) {
+            OrderStatus statusFilter = OrderStatus.fromLabel(status);
+            if (statusFilter == null) {
+                return new java.util.ArrayList<>(); // 未知状态没有匹配的订单
             }
+            conditions.add(Criteria.eq(OrderRepository.STATUS, statusFilter));
+        }
+        Query<Order> query = new Query<>();
+        if (!conditions.isEmpty()) {
+            query.where(Criteria.allOf(conditions));
         }
+        return orderRepository.query(query);
+    }
 
-        return result;
+    /**
+     * 按条件查询订单，由查询计划器选择状态、客户索引
+     */
+    @Override
+    public List<Order> queryOrders(Query<Order> query) {
+        return orderRepository.query(query);
     }
 
     /**
-     * 获取订单统计信息
+     * 获取订单统计信息 - 由分析引擎一次并行扫描得到各状态的数量和金额
      */
     @Override
     public java.util.Map<String, Object> getOrderStatistics() {
         java.util.Map<String, Object> stats = new java.util.HashMap<>();
 
-        // 订单数量统计
-        stats.put("totalOrders", orderRepository.count());
-        stats.put("totalSales", orderRepository.getTotalSales());
+        java.util.Map<String, OrderAnalyticsEngine.Aggregate> byStatus =
+                getAnalyticsEngine().aggregate(null, OrderAnalyticsEngine.GroupBy.STATUS);
 
-        // 状态统计
-        java.util.Map<String, Integer> statusStats = orderRepository.getStatusStatistics();
-        stats.putAll(statusStats);
+        long orderCount = 0;
+        long totalCents = 0;
+        for (java.util.Map.Entry<String, OrderAnalyticsEngine.Aggregate> entry : byStatus.entrySet()) {
+            orderCount += entry.getValue().getCount();
+            totalCents += entry.getValue().getAmountCents();
+            // 状态统计
+            stats.put(entry.getKey(), (int) entry.getValue().getCount());
+        }
+
+        // 订单数量统计
+        double totalSales = Money.toYuan(totalCents);
+        stats.put("totalOrders", (int) orderCount);
+        stats.put("totalSales", totalSales);
 
         // 计算平均订单金额
-        int orderCount = orderRepository.count();
-        double avgOrderAmount = orderCount == 0 ? 0 :
-                orderRepository.getTotalSales() / orderCount;
+        double avgOrderAmount = orderCount == 0 ? 0 : totalSales / orderCount;
         stats.put("averageOrderAmount", avgOrderAmount);
 
         return stats;
     }
 
+    /**
+     * 获取订单分析引擎，用于临时的并行报表查询
+     */
+    public OrderAnalyticsEngine getAnalyticsEngine() {
+        return new OrderAnalyticsEngine(orderRepository, productRepository);
+    }
+
     /**
      * 获取热销商品（按销售数量排序）
+     * 销量由HotProductTracker增量维护，已取消的订单不计入；已删除的商品跳过
      */
     @Override
     public java.util.List<model.entity.Product> getHotProducts(int limit) {
@@ -299,136 +671,233 @@ public class OrderService implements OrderServiceInterface {
             limit = 10; // 默认值
         }
 
-        // 统计每个商品的销售数量
-        java.util.Map<String, Integer> salesCount = new java.util.HashMap<>();
-        for (Order order : orderRepository.findAll()) {
-            for (OrderItem item : order.getItems()) {
-                String productId = item.getProductId();
-                int quantity = item.getQuantity();
-                salesCount.put(productId,
-                        salesCount.getOrDefault(productId, 0) + quantity);
-            }
-        }
-
-        // 转换为商品列表并排序
-        java.util.List<model.entity.Product> hotProducts = new java.util.ArrayList<>();
-        for (java.util.Map.Entry<String, Integer> entry : salesCount.entrySet()) {
-            Product product = productRepository.findById(entry.getKey());
+        java.util.List<model.entity.Product> hotProducts = new java.util.ArrayList<>(limit);
+        for (String productId : hotProductTracker.getTopProductIds(limit, productRepository::exists)) {
+            Product product = productRepository.findById(productId);
             if (product != null) {
                 hotProducts.add(product);
             }
         }
+        return hotProducts;
+    }
 
-        // 按销售数量排序（冒泡排序）
-        for (int i = 0; i < hotProducts.size() - 1; i++) {
-            for (int j = 0; j < hotProducts.size() - i - 1; j++) {
-                Product p1 = hotProducts.get(j);
-                Product p2 = hotProducts.get(j + 1);
-                int count1 = salesCount.get(p1.getId());
-                int count2 = salesCount.get(p2.getId());
-
-                if (count1 < count2) {
-                    hotProducts.set(j, p2);
-                    hotProducts.set(j + 1, p1);
-                }
-            }
+    /**
+     * 按时间粒度获取销售趋势，数据来自预聚合的时间桶
+     */
+    @Override
+    public List<SalesBucket> getSalesTrend(SalesRollup.Resolution resolution, Date from, Date to)
+            throws ValidationException {
+        if (resolution == null) {
+            throw new ValidationException("时间粒度不能为空");
         }
-
-        // 限制返回数量
-        if (hotProducts.size() > limit) {
-            return hotProducts.subList(0, limit);
+        if (from == null || to == null || !from.before(to)) {
+            throw new ValidationException("查询时间范围无效");
         }
+        return salesRollup.query(resolution, from.getTime(), to.getTime());
+    }
 
-        return hotProducts;
+    public SalesRollup getSalesRollup() {
+        return salesRollup;
     }
 
-    // 私有方法：验证订单数据 - 使用ValidationUtil增强验证
-    private void validateOrder(Order order) throws ValidationException {
-        if (order == null) {
-            throw new ValidationException("订单不能为空");
+    /**
+     * 获取客户的累计消费汇总，客户没有订单时返回null
+     */
+    @Override
+    public CustomerSpend getCustomerSpend(String customerId) {
+        if (!ValidationUtil.isNotBlank(customerId)) {
+            return null;
         }
+        return customerSpendTracker.get(customerId);
+    }
 
-        if (!ValidationUtil.isNotBlank(order.getOrderId())) {
-            throw new ValidationException("订单ID不能为空");
+    /**
+     * 累计消费最高的前N名客户
+     */
+    @Override
+    public List<CustomerSpend> getTopCustomers(int limit) {
+        if (!ValidationUtil.isPositiveNumber(limit)) {
+            limit = 10; // 默认值
         }
+        return customerSpendTracker.getTopCustomers(limit);
+    }
 
-        // 验证订单ID长度
-        if (!ValidationUtil.isValidLength(order.getOrderId(), 3, 50)) {
-            throw new ValidationException("订单ID长度必须在3-50个字符之间");
-        }
+    /**
+     * 各消费区间的客户数
+     */
+    @Override
+    public Map<String, Integer> getCustomerSpendBands() {
+        return customerSpendTracker.getSpendBandCounts();
+    }
+
+    /**
+     * 按分类、状态、日期汇总销售额，数据来自预聚合的立方体
+     * @param category 只统计该分类，为null表示全部分类
+     * @param status 只统计该状态，为null表示全部状态
+     * @param groupBy 结果按哪些维度分组，不传表示汇总为一行
+     */
+    @Override
+    public Map<RevenueCube.Key, RevenueCube.Cell> getRevenueReport(String category, OrderStatus status,
+                                                                   Date from, Date to,
+                                                                   RevenueCube.Dimension... groupBy)
+            throws ValidationException {
+        if (from == null || to == null || !from.before(to)) {
+            throw new ValidationException("查询时间范围无效");
+        }
+        return revenueCube.rollUp(category, status, from.getTime(), to.getTime(), groupBy);
+    }
 
-        if (order.getCustomer() == null) {
-            throw new ValidationException("订单必须关联客户");
+    public RevenueCube getRevenueCube() {
+        return revenueCube;
+    }
+
+    /**
+     * 估计时间段内下单的不重复客户数，category为null时统计全部分类
+     */
+    @Override
+    public long estimateDistinctCustomers(String category, Date from, Date to) throws ValidationException {
+        if (from == null || to == null || !from.before(to)) {
+            throw new ValidationException("查询时间范围无效");
         }
+        return category == null ?
+                orderSketches.estimateDistinctCustomers(from.getTime(), to.getTime()) :
+                orderSketches.estimateDistinctCustomers(category, from.getTime(), to.getTime());
+    }
 
-        // 验证客户信息
-        if (!ValidationUtil.isNotBlank(order.getCustomer().getId())) {
-            throw new ValidationException("客户ID不能为空");
+    /**
+     * 估计时间段内商品的销售件数（含之后取消的订单）
+     */
+    @Override
+    public long estimateProductUnits(String productId, Date from, Date to) throws ValidationException {
+        if (!ValidationUtil.isNotBlank(productId)) {
+            throw new ValidationException("商品ID不能为空");
         }
+        if (from == null || to == null || !from.before(to)) {
+            throw new ValidationException("查询时间范围无效");
+        }
+        return orderSketches.estimateProductUnits(productId, from.getTime(), to.getTime());
+    }
+
+    public OrderSketches getOrderSketches() {
+        return orderSketches;
+    }
+
+    /**
+     * 获取商品的有效销量（不含已取消订单）
+     */
+    public long getProductSoldQuantity(String productId) {
+        return hotProductTracker.getSoldQuantity(productId);
+    }
 
-        if (!ValidationUtil.isNotBlank(order.getCustomer().getName())) {
-            throw new ValidationException("客户姓名不能为空");
+    // 私有方法：验证订单数据，一次报告所有错误
+    private void validateOrder(Order order) throws ValidationException {
+        ORDER_VALIDATOR.check(order);
+
+        // 检查订单是否已存在
+        if (orderRepository.exists(order.getOrderId())) {
+            throw new ValidationException("订单ID已存在: " + order.getOrderId());
         }
+    }
 
-        if (order.getItems() == null || order.getItems().isEmpty()) {
-            throw new ValidationException("订单必须包含商品");
+    // 每个订单项都有商品ID
+    private static boolean allLinesHaveProduct(Order order) {
+        OrderLines lines = order.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            if (!ValidationUtil.isNotBlank(lines.getProductId(i))) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        // 验证每个订单项
-        for (OrderItem item : order.getItems()) {
-            if (!ValidationUtil.isNotBlank(item.getProductId())) {
-                throw new ValidationException("商品ID不能为空");
+    // 每个订单项的数量都大于0
+    private static boolean allLinesHavePositiveQuantity(Order order) {
+        OrderLines lines = order.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.getQuantity(i) <= 0) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            if (!ValidationUtil.isPositiveNumber(item.getQuantity())) {
-                throw new ValidationException("商品数量必须大于0");
+    /**
+     * 扣减商品库存 - 基于版本号的乐观更新，冲突时重新读取后重试
+     */
+    private void deductProductStock(String productId, int amount) throws BusinessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            Product current = productRepository.findById(productId);
+            if (current == null) {
+                throw new ValidationException("商品不存在: " + productId);
+            }
+            if (current.getStock() < amount) {
+                throw new BusinessException("商品库存不足: " + current.getName() +
+                        "，需要" + amount + "，库存" + current.getStock());
+            }
+            Product updated = current.copy();
+            updated.setStock(current.getStock() - amount);
+            if (productRepository.update(updated, current.getVersion())) {
+                return;
             }
         }
+        throw new OptimisticLockException("商品库存更新冲突，请重试: " + productId);
+    }
 
-        // 检查订单是否已存在
-        if (orderRepository.exists(order.getOrderId())) {
-            throw new ValidationException("订单ID已存在: " + order.getOrderId());
+    /**
+     * 恢复商品库存 - 基于版本号的乐观更新，商品已删除时返回false
+     */
+    private boolean restoreProductStock(String productId, int amount) throws BusinessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            Product current = productRepository.findById(productId);
+            if (current == null) {
+                return false;
+            }
+            Product updated = current.copy();
+            updated.setStock(current.getStock() + amount);
+            if (productRepository.update(updated, current.getVersion())) {
+                return true;
+            }
         }
+        throw new OptimisticLockException("商品库存更新冲突，请重试: " + productId);
     }
 
     /**
      * 同步库存减少 - 新增方法
      */
     private void syncInventoryDecrease(String productId, int amount) {
-        try {
-            // 获取库存记录
-            model.entity.Inventory inventory = inventoryService.getInventoryByProductId(productId);
-            if (inventory != null) {
-                // 扣减库存数量
-                int newQuantity = inventory.getQuantity() - amount;
-                if (newQuantity < 0) {
-                    newQuantity = 0; // 防止负数
-                }
-                inventory.setQuantity(newQuantity);
-                inventoryService.updateInventory(inventory);
-                System.out.println("同步扣减库存: " + productId + " 减少 " + amount + ", 新库存: " + newQuantity);
-            }
-        } catch (Exception e) {
-            System.err.println("同步扣减库存失败: " + productId + " - " + e.getMessage());
-        }
+        syncInventory(productId, -amount);
     }
 
     /**
      * 同步库存增加 - 新增方法
      */
     private void syncInventoryIncrease(String productId, int amount) {
+        syncInventory(productId, amount);
+    }
+
+    // 按差值同步库存记录，版本冲突时重新读取后重试
+    private void syncInventory(String productId, int delta) {
         try {
-            // 获取库存记录
-            model.entity.Inventory inventory = inventoryService.getInventoryByProductId(productId);
-            if (inventory != null) {
-                // 增加库存数量
-                int newQuantity = inventory.getQuantity() + amount;
-                inventory.setQuantity(newQuantity);
-                inventoryService.updateInventory(inventory);
-                System.out.println("同步恢复库存: " + productId + " 增加 " + amount + ", 新库存: " + newQuantity);
+            for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+                // 获取库存记录
+                model.entity.Inventory current = inventoryService.getInventoryByProductId(productId);
+                int newQuantity = current.getQuantity() + delta;
+                if (newQuantity < 0) {
+                    newQuantity = 0; // 防止负数
+                }
+                model.entity.Inventory updated = current.copy();
+                updated.setQuantity(newQuantity);
+                try {
+                    inventoryService.updateInventory(updated, current.getVersion());
+                    System.out.println("同步库存: " + productId + " 变化 " + delta + ", 新库存: " + newQuantity);
+                    return;
+                } catch (OptimisticLockException e) {
+                    // 版本冲突，重试
+                }
             }
+            System.err.println("同步库存失败: " + productId + " - 版本冲突重试次数过多");
         } catch (Exception e) {
-            System.err.println("同步恢复库存失败: " + productId + " - " + e.getMessage());
+            System.err.println("同步库存失败: " + productId + " - " + e.getMessage());
         }
     }
 
@@ -1,10 +1,14 @@
 package model.service;
 
 import model.entity.Order;
+import model.entity.OrderStatus;
+import model.repository.Query;
 import exception.ValidationException;
 import exception.BusinessException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * 订单服务接口 - 供Controller层调用的契约
@@ -12,20 +16,49 @@ import java.util.Map;
 public interface OrderServiceInterface {
     // 订单管理
     Order createOrder(Order order) throws ValidationException, BusinessException;
+    Order createOrder(Order order, String idempotencyKey) throws ValidationException, BusinessException;
     boolean updateOrderStatus(String orderId, String newStatus)
             throws ValidationException, BusinessException;
     boolean cancelOrder(String orderId) throws ValidationException, BusinessException;
     Order getOrderById(String orderId) throws ValidationException;
     List<Order> getAllOrders();
 
+    // 批量状态流转
+    BulkTransitionResult bulkUpdateStatus(Collection<String> orderIds, OrderStatus target)
+            throws ValidationException;
+    BulkTransitionResult bulkUpdateStatus(Predicate<Order> filter, OrderStatus target)
+            throws ValidationException;
+    BulkTransitionResult bulkUpdateStatus(OrderStatus from, OrderStatus target)
+            throws ValidationException;
+
     // 查询和搜索
     List<Order> getOrdersByCustomer(String customerId);
     List<Order> getOrdersByStatus(String status);
     List<Order> searchOrders(String customerId, String status);
+    List<Order> queryOrders(Query<Order> query);
 
     // 统计和分析
     Map<String, Object> getOrderStatistics();
     List<model.entity.Product> getHotProducts(int limit);
+    List<SalesBucket> getSalesTrend(SalesRollup.Resolution resolution, java.util.Date from, java.util.Date to)
+            throws ValidationException;
+
+    // 客户消费统计
+    CustomerSpend getCustomerSpend(String customerId);
+    List<CustomerSpend> getTopCustomers(int limit);
+    Map<String, Integer> getCustomerSpendBands();
+
+    // 分类 × 状态 × 日期销售额
+    Map<RevenueCube.Key, RevenueCube.Cell> getRevenueReport(String category, OrderStatus status,
+                                                            java.util.Date from, java.util.Date to,
+                                                            RevenueCube.Dimension... groupBy)
+            throws ValidationException;
+
+    // 近似统计
+    long estimateDistinctCustomers(String category, java.util.Date from, java.util.Date to)
+            throws ValidationException;
+    long estimateProductUnits(String productId, java.util.Date from, java.util.Date to)
+            throws ValidationException;
 
     // 验证方法
     boolean orderExists(String orderId);
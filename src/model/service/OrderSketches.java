@@ -0,0 +1,259 @@
+package model.service;
+
+import model.entity.Order;
+import model.entity.OrderLines;
+import model.entity.OrderStatus;
+import util.CountMinSketch;
+import util.HashUtil;
+import util.HyperLogLog;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 按天维护的概率统计摘要 - 用固定大小的内存回答长期的近似分析
+ * 每天一个摘要：HyperLogLog估计当天下单的不重复客户数（总体和按分类），Count-Min估计各商品的销售件数
+ * 摘要可以跨天、跨分片合并，查询任意时间段时把相关天的摘要合并后估计
+ * 天摘要保留35天，之后合并进所在自然月的月摘要；月摘要保留36个月后丢弃，内存随时间有上限
+ * 已合并为月摘要的较早数据只能按整月查询：与时间段有重叠的月份，整月的摘要都参与估计
+ * 只统计下单，取消不回退（HyperLogLog不支持删除）
+ */
+public class OrderSketches implements OrderStatusListener {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // HyperLogLog精度11：2KB，误差约2.3%
+    private static final int HLL_PRECISION = 11;
+    // Count-Min 1024x4：32KB，误差约为总件数的0.2%
+    private static final int CMS_WIDTH = 1024;
+    private static final int CMS_DEPTH = 4;
+    // 天摘要的保留期，超过后合并进月摘要
+    private static final long DAY_RETENTION = 35L * DAY_MILLIS;
+    // 月摘要保留的月数
+    private static final int MONTH_RETENTION = 36;
+
+    /**
+     * 一天的摘要
+     */
+    private static class DaySketch {
+        final HyperLogLog customers = new HyperLogLog(HLL_PRECISION);
+        final Map<String, HyperLogLog> customersByCategory = new HashMap<>();
+        final CountMinSketch productUnits = new CountMinSketch(CMS_WIDTH, CMS_DEPTH);
+
+        HyperLogLog category(String category) {
+            return customersByCategory.computeIfAbsent(category, key -> new HyperLogLog(HLL_PRECISION));
+        }
+
+        void merge(DaySketch other) {
+            customers.merge(other.customers);
+            for (Map.Entry<String, HyperLogLog> entry : other.customersByCategory.entrySet()) {
+                category(entry.getKey()).merge(entry.getValue());
+            }
+            productUnits.merge(other.productUnits);
+        }
+    }
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final TreeMap<Long, DaySketch> days = new TreeMap<>();
+    // 按月起点排序的月摘要，结构与天摘要相同
+    private final TreeMap<Long, DaySketch> months = new TreeMap<>();
+    // 根据商品ID查分类，查不到时返回null
+    private final Function<String, String> categoryResolver;
+
+    public OrderSketches(Function<String, String> categoryResolver) {
+        this.categoryResolver = categoryResolver;
+    }
+
+    @Override
+    public void onTransition(Order order, OrderStatus from, OrderStatus to) {
+        if (from == null) {
+            long time = order.getCreateTime() != null ?
+                    order.getCreateTime().getTime() : System.currentTimeMillis();
+            record(order, time);
+        }
+    }
+
+    /**
+     * 记录一笔下单
+     */
+    public void record(Order order, long time) {
+        record(order, time, System.currentTimeMillis());
+    }
+
+    /**
+     * 记录一笔下单，now为当前时间，用于判断保留期
+     */
+    public synchronized void record(Order order, long time, long now) {
+        DaySketch day = sketchFor(time, now);
+        if (day == null) {
+            return;
+        }
+        long customerHash = order.getCustomer() == null ? 0 : HashUtil.hash64(order.getCustomer().getId());
+        if (order.getCustomer() != null) {
+            day.customers.addHash(customerHash);
+        }
+        OrderLines lines = order.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            String productId = lines.getProductId(i);
+            day.productUnits.add(productId, lines.getQuantity(i));
+            String category = lines.getCategory(i) != null ?
+                    lines.getCategory(i) : categoryResolver.apply(productId);
+            if (category != null && order.getCustomer() != null) {
+                day.category(category).addHash(customerHash);
+            }
+        }
+        compact(now);
+    }
+
+    /**
+     * 估计[from, to)时间段内下单的不重复客户数
+     */
+    public synchronized long estimateDistinctCustomers(long from, long to) {
+        HyperLogLog union = new HyperLogLog(HLL_PRECISION);
+        for (DaySketch day : range(from, to)) {
+            union.merge(day.customers);
+        }
+        return union.estimate();
+    }
+
+    /**
+     * 估计[from, to)时间段内购买过某分类商品的不重复客户数
+     */
+    public synchronized long estimateDistinctCustomers(String category, long from, long to) {
+        HyperLogLog union = new HyperLogLog(HLL_PRECISION);
+        for (DaySketch day : range(from, to)) {
+            HyperLogLog sketch = day.customersByCategory.get(category);
+            if (sketch != null) {
+                union.merge(sketch);
+            }
+        }
+        return union.estimate();
+    }
+
+    /**
+     * 估计[from, to)时间段内某商品的销售件数，估计值不小于真实值
+     */
+    public synchronized long estimateProductUnits(String productId, long from, long to) {
+        long hash = HashUtil.hash64(productId);
+        List<DaySketch> range = range(from, to);
+        if (range.size() == 1) {
+            return range.get(0).productUnits.estimateHash(hash);
+        }
+        // 先合并再估计，误差比逐天估计后相加更小
+        CountMinSketch union = new CountMinSketch(CMS_WIDTH, CMS_DEPTH);
+        for (DaySketch day : range) {
+            union.merge(day.productUnits);
+        }
+        return union.estimateHash(hash);
+    }
+
+    /**
+     * 合并另一个分片的摘要
+     */
+    public void merge(OrderSketches other) {
+        if (other == this) {
+            return;
+        }
+        TreeMap<Long, DaySketch> daySnapshot;
+        TreeMap<Long, DaySketch> monthSnapshot;
+        synchronized (other) {
+            daySnapshot = copyOf(other.days);
+            monthSnapshot = copyOf(other.months);
+        }
+        synchronized (this) {
+            for (Map.Entry<Long, DaySketch> entry : monthSnapshot.entrySet()) {
+                months.computeIfAbsent(entry.getKey(), key -> new DaySketch()).merge(entry.getValue());
+            }
+            for (Map.Entry<Long, DaySketch> entry : daySnapshot.entrySet()) {
+                days.computeIfAbsent(entry.getKey(), key -> new DaySketch()).merge(entry.getValue());
+            }
+            compact(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 当前保存的天数
+     */
+    public synchronized int getDayCount() {
+        return days.size();
+    }
+
+    /**
+     * 当前保存的月摘要数
+     */
+    public synchronized int getMonthCount() {
+        return months.size();
+    }
+
+    // [from, to)时间段涉及的摘要：起点落在时间段内的月摘要和天摘要
+    private List<DaySketch> range(long from, long to) {
+        List<DaySketch> result = new ArrayList<>(months.subMap(monthOf(from), true, to, false).values());
+        result.addAll(days.subMap(dayOf(from), true, to, false).values());
+        return result;
+    }
+
+    // 时间点对应的摘要：保留期内记在天摘要，更早的直接记在月摘要，超过月保留期的返回null
+    private DaySketch sketchFor(long time, long now) {
+        if (time >= now - DAY_RETENTION) {
+            return days.computeIfAbsent(dayOf(time), key -> new DaySketch());
+        }
+        long month = monthOf(time);
+        if (month < monthCutoff(now)) {
+            return null;
+        }
+        return months.computeIfAbsent(month, key -> new DaySketch());
+    }
+
+    // 超过保留期的天摘要合并进月摘要，超过保留期的月摘要丢弃
+    private void compact(long now) {
+        long dayCutoff = now - DAY_RETENTION;
+        while (!days.isEmpty() && days.firstKey() < dayCutoff) {
+            Map.Entry<Long, DaySketch> oldest = days.pollFirstEntry();
+            months.computeIfAbsent(monthOf(oldest.getKey()), key -> new DaySketch()).merge(oldest.getValue());
+        }
+        long monthCutoff = monthCutoff(now);
+        while (!months.isEmpty() && months.firstKey() < monthCutoff) {
+            months.pollFirstEntry();
+        }
+    }
+
+    private static TreeMap<Long, DaySketch> copyOf(TreeMap<Long, DaySketch> sketches) {
+        TreeMap<Long, DaySketch> copy = new TreeMap<>();
+        for (Map.Entry<Long, DaySketch> entry : sketches.entrySet()) {
+            DaySketch sketch = new DaySketch();
+            sketch.merge(entry.getValue());
+            copy.put(entry.getKey(), sketch);
+        }
+        return copy;
+    }
+
+    // 保留的最早一个月的起点
+    private long monthCutoff(long now) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(monthOf(now));
+        calendar.add(Calendar.MONTH, 1 - MONTH_RETENTION);
+        return calendar.getTimeInMillis();
+    }
+
+    // 按本地时区对齐到当月1日零点
+    private long monthOf(long time) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    // 按本地时区对齐到当天零点
+    private long dayOf(long time) {
+        long offset = timeZone.getOffset(time);
+        return Math.floorDiv(time + offset, DAY_MILLIS) * DAY_MILLIS - offset;
+    }
+}
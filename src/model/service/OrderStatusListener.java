@@ -0,0 +1,13 @@
+package model.service;
+
+import model.entity.Order;
+import model.entity.OrderStatus;
+
+/**
+ * 订单状态流转监听器
+ * 订单创建成功时from为null、to为待付款；之后每次状态流转成功后回调一次
+ * 回调可能来自多个线程并发执行，实现类需要保证线程安全
+ */
+public interface OrderStatusListener {
+    void onTransition(Order order, OrderStatus from, OrderStatus to);
+}
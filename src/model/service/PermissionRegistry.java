@@ -0,0 +1,180 @@
+package model.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 权限注册表 - 资源和操作在注册时分配序号，角色编译为权限位集
+ * 每个(资源, 操作)组合注册一次得到一个Permission，序号即位集中的位置；角色持有不可变的long[]位集，
+ * 授权、撤销时整体替换，因此检查权限只是一次查表加一次位测试，不需要加锁
+ * 超级角色拥有所有权限，包括之后才注册的权限
+ */
+public class PermissionRegistry {
+
+    /**
+     * 已注册的权限：资源 + 操作
+     */
+    public static final class Permission {
+        private final int id;
+        private final String resource;
+        private final String action;
+
+        Permission(int id, String resource, String action) {
+            this.id = id;
+            this.resource = resource;
+            this.action = action;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        @Override
+        public String toString() {
+            return resource + ":" + action;
+        }
+    }
+
+    // 编译后的角色，不可变
+    private static final class Role {
+        final boolean superuser;
+        final long[] bits;
+
+        Role(boolean superuser, long[] bits) {
+            this.superuser = superuser;
+            this.bits = bits;
+        }
+
+        boolean has(int id) {
+            int word = id >>> 6;
+            return superuser || (word < bits.length && (bits[word] & (1L << id)) != 0);
+        }
+    }
+
+    // 资源 -> 操作 -> 权限
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Permission>> permissions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Role> roles = new ConcurrentHashMap<>();
+    private int nextId;
+
+    /**
+     * 注册权限，已注册时返回原有的权限
+     */
+    public synchronized Permission register(String resource, String action) {
+        if (resource == null || action == null) {
+            throw new IllegalArgumentException("资源和操作不能为空");
+        }
+        ConcurrentHashMap<String, Permission> actions = permissions.computeIfAbsent(resource, key -> new ConcurrentHashMap<>());
+        Permission permission = actions.get(action);
+        if (permission == null) {
+            permission = new Permission(nextId++, resource, action);
+            actions.put(action, permission);
+        }
+        return permission;
+    }
+
+    /**
+     * 查找已注册的权限，未注册时返回null
+     */
+    public Permission lookup(String resource, String action) {
+        if (resource == null || action == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, Permission> actions = permissions.get(resource);
+        return actions == null ? null : actions.get(action);
+    }
+
+    /**
+     * 定义角色（已存在时覆盖），授予给定权限
+     */
+    public synchronized void defineRole(String role, Permission... granted) {
+        roles.put(role, new Role(false, withBits(new long[0], granted, true)));
+    }
+
+    /**
+     * 定义拥有所有权限的超级角色
+     */
+    public synchronized void defineSuperRole(String role) {
+        roles.put(role, new Role(true, new long[0]));
+    }
+
+    /**
+     * 给角色追加权限，角色不存在时先创建
+     */
+    public synchronized void grant(String role, Permission... granted) {
+        Role old = roles.get(role);
+        long[] bits = old == null ? new long[0] : old.bits;
+        roles.put(role, new Role(old != null && old.superuser, withBits(bits, granted, true)));
+    }
+
+    /**
+     * 撤销角色的权限；超级角色不受影响
+     */
+    public synchronized void revoke(String role, Permission... revoked) {
+        Role old = roles.get(role);
+        if (old != null && !old.superuser) {
+            roles.put(role, new Role(false, withBits(old.bits, revoked, false)));
+        }
+    }
+
+    public synchronized boolean removeRole(String role) {
+        return roles.remove(role) != null;
+    }
+
+    public boolean hasRole(String role) {
+        return role != null && roles.containsKey(role);
+    }
+
+    /**
+     * 角色是否拥有权限：一次位测试
+     */
+    public boolean isGranted(String role, Permission permission) {
+        if (role == null || permission == null) {
+            return false;
+        }
+        Role compiled = roles.get(role);
+        return compiled != null && compiled.has(permission.id);
+    }
+
+    /**
+     * 按资源和操作名检查；超级角色拥有所有权限，其他角色对未注册的权限一律拒绝
+     */
+    public boolean isGranted(String role, String resource, String action) {
+        if (role == null || resource == null || action == null) {
+            return false;
+        }
+        Role compiled = roles.get(role);
+        if (compiled == null) {
+            return false;
+        }
+        // 先判断超级角色：未注册的权限查不到序号，但超级角色同样拥有
+        if (compiled.superuser) {
+            return true;
+        }
+        Permission permission = lookup(resource, action);
+        return permission != null && compiled.has(permission.id);
+    }
+
+    private static long[] withBits(long[] bits, Permission[] changed, boolean set) {
+        int maxId = -1;
+        for (Permission permission : changed) {
+            maxId = Math.max(maxId, permission.id);
+        }
+        long[] result = Arrays.copyOf(bits, Math.max(bits.length, (maxId >> 6) + 1));
+        for (Permission permission : changed) {
+            if (set) {
+                result[permission.id >>> 6] |= 1L << permission.id;
+            } else {
+                result[permission.id >>> 6] &= ~(1L << permission.id);
+            }
+        }
+        return result;
+    }
+}
@@ -1,10 +1,23 @@
 package model.service;
 
 import model.entity.Product;
+import model.repository.CachingRepository;
+import model.repository.Criteria;
 import model.repository.ProductRepository;
+import model.repository.Query;
+import model.repository.QueryResultCache;
+import exception.BusinessException;
+import exception.OptimisticLockException;
 import exception.ValidationException;
+import util.Money;
+import util.ObjectIntHashMap;
+import util.SortedView;
+import util.TinyLfuCache;
 import util.ValidationUtil;
+import util.Validator;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -17,9 +30,35 @@ public class ProductService implements ProductServiceInterface {
 
     private InventoryService inventoryService;
 
+    // 按价格排序的有序视图，随商品增删改同步更新
+    private final SortedView<Product, Long> productsByPrice;
+
+    // 按ID读取商品的缓存，下单时每个订单项都会读取商品
+    private static final int PRODUCT_CACHE_SIZE = 10_000;
+    private final CachingRepository<Product> productCache;
+
+    // 商品搜索结果缓存，按名称、分类、价格索引的版本号精确失效
+    private static final int SEARCH_CACHE_SIZE = 1024;
+    private final QueryResultCache<Product> searchCache;
+
+    // 乐观更新冲突时的最大重试次数
+    private static final int MAX_UPDATE_RETRIES = 16;
+
+    // 商品数据验证规则，新增时还要验证ID
+    private static final Validator<Product> PRODUCT_VALIDATOR = productRules(Validator.builder("商品不能为空")).build();
+    private static final Validator<Product> NEW_PRODUCT_VALIDATOR = productRules(Validator.<Product>builder("商品不能为空")
+            .field()
+            .notBlank(Product::getId, "商品ID不能为空")
+            .length(Product::getId, 3, 50, "商品ID长度必须在3-50个字符之间"))
+            .build();
+
     private ProductService() {
         this.productRepository = new ProductRepository();
         this.inventoryService = InventoryService.getInstance();
+        this.productsByPrice = productRepository.createSortedView(Product::getPriceCents, Comparator.naturalOrder());
+        this.productCache = new CachingRepository<>(productRepository, Product::getId, PRODUCT_CACHE_SIZE);
+        productRepository.addChangeListener(productCache);
+        this.searchCache = new QueryResultCache<>(productRepository, SEARCH_CACHE_SIZE);
     }
 
     public static synchronized ProductService getInstance() {
@@ -38,52 +77,8 @@ public class ProductService implements ProductServiceInterface {
      */
     @Override
     public void addProduct(Product product) throws ValidationException {
-        // 输入验证
-        if (product == null) {
-            throw new ValidationException("商品不能为空");
-        }
-
-        if (!ValidationUtil.isNotBlank(product.getId())) {
-            throw new ValidationException("商品ID不能为空");
-        }
-
-        // 验证商品ID长度
-        if (!ValidationUtil.isValidLength(product.getId(), 3, 50)) {
-            throw new ValidationException("商品ID长度必须在3-50个字符之间");
-        }
-
-        if (!ValidationUtil.isNotBlank(product.getName())) {
-            throw new ValidationException("商品名称不能为空");
-        }
-
-        // 验证商品名称长度
-        if (!ValidationUtil.isValidLength(product.getName(), 1, 100)) {
-            throw new ValidationException("商品名称长度必须在1-100个字符之间");
-        }
-
-        // 验证价格
-        if (!ValidationUtil.isPositiveNumber(product.getPrice())) {
-            throw new ValidationException("商品价格必须大于0");
-        }
-
-        // 验证价格格式
-        if (!ValidationUtil.isValidPrice(product.getPrice())) {
-            throw new ValidationException("商品价格格式无效：最多只能有两位小数");
-        }
-
-        if (!ValidationUtil.isNotBlank(product.getCategory())) {
-            throw new ValidationException("商品分类不能为空");
-        }
-
-        // 验证商品分类长度
-        if (!ValidationUtil.isValidLength(product.getCategory(), 1, 50)) {
-            throw new ValidationException("商品分类长度必须在1-50个字符之间");
-        }
-
-        // 验证库存数量
-        if (!ValidationUtil.isNonNegativeNumber(product.getStock())) {
-            throw new ValidationException("商品库存不能为负数");
-        }
+        // 输入验证，一次报告所有错误
+        NEW_PRODUCT_VALIDATOR.check(product);
 
         // 检查商品是否已存在
         if (productRepository.exists(product.getId())) {
@@ -111,85 +106,115 @@ public class ProductService implements ProductServiceInterface {
 
     /**
      * 更新商品信息 - 同步更新库存
+     * 无条件覆盖，但按读取时的版本号提交，保证同步到库存记录的库存变化量与实际覆盖的商品一致
      */
     @Override
     public void updateProduct(Product product) throws ValidationException {
-        if (product == null) {
-            throw new ValidationException("商品不能为空");
-        }
-
-        // 检查商品是否存在
-        if (!productRepository.exists(product.getId())) {
-            throw new ValidationException("商品不存在: " + product.getId());
-        }
+        validateProductForUpdate(product);
 
-        // 验证数据
-        if (!ValidationUtil.isNotBlank(product.getName())) {
-            throw new ValidationException("商品名称不能为空");
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            // 获取旧的商品信息以获取库存变化
+            Product oldProduct = productRepository.findById(product.getId());
+            if (oldProduct == null) {
+                throw new ValidationException("商品不存在: " + product.getId());
+            }
+            if (productRepository.update(product, oldProduct.getVersion())) {
+                syncInventoryStock(product.getId(), product.getStock() - oldProduct.getStock());
+                return;
+            }
         }
+        throw new ValidationException("更新商品失败: 版本冲突重试次数过多");
+    }
 
-        // 验证商品名称长度
-        if (!ValidationUtil.isValidLength(product.getName(), 1, 100)) {
-            throw new ValidationException("商品名称长度必须在1-100个字符之间");
-        }
+    /**
+     * 按版本号更新商品 - 乐观并发控制
+     * expectedVersion为读取商品时的版本号，期间商品被他人修改过则抛出OptimisticLockException，调用方可重新读取后重试
+     * 传入的商品应为读取结果的副本(Product.copy())，避免未提交的修改被其他人看到
+     */
+    @Override
+    public void updateProduct(Product product, long expectedVersion)
+            throws ValidationException, BusinessException {
+        validateProductForUpdate(product);
 
-        // 验证价格
-        if (!ValidationUtil.isPositiveNumber(product.getPrice())) {
-            throw new ValidationException("商品价格必须大于0");
+        // 版本号只增不减：读取时版本一致且按该版本写入成功，说明被覆盖的就是这次读到的商品
+        Product oldProduct = productRepository.findById(product.getId());
+        if (oldProduct == null || oldProduct.getVersion() != expectedVersion
+                || !productRepository.update(product, expectedVersion)) {
+            throw new OptimisticLockException("商品已被其他用户修改，请刷新后重试: " + product.getId());
         }
 
-        // 验证价格格式
-        if (!ValidationUtil.isValidPrice(product.getPrice())) {
-            throw new ValidationException("商品价格格式无效：最多只能有两位小数");
-        }
+        syncInventoryStock(product.getId(), product.getStock() - oldProduct.getStock());
+    }
 
-        // 验证商品分类
-        if (!ValidationUtil.isNotBlank(product.getCategory())) {
-            throw new ValidationException("商品分类不能为空");
+    // 私有方法：更新前验证商品数据
+    private void validateProductForUpdate(Product product) throws ValidationException {
+        if (product == null) {
+            throw new ValidationException("商品不能为空");
         }
 
-        // 验证商品分类长度
-        if (!ValidationUtil.isValidLength(product.getCategory(), 1, 50)) {
-            throw new ValidationException("商品分类长度必须在1-50个字符之间");
+        // 检查商品是否存在
+        if (!productRepository.exists(product.getId())) {
+            throw new ValidationException("商品不存在: " + product.getId());
         }
 
-        // 验证库存数量
-        if (!ValidationUtil.isNonNegativeNumber(product.getStock())) {
-            throw new ValidationException("商品库存不能为负数");
-        }
+        PRODUCT_VALIDATOR.check(product);
+    }
 
-        // 获取旧的商品信息以获取库存变化
-        Product oldProduct = productRepository.findById(product.getId());
-        int oldStock = oldProduct.getStock();
-        int newStock = product.getStock();
+    // 名称、价格、分类、库存的验证规则
+    private static Validator.Builder<Product> productRules(Validator.Builder<Product> builder) {
+        return builder
+                .field()
+                .notBlank(Product::getName, "商品名称不能为空")
+                .length(Product::getName, 1, 100, "商品名称长度必须在1-100个字符之间")
+                .field()
+                .rule(product -> !Money.isValid(product.getPriceCents()) || product.getPriceCents() > 0,
+                        "商品价格必须大于0")
+                .rule(product -> ValidationUtil.isValidPrice(product.getPriceCents()),
+                        "商品价格格式无效：最多只能有两位小数")
+                .field()
+                .notBlank(Product::getCategory, "商品分类不能为空")
+                .length(Product::getCategory, 1, 50, "商品分类长度必须在1-50个字符之间")
+                .field()
+                .range(Product::getStock, 0, Integer.MAX_VALUE, "商品库存不能为负数");
+    }
 
-        // 更新商品
-        boolean success = productRepository.update(product);
-        if (!success) {
-            throw new ValidationException("更新商品失败");
+    // 私有方法：商品库存变化时按变化量同步库存记录，在副本上修改后按版本号提交，冲突时重新读取后重试
+    private void syncInventoryStock(String productId, int delta) {
+        if (delta == 0) {
+            return;
         }
-
-        if (oldStock != newStock) {
-            try {
+        try {
+            for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
                 // 检查库存记录是否存在
-                if (inventoryService.inventoryExists(product.getId())) {
-                    // 获取并更新库存记录
-                    model.entity.Inventory inventory = inventoryService.getInventoryByProductId(product.getId());
-                    inventory.setQuantity(newStock);
-                    inventoryService.updateInventory(inventory);
-                    System.out.println("同步更新库存记录: " + product.getId() + ", 新库存: " + newStock);
-                } else {
-                    // 如果库存记录不存在，创建新的
-                    model.entity.Inventory inventory = new model.entity.Inventory(product.getId());
-                    inventory.setQuantity(newStock);
+                if (!inventoryService.inventoryExists(productId)) {
+                    // 如果库存记录不存在，按商品当前库存创建新的
+                    Product product = productRepository.findById(productId);
+                    if (product == null) {
+                        return;
+                    }
+                    model.entity.Inventory inventory = new model.entity.Inventory(productId);
+                    inventory.setQuantity(product.getStock());
                     inventory.setMinThreshold(10);
                     inventory.setMaxCapacity(1000);
                     inventoryService.addInventory(inventory);
-                    System.out.println("创建新的库存记录: " + product.getId() + ", 库存: " + newStock);
+                    System.out.println("创建新的库存记录: " + productId + ", 库存: " + product.getStock());
+                    return;
+                }
+
+                model.entity.Inventory current = inventoryService.getInventoryByProductId(productId);
+                model.entity.Inventory updated = current.copy();
+                updated.setQuantity(Math.max(0, current.getQuantity() + delta));
+                try {
+                    inventoryService.updateInventory(updated, current.getVersion());
+                    System.out.println("同步更新库存记录: " + productId + ", 新库存: " + updated.getQuantity());
+                    return;
+                } catch (OptimisticLockException e) {
+                    // 版本冲突，重试
                 }
-            } catch (Exception e) {
-                System.err.println("同步库存记录失败: " + product.getId() + " - " + e.getMessage());
             }
+            System.err.println("同步库存记录失败: " + productId + " - 版本冲突重试次数过多");
+        } catch (Exception e) {
+            System.err.println("同步库存记录失败: " + productId + " - " + e.getMessage());
         }
     }
 
@@ -230,7 +255,7 @@ public class ProductService implements ProductServiceInterface {
             throw new ValidationException("商品ID不能为空");
         }
 
-        Product product = productRepository.findById(productId);
+        Product product = productCache.findById(productId);
         if (product == null) {
             throw new ValidationException("商品不存在: " + productId);
         }
@@ -252,8 +277,6 @@ public class ProductService implements ProductServiceInterface {
     @Override
     public List<Product> searchProducts(String keyword, String category,
                                         Double minPrice, Double maxPrice) {
-        List<Product> result = productRepository.findAll();
-
         // 验证价格范围
         if (minPrice != null && !ValidationUtil.isNonNegativeNumber(minPrice)) {
             minPrice = null; // 忽略无效的最小价格
@@ -270,76 +293,93 @@ public class ProductService implements ProductServiceInterface {
             maxPrice = temp;
         }
 
-        // 使用流式API进行筛选（简单实现）
-        java.util.Iterator<Product> iterator = result.iterator();
-        while (iterator.hasNext()) {
-            Product product = iterator.next();
-            boolean keep = true;
-
-            // 关键词筛选
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                if (!product.getName().toLowerCase().contains(keyword.toLowerCase())) {
-                    keep = false;
-                }
-            }
-
-            // 分类筛选
-            if (category != null && !category.trim().isEmpty()) {
-                if (!category.equals(product.getCategory())) {
-                    keep = false;
-                }
-            }
-
-            // 价格筛选
-            if (minPrice != null && product.getPrice() < minPrice) {
-                keep = false;
-            }
-            if (maxPrice != null && product.getPrice() > maxPrice) {
-                keep = false;
-            }
+        // 规范化后的查询参数作为缓存键：关键词不区分大小写，价格按分
+        StringBuilder key = new StringBuilder();
+        List<Criteria<Product>> conditions = new ArrayList<>();
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            conditions.add(Criteria.contains(ProductRepository.NAME, keyword));
+            key.append(keyword.toLowerCase());
+        }
+        key.append('\u0001');
+        if (category != null && !category.trim().isEmpty()) {
+            conditions.add(Criteria.eq(ProductRepository.CATEGORY, category));
+            key.append(category);
+        }
+        key.append('\u0001');
+        if (minPrice != null || maxPrice != null) {
+            Long minCents = minPrice == null ? null : Money.ceilYuan(minPrice);
+            Long maxCents = maxPrice == null ? null : Money.floorYuan(maxPrice);
+            conditions.add(Criteria.between(ProductRepository.PRICE, minCents, maxCents));
+            key.append(minCents).append('\u0001').append(maxCents);
+        }
 
-            if (!keep) {
-                iterator.remove();
-            }
+        Query<Product> query = new Query<>();
+        if (conditions.isEmpty()) {
+            return productRepository.query(query);
         }
+        query.where(Criteria.allOf(conditions));
+        return searchCache.query(key.toString(), query);
+    }
 
-        return result;
+    /**
+     * 按条件查询商品，由查询计划器选择分类、价格、名称索引
+     */
+    @Override
+    public List<Product> queryProducts(Query<Product> query) {
+        return productRepository.query(query);
     }
 
     /**
      * 商品入库（增加库存）
+     * 热点商品记到分段计数器上；普通商品按版本号更新商品库存并同步库存记录
      */
     @Override
-    public void stockIn(String productId, int amount) throws ValidationException {
+    public void stockIn(String productId, int amount) throws ValidationException, BusinessException {
         // 验证数量
         if (!ValidationUtil.isPositiveNumber(amount)) {
             throw new ValidationException("入库数量必须大于0");
         }
 
-        Product product = getProductById(productId);
-        product.increaseStock(amount);
-        productRepository.update(product);
+        getProductById(productId);
+        inventoryService.releaseStock(productId, amount, () -> changeStock(productId, amount));
     }
 
     /**
      * 商品出库（减少库存）
+     * 检查与扣减在同一次按版本号的提交中完成，并发出库不会超卖
      */
     @Override
-    public boolean stockOut(String productId, int amount) throws ValidationException {
+    public boolean stockOut(String productId, int amount) throws ValidationException, BusinessException {
         // 验证数量
         if (!ValidationUtil.isPositiveNumber(amount)) {
             throw new ValidationException("出库数量必须大于0");
         }
 
-        Product product = getProductById(productId);
+        getProductById(productId);
+        boolean[] enough = {true};
+        boolean reserved = inventoryService.reserveStock(productId, amount,
+                () -> enough[0] = changeStock(productId, -amount));
+        return reserved && enough[0]; // 库存不足时返回false
+    }
 
-        if (product.getStock() < amount) {
-            return false; // 库存不足
+    // 私有方法：在副本上修改库存后按版本号提交，冲突时重新读取后重试；库存不足时返回false
+    private boolean changeStock(String productId, int delta) throws BusinessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_RETRIES; attempt++) {
+            Product current = productRepository.findById(productId);
+            if (current == null) {
+                throw new ValidationException("商品不存在: " + productId);
+            }
+            if (current.getStock() + delta < 0) {
+                return false;
+            }
+            Product updated = current.copy();
+            updated.setStock(current.getStock() + delta);
+            if (productRepository.update(updated, current.getVersion())) {
+                syncInventoryStock(productId, delta);
+                return true;
+            }
         }
-
-        product.setStock(product.getStock() - amount);
-        productRepository.update(product);
-        return true;
+        throw new OptimisticLockException("商品库存更新冲突，请重试: " + productId);
     }
 
     /**
@@ -347,15 +387,12 @@ public class ProductService implements ProductServiceInterface {
      */
     @Override
     public java.util.Map<String, Integer> getCategoryStatistics() {
-        java.util.Map<String, Integer> stats = new java.util.HashMap<>();
-        List<Product> products = productRepository.findAll();
-
-        for (Product product : products) {
-            String category = product.getCategory();
-            stats.put(category, stats.getOrDefault(category, 0) + 1);
+        ObjectIntHashMap<String> counts = new ObjectIntHashMap<>();
+        // 在快照上遍历，不复制商品列表；计数不装箱，只在返回时每个分类装箱一次
+        for (Product product : productRepository.snapshot().values()) {
+            counts.addTo(product.getCategory(), 1);
         }
-
-        return stats;
+        return counts.toMap();
     }
 
     /**
@@ -375,26 +412,23 @@ public class ProductService implements ProductServiceInterface {
      */
     @Override
     public List<Product> getProductsSortedByPrice(boolean ascending) {
-        List<Product> products = productRepository.findAll();
-
-        // 使用冒泡排序（简单易懂）
-        for (int i = 0; i < products.size() - 1; i++) {
-            for (int j = 0; j < products.size() - i - 1; j++) {
-                Product p1 = products.get(j);
-                Product p2 = products.get(j + 1);
-
-                boolean needSwap = ascending ?
-                        p1.getPrice() > p2.getPrice() :
-                        p1.getPrice() < p2.getPrice();
+        return productsByPrice.page(0, Integer.MAX_VALUE, !ascending);
+    }
 
-                if (needSwap) {
-                    products.set(j, p2);
-                    products.set(j + 1, p1);
-                }
-            }
+    /**
+     * 按价格排序分页获取商品
+     * @param offset 跳过的商品数
+     * @param limit 每页商品数
+     */
+    @Override
+    public List<Product> getProductsSortedByPrice(boolean ascending, int offset, int limit) {
+        if (!ValidationUtil.isNonNegativeNumber(offset)) {
+            offset = 0;
         }
-
-        return products;
+        if (!ValidationUtil.isPositiveNumber(limit)) {
+            limit = 10; // 默认值
+        }
+        return productsByPrice.page(offset, limit, !ascending);
     }
 
     @Override
@@ -415,6 +449,27 @@ public class ProductService implements ProductServiceInterface {
         return productRepository;
     }
 
+    /**
+     * 获取带缓存的商品仓库，按ID读取商品时使用
+     */
+    public CachingRepository<Product> getProductCache() {
+        return productCache;
+    }
+
+    /**
+     * 商品缓存的命中统计
+     */
+    public TinyLfuCache.Stats getProductCacheStats() {
+        return productCache.getStats();
+    }
+
+    /**
+     * 商品搜索结果缓存的命中统计
+     */
+    public TinyLfuCache.Stats getSearchCacheStats() {
+        return searchCache.stats();
+    }
+
     /**
      *设置商品Repository实例
      */
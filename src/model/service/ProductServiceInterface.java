@@ -1,6 +1,7 @@
 package model.service;
 
 import model.entity.Product;
+import model.repository.Query;
 import exception.ValidationException;
 import exception.BusinessException;
 import java.util.List;
@@ -14,6 +15,7 @@ public interface ProductServiceInterface {
     // 商品管理
     void addProduct(Product product) throws ValidationException;
     void updateProduct(Product product) throws ValidationException;
+    void updateProduct(Product product, long expectedVersion) throws ValidationException, BusinessException;
     void deleteProduct(String productId) throws ValidationException;
     Product getProductById(String productId) throws ValidationException;
     List<Product> getAllProducts();
@@ -21,15 +23,17 @@ public interface ProductServiceInterface {
     // 搜索和筛选
     List<Product> searchProducts(String keyword, String category,
                                  Double minPrice, Double maxPrice);
+    List<Product> queryProducts(Query<Product> query);
 
     // 库存管理
-    void stockIn(String productId, int amount) throws ValidationException;
-    boolean stockOut(String productId, int amount) throws ValidationException;
+    void stockIn(String productId, int amount) throws ValidationException, BusinessException;
+    boolean stockOut(String productId, int amount) throws ValidationException, BusinessException;
 
     // 统计和报表
     Map<String, Integer> getCategoryStatistics();
     List<Product> getLowStockProducts(int threshold);
     List<Product> getProductsSortedByPrice(boolean ascending);
+    List<Product> getProductsSortedByPrice(boolean ascending, int offset, int limit);
 
     // 其他业务操作
     boolean productExists(String productId);
@@ -0,0 +1,268 @@
+package model.service;
+
+import model.entity.Order;
+import model.entity.OrderLines;
+import model.entity.OrderStatus;
+import util.LongObjectHashMap;
+import util.Money;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * 分类 × 状态 × 日期 的预聚合销售额立方体
+ * 订单创建时把每个订单项的金额计入(下单时分类, 待付款, 下单日期)单元格；订单状态变化时把该订单的金额从旧状态单元格移到新状态单元格
+ * 查询时只需扫描日期范围内的单元格，按需要的维度上卷汇总，或者固定某些维度后下钻到更细的维度
+ */
+public class RevenueCube implements OrderStatusListener {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    /**
+     * 立方体的维度
+     */
+    public enum Dimension {
+        CATEGORY, STATUS, DAY
+    }
+
+    /**
+     * 单元格坐标，未参与分组的维度为null
+     */
+    public static class Key implements Comparable<Key> {
+        private final String category;
+        private final OrderStatus status;
+        private final Long day;
+
+        public Key(String category, OrderStatus status, Long day) {
+            this.category = category;
+            this.status = status;
+            this.day = day;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public OrderStatus getStatus() {
+            return status;
+        }
+
+        // 当天零点的毫秒数
+        public Long getDay() {
+            return day;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = compareNullable(day, other.day);
+            if (result == 0) {
+                result = compareNullable(category, other.category);
+            }
+            if (result == 0) {
+                result = compareNullable(status, other.status);
+            }
+            return result;
+        }
+
+        private static <T extends Comparable<T>> int compareNullable(T a, T b) {
+            if (a == null || b == null) {
+                return a == b ? 0 : (a == null ? -1 : 1);
+            }
+            return a.compareTo(b);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(category, key.category) && status == key.status
+                    && Objects.equals(day, key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, status, day);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            if (day != null) {
+                sb.append(String.format("%tF", day));
+            }
+            if (category != null) {
+                sb.append(sb.length() > 0 ? " " : "").append(category);
+            }
+            if (status != null) {
+                sb.append(sb.length() > 0 ? " " : "").append(status);
+            }
+            return sb.length() > 0 ? sb.toString() : OrderAnalyticsEngine.ALL;
+        }
+    }
+
+    /**
+     * 单元格的度量：订单项数、件数、金额
+     */
+    public static class Cell {
+        private long lines;
+        private long units;
+        private long revenueCents;
+
+        void add(long lines, long units, long revenueCents) {
+            this.lines += lines;
+            this.units += units;
+            this.revenueCents += revenueCents;
+        }
+
+        void merge(Cell other) {
+            add(other.lines, other.units, other.revenueCents);
+        }
+
+        boolean isEmpty() {
+            return lines == 0;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getRevenue() {
+            return Money.toYuan(revenueCents);
+        }
+
+        public long getRevenueCents() {
+            return revenueCents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("订单项: %d, 件数: %d, 金额: %.2f", lines, units, getRevenue());
+        }
+    }
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+    // 日期 -> 分类 -> 按状态序号排列的单元格
+    private final TreeMap<Long, Map<String, Cell[]>> days = new TreeMap<>();
+    // 按日期直接查找，记录订单时不装箱；新的日期才写入有序的days
+    private final LongObjectHashMap<Map<String, Cell[]>> dayIndex = new LongObjectHashMap<>();
+
+    @Override
+    public void onTransition(Order order, OrderStatus from, OrderStatus to) {
+        long time = order.getCreateTime() != null ?
+                order.getCreateTime().getTime() : System.currentTimeMillis();
+        if (from == null) {
+            apply(order, time, null, to);
+        } else if (from != to) {
+            apply(order, time, from, to);
+        }
+    }
+
+    /**
+     * 把订单的各订单项从from状态的单元格移到to状态的单元格，from为null表示新订单
+     */
+    public synchronized void apply(Order order, long orderTime, OrderStatus from, OrderStatus to) {
+        long day = dayOf(orderTime);
+        Map<String, Cell[]> categories = dayIndex.get(day);
+        if (categories == null) {
+            categories = new HashMap<>();
+            dayIndex.put(day, categories);
+            days.put(day, categories);
+        }
+        // 按列读取订单项，不创建订单项视图
+        OrderLines lines = order.getLines();
+        for (int i = 0; i < lines.size(); i++) {
+            String category = lines.getCategory(i) != null ? lines.getCategory(i) : "未知";
+            Cell[] cells = categories.computeIfAbsent(category, key -> new Cell[STATUSES.length]);
+            int quantity = lines.getQuantity(i);
+            long subtotal = lines.getSubtotalCents(i);
+            if (from != null) {
+                cell(cells, from).add(-1, -quantity, -subtotal);
+            }
+            cell(cells, to).add(1, quantity, subtotal);
+        }
+    }
+
+    /**
+     * 在[from, to)日期范围内按指定维度上卷
+     * @param category 只统计该分类，为null表示全部分类
+     * @param status 只统计该状态，为null表示全部状态
+     * @param groupBy 结果保留的维度，不传表示汇总为一个单元格
+     */
+    public synchronized Map<Key, Cell> rollUp(String category, OrderStatus status, long from, long to,
+                                             Dimension... groupBy) {
+        Set<Dimension> dims = groupBy.length == 0 ? EnumSet.noneOf(Dimension.class) : EnumSet.of(groupBy[0], groupBy);
+        boolean byCategory = dims.contains(Dimension.CATEGORY);
+        boolean byStatus = dims.contains(Dimension.STATUS);
+        boolean byDay = dims.contains(Dimension.DAY);
+
+        Map<Key, Cell> result = new TreeMap<>();
+        for (Map.Entry<Long, Map<String, Cell[]>> dayEntry : days.subMap(dayOf(from), true, to, false).entrySet()) {
+            Long day = byDay ? dayEntry.getKey() : null;
+            for (Map.Entry<String, Cell[]> categoryEntry : dayEntry.getValue().entrySet()) {
+                if (category != null && !category.equals(categoryEntry.getKey())) {
+                    continue;
+                }
+                Cell[] cells = categoryEntry.getValue();
+                for (int i = 0; i < cells.length; i++) {
+                    if (cells[i] == null || cells[i].isEmpty() || (status != null && status.ordinal() != i)) {
+                        continue;
+                    }
+                    Key key = new Key(byCategory ? categoryEntry.getKey() : null,
+                            byStatus ? STATUSES[i] : null, day);
+                    result.computeIfAbsent(key, k -> new Cell()).merge(cells[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 下钻：固定父单元格已有的维度，再按另一个维度展开
+     */
+    public Map<Key, Cell> drillDown(Key parent, Dimension dimension, long from, long to) {
+        long dayFrom = from;
+        long dayTo = to;
+        EnumSet<Dimension> dims = EnumSet.of(dimension);
+        if (parent.getCategory() != null) {
+            dims.add(Dimension.CATEGORY);
+        }
+        if (parent.getStatus() != null) {
+            dims.add(Dimension.STATUS);
+        }
+        if (parent.getDay() != null) {
+            dims.add(Dimension.DAY);
+            dayFrom = Math.max(from, parent.getDay());
+            dayTo = Math.min(to, parent.getDay() + DAY_MILLIS);
+        }
+        return rollUp(parent.getCategory(), parent.getStatus(), dayFrom, dayTo, dims.toArray(new Dimension[0]));
+    }
+
+    private Cell cell(Cell[] cells, OrderStatus status) {
+        Cell cell = cells[status.ordinal()];
+        if (cell == null) {
+            cell = new Cell();
+            cells[status.ordinal()] = cell;
+        }
+        return cell;
+    }
+
+    // 按本地时区对齐到当天零点
+    private long dayOf(long time) {
+        long offset = timeZone.getOffset(time);
+        return Math.floorDiv(time + offset, DAY_MILLIS) * DAY_MILLIS - offset;
+    }
+}
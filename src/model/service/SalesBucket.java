@@ -0,0 +1,86 @@
+package model.service;
+
+import util.Money;
+
+/**
+ * 销售汇总桶 - 某个时间段内的订单数、销售额、销量和取消情况
+ */
+public class SalesBucket {
+    private final long startTime;                   // 时间段起点（毫秒）
+    private final SalesRollup.Resolution resolution; // 时间粒度
+    private long orderCount;        // 下单数
+    private long revenueCents;      // 销售额（分）
+    private long unitsSold;         // 销售件数
+    private long cancellations;     // 取消订单数
+    private long cancelledCents;    // 取消订单的金额（分）
+
+    public SalesBucket(long startTime, SalesRollup.Resolution resolution) {
+        this.startTime = startTime;
+        this.resolution = resolution;
+    }
+
+    // 记录一笔下单
+    void addOrder(long amountCents, long units) {
+        orderCount++;
+        revenueCents += amountCents;
+        unitsSold += units;
+    }
+
+    // 记录一笔取消
+    void addCancellation(long amountCents) {
+        cancellations++;
+        cancelledCents += amountCents;
+    }
+
+    // 合并另一个桶的数据
+    void merge(SalesBucket other) {
+        orderCount += other.orderCount;
+        revenueCents += other.revenueCents;
+        unitsSold += other.unitsSold;
+        cancellations += other.cancellations;
+        cancelledCents += other.cancelledCents;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public SalesRollup.Resolution getResolution() {
+        return resolution;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public double getRevenue() {
+        return Money.toYuan(revenueCents);
+    }
+
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+
+    // 扣除取消订单后的净销售额
+    public double getNetRevenue() {
+        return Money.toYuan(revenueCents - cancelledCents);
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public long getCancellations() {
+        return cancellations;
+    }
+
+    public double getCancelledRevenue() {
+        return Money.toYuan(cancelledCents);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("时间: %tF %<tR, 粒度: %s, 订单: %d, 销售额: %.2f, 件数: %d, 取消: %d",
+                startTime, resolution, orderCount, getRevenue(), unitsSold, cancellations);
+    }
+}
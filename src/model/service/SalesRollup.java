@@ -0,0 +1,152 @@
+package model.service;
+
+import model.entity.Order;
+import model.entity.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * 按时间分桶的销售汇总
+ * 订单创建和取消时增量更新分钟级汇总桶；分钟桶超过保留期后合并进小时桶，小时桶超过保留期后合并进天桶
+ * 报表查询只需读取少量预聚合的桶，例如"最近30天每小时销售额"最多读取几百个桶
+ */
+public class SalesRollup implements OrderStatusListener {
+
+    /**
+     * 时间粒度及各粒度的保留期
+     */
+    public enum Resolution {
+        MINUTE(60_000L, 2L * 60 * 60 * 1000),               // 分钟桶保留2小时
+        HOUR(60L * 60 * 1000, 35L * 24 * 60 * 60 * 1000),   // 小时桶保留35天
+        DAY(24L * 60 * 60 * 1000, Long.MAX_VALUE);          // 天桶永久保留
+
+        private final long millis;
+        private final long retention;
+
+        Resolution(long millis, long retention) {
+            this.millis = millis;
+            this.retention = retention;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private static final Resolution[] LEVELS = Resolution.values();
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+    // 每个粒度一张按起始时间排序的表
+    private final List<TreeMap<Long, SalesBucket>> levels = new ArrayList<>(LEVELS.length);
+
+    public SalesRollup() {
+        for (int i = 0; i < LEVELS.length; i++) {
+            levels.add(new TreeMap<>());
+        }
+    }
+
+    @Override
+    public void onTransition(Order order, OrderStatus from, OrderStatus to) {
+        long now = System.currentTimeMillis();
+        if (from == null) {
+            long time = order.getCreateTime() != null ? order.getCreateTime().getTime() : now;
+            recordOrder(time, order.getTotalCents(), order.getTotalQuantity(), now);
+        } else if (to == OrderStatus.CANCELLED) {
+            recordCancellation(now, order.getTotalCents(), now);
+        }
+    }
+
+    /**
+     * 记录一笔下单，金额以分为单位
+     */
+    public synchronized void recordOrder(long time, long amountCents, long units, long now) {
+        bucketFor(time, now).addOrder(amountCents, units);
+        compact(now);
+    }
+
+    /**
+     * 记录一笔取消
+     */
+    public synchronized void recordCancellation(long time, long amountCents, long now) {
+        bucketFor(time, now).addCancellation(amountCents);
+        compact(now);
+    }
+
+    /**
+     * 查询[from, to)时间段内按指定粒度的汇总
+     * 更细粒度的数据向上合并到指定粒度；已被压缩为更粗粒度的较早数据按其实际粒度返回
+     */
+    public synchronized List<SalesBucket> query(Resolution resolution, long from, long to) {
+        TreeMap<Long, SalesBucket> result = new TreeMap<>();
+        for (int level = 0; level < LEVELS.length; level++) {
+            Resolution levelResolution = LEVELS[level];
+            boolean finer = levelResolution.ordinal() <= resolution.ordinal();
+            for (SalesBucket bucket : levels.get(level).subMap(floor(from, levelResolution), to).values()) {
+                Resolution target = finer ? resolution : levelResolution;
+                long start = floor(bucket.getStartTime(), target);
+                result.computeIfAbsent(start, key -> new SalesBucket(key, target)).merge(bucket);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * [from, to)时间段内的总汇总
+     */
+    public synchronized SalesBucket total(long from, long to) {
+        SalesBucket total = new SalesBucket(from, Resolution.DAY);
+        for (int level = 0; level < LEVELS.length; level++) {
+            for (SalesBucket bucket : levels.get(level).subMap(floor(from, LEVELS[level]), to).values()) {
+                total.merge(bucket);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 当前保存的桶数量
+     */
+    public synchronized int getBucketCount() {
+        int count = 0;
+        for (TreeMap<Long, SalesBucket> level : levels) {
+            count += level.size();
+        }
+        return count;
+    }
+
+    // 找到时间点对应的桶：优先放在分钟级，超过保留期的较早数据直接放入更粗的粒度
+    private SalesBucket bucketFor(long time, long now) {
+        int level = 0;
+        while (level < LEVELS.length - 1 && time < now - LEVELS[level].retention) {
+            level++;
+        }
+        Resolution resolution = LEVELS[level];
+        long start = floor(time, resolution);
+        return levels.get(level).computeIfAbsent(start, key -> new SalesBucket(key, resolution));
+    }
+
+    // 把超过保留期的桶合并到更粗的粒度
+    private void compact(long now) {
+        for (int level = 0; level < LEVELS.length - 1; level++) {
+            TreeMap<Long, SalesBucket> buckets = levels.get(level);
+            long cutoff = now - LEVELS[level].retention;
+            Resolution coarser = LEVELS[level + 1];
+            while (!buckets.isEmpty() && buckets.firstKey() < cutoff) {
+                Map.Entry<Long, SalesBucket> oldest = buckets.pollFirstEntry();
+                long start = floor(oldest.getKey(), coarser);
+                levels.get(level + 1).computeIfAbsent(start, key -> new SalesBucket(key, coarser))
+                        .merge(oldest.getValue());
+            }
+        }
+    }
+
+    // 按本地时区对齐到粒度的起点
+    private long floor(long time, Resolution resolution) {
+        long offset = timeZone.getOffset(time);
+        return Math.floorDiv(time + offset, resolution.millis) * resolution.millis - offset;
+    }
+}
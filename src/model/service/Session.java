@@ -0,0 +1,51 @@
+package model.service;
+
+import util.TimerWheel;
+
+/**
+ * 登录会话 - 令牌、所属用户、创建时间和最近访问时间
+ * 令牌是随机生成的不透明字符串，不包含任何用户信息
+ */
+public class Session {
+    private final String token;
+    private final String userId;
+    private final long createTime;
+    private volatile long lastAccessTime;
+    // 空闲过期检查任务，由SessionManager维护
+    volatile TimerWheel.Timeout timeout;
+
+    Session(String token, String userId, long createTime) {
+        this.token = token;
+        this.userId = userId;
+        this.createTime = createTime;
+        this.lastAccessTime = createTime;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    void touch(long now) {
+        // 只会向后推进，多个线程同时访问时写入任意一个都可以
+        if (now > lastAccessTime) {
+            lastAccessTime = now;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("会话用户: %s, 创建时间: %tF %<tT, 最近访问: %tF %<tT", userId, createTime, lastAccessTime);
+    }
+}
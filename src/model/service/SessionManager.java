@@ -0,0 +1,218 @@
+package model.service;
+
+import util.TimerWheel;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话管理器 - 发放令牌、按令牌查找会话、空闲过期和注销
+ * 会话按令牌存放在ConcurrentHashMap中，查找是O(1)且不加锁；
+ * 空闲过期由时间轮驱动：每个会话只挂一个定时任务，访问时只更新最近访问时间，
+ * 任务到期时若期间有过访问就按新的过期时间重新挂上，否则移除会话，因此频繁访问不会产生定时任务的增删
+ */
+public class SessionManager {
+    // 默认空闲30分钟过期，时间轮精度1秒
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30L * 60 * 1000;
+    private static final long DEFAULT_TICK_MILLIS = 1000;
+    // 令牌的随机字节数，128位
+    private static final int TOKEN_BYTES = 16;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    // 令牌 -> 会话
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    // 用户ID -> 令牌集合；集合只在compute中修改
+    private final ConcurrentHashMap<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final TimerWheel idleTimer;
+    private volatile long idleTimeoutMillis;
+
+    public SessionManager() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param idleTimeoutMillis 空闲多久后过期
+     * @param tickMillis 过期检查的精度
+     */
+    public SessionManager(long idleTimeoutMillis, long tickMillis) {
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("会话空闲超时时间必须大于0");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.idleTimer = new TimerWheel(tickMillis);
+    }
+
+    /**
+     * 启动后台过期检查
+     */
+    public void start() {
+        idleTimer.start();
+    }
+
+    public void stop() {
+        idleTimer.stop();
+    }
+
+    /**
+     * 为用户创建会话
+     */
+    public Session create(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        long now = System.currentTimeMillis();
+        Session session;
+        do {
+            session = new Session(newToken(), userId, now);
+        } while (sessions.putIfAbsent(session.getToken(), session) != null);
+
+        String token = session.getToken();
+        userSessions.compute(userId, (key, tokens) -> {
+            if (tokens == null) {
+                tokens = new HashSet<>();
+            }
+            tokens.add(token);
+            return tokens;
+        });
+        scheduleIdleCheck(session, now + idleTimeoutMillis);
+        return session;
+    }
+
+    /**
+     * 按令牌查找会话并刷新最近访问时间，令牌无效或会话已过期时返回null
+     */
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        // 时间轮有一个tick的误差，查找时按时间再判断一次
+        if (now - session.getLastAccessTime() >= idleTimeoutMillis) {
+            remove(session);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /**
+     * 注销会话
+     */
+    public boolean revoke(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        return session != null && remove(session);
+    }
+
+    /**
+     * 注销用户的所有会话，返回注销的数量
+     */
+    public int revokeAll(String userId) {
+        Set<String> tokens = userId == null ? null : userSessions.remove(userId);
+        if (tokens == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String token : tokens) {
+            Session session = sessions.remove(token);
+            if (session != null) {
+                cancelIdleCheck(session);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 活动会话数量
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 用户的活动会话数量
+     */
+    public int getSessionCount(String userId) {
+        if (userId == null) {
+            return 0;
+        }
+        // 在compute中读取，避免与并发修改冲突
+        int[] count = new int[1];
+        userSessions.computeIfPresent(userId, (key, current) -> {
+            count[0] = current.size();
+            return current;
+        });
+        return count[0];
+    }
+
+    /**
+     * 设置空闲超时时间，已有会话在下一次检查时按新的时间判断
+     */
+    public void setIdleTimeout(long idleTimeoutMillis) {
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("会话空闲超时时间必须大于0");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * 立即处理截至指定时间到期的空闲检查；后台线程会定期调用，也可以手动调用
+     */
+    public void expireIdleSessions(long nowMillis) {
+        idleTimer.advanceTo(nowMillis);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+
+    private void scheduleIdleCheck(Session session, long deadline) {
+        session.timeout = idleTimer.scheduleAt(() -> checkIdle(session, deadline), deadline);
+    }
+
+    private void cancelIdleCheck(Session session) {
+        TimerWheel.Timeout timeout = session.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    // 检查任务到期：期间有过访问则顺延，否则过期
+    private void checkIdle(Session session, long deadline) {
+        if (sessions.get(session.getToken()) != session) {
+            return;
+        }
+        long expiresAt = session.getLastAccessTime() + idleTimeoutMillis;
+        if (expiresAt > deadline) {
+            scheduleIdleCheck(session, expiresAt);
+        } else {
+            remove(session);
+        }
+    }
+
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.getToken(), session)) {
+            return false;
+        }
+        cancelIdleCheck(session);
+        userSessions.computeIfPresent(session.getUserId(), (key, tokens) -> {
+            tokens.remove(session.getToken());
+            return tokens.isEmpty() ? null : tokens;
+        });
+        return true;
+    }
+}
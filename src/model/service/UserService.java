@@ -4,6 +4,7 @@ import model.entity.User;
 import model.repository.UserRepository;
 import exception.ValidationException;
 import util.ValidationUtil;  // 导入工具类
+import util.Validator;
 
 import java.util.List;
 
@@ -20,11 +21,35 @@ public class UserService implements UserServiceInterface {
         boolean hasPermission(User user, String resource, String action);
     }
 
+    // 资源、操作和角色的权限注册表
+    private final PermissionRegistry permissionRegistry = new PermissionRegistry();
+
     // 默认权限检查器实现
     private PermissionChecker permissionChecker = new DefaultPermissionChecker();
 
+    // 登录会话
+    private final SessionManager sessionManager = new SessionManager();
+
+    // 用户数据验证规则；注册表中定义的自定义角色也可以使用
+    private final Validator<User> userValidator = Validator.<User>builder("用户不能为空")
+            .field()
+            .notBlank(User::getId, "用户ID不能为空")
+            .field()
+            .notBlank(User::getName, "用户名不能为空")
+            .chars(User::getName, "a-zA-Z0-9_", 3, 20, "用户名格式无效：必须为3-20位的字母、数字或下划线")
+            .field()
+            .notBlank(User::getPassword, "密码不能为空")
+            .chars(User::getPassword, "a-zA-Z0-9@#$%^&+=", 6, 20, "密码格式无效：必须为6-20位的字母、数字或特殊字符")
+            .field()
+            .notBlank(User::getRole, "用户角色不能为空")
+            .rule(user -> ValidationUtil.isValidUserRole(user.getRole()) || permissionRegistry.hasRole(user.getRole()),
+                    "用户角色必须是admin、sales或已定义的角色")
+            .build();
+
     private UserService() {
         this.userRepository = new UserRepository();
+        registerDefaultPermissions();
+        sessionManager.start();
     }
     // 获取单例实例
     public static synchronized UserService getInstance() {
@@ -39,6 +64,25 @@ public class UserService implements UserServiceInterface {
         this.permissionChecker = checker;
     }
 
+    /**
+     * 权限注册表，可注册新的资源、操作并定义自定义角色
+     */
+    public PermissionRegistry getPermissionRegistry() {
+        return permissionRegistry;
+    }
+
+    // 内置权限：管理员拥有所有权限，销售员可以查看和管理商品、订单
+    private void registerDefaultPermissions() {
+        for (String resource : new String[]{"product", "order", "inventory", "customer", "user"}) {
+            permissionRegistry.register(resource, "view");
+            permissionRegistry.register(resource, "manage");
+        }
+        permissionRegistry.defineSuperRole(User.ROLE_ADMIN);
+        permissionRegistry.defineRole(User.ROLE_SALES,
+                permissionRegistry.lookup("product", "view"), permissionRegistry.lookup("product", "manage"),
+                permissionRegistry.lookup("order", "view"), permissionRegistry.lookup("order", "manage"));
+    }
+
     /**
      * 用户登录
      */
@@ -67,12 +111,48 @@ public class UserService implements UserServiceInterface {
     }
 
     /**
-     * 用户登出
+     * 登录并创建会话，之后的请求凭会话令牌访问，无需再次验证密码
+     */
+    @Override
+    public Session startSession(String username, String password) throws ValidationException {
+        User user = login(username, password);
+        return sessionManager.create(user.getId());
+    }
+
+    /**
+     * 按会话令牌获取当前用户，令牌无效、会话已过期或用户已被删除时返回null
+     */
+    @Override
+    public User getSessionUser(String token) {
+        Session session = sessionManager.get(token);
+        if (session == null) {
+            return null;
+        }
+        User user = userRepository.findById(session.getUserId());
+        if (user == null) {
+            sessionManager.revoke(token);
+        }
+        return user;
+    }
+
+    /**
+     * 注销单个会话
+     */
+    @Override
+    public boolean logoutSession(String token) {
+        return sessionManager.revoke(token);
+    }
+
+    /**
+     * 用户登出：注销该用户的所有会话，没有活动会话时返回false
      */
     @Override
     public boolean logout(String userId) {
-        // 简单实现，实际项目中可能需要清理会话等
-        return true;
+        return sessionManager.revokeAll(userId) > 0;
+    }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
     }
 
     /**
@@ -135,6 +215,7 @@ public class UserService implements UserServiceInterface {
         if (!success) {
             throw new ValidationException("删除用户失败");
         }
+        sessionManager.revokeAll(userId);
     }
 
     /**
@@ -176,7 +257,7 @@ public class UserService implements UserServiceInterface {
     @Override
     public List<User> getUsersByRole(String role) {
         // 验证角色是否有效
-        if (!ValidationUtil.isValidUserRole(role)) {
+        if (!ValidationUtil.isValidUserRole(role) && !permissionRegistry.hasRole(role)) {
             // 如果角色无效，返回空列表或所有用户
             return new java.util.ArrayList<>();
         }
@@ -194,6 +275,21 @@ public class UserService implements UserServiceInterface {
         return permissionChecker.hasPermission(user, resource, action);
     }
 
+    /**
+     * 检查用户权限，权限预先通过注册表解析，只做一次位测试
+     * 设置了自定义权限检查器时仍交给检查器判断
+     */
+    @Override
+    public boolean checkPermission(User user, PermissionRegistry.Permission permission) {
+        if (user == null || permission == null) {
+            return false;
+        }
+        if (!(permissionChecker instanceof DefaultPermissionChecker)) {
+            return permissionChecker.hasPermission(user, permission.getResource(), permission.getAction());
+        }
+        return permissionRegistry.isGranted(user.getRole(), permission);
+    }
+
     /**
      * 修改密码
      */
@@ -266,69 +362,19 @@ public class UserService implements UserServiceInterface {
         return userRepository.count();
     }
 
-    // 私有方法：验证用户数据 - 使用ValidationUtil增强验证
+    // 私有方法：验证用户数据，一次报告所有错误
     private void validateUser(User user) throws ValidationException {
-        if (user == null) {
-            throw new ValidationException("用户不能为空");
-        }
-
-        if (!ValidationUtil.isNotBlank(user.getId())) {
-            throw new ValidationException("用户ID不能为空");
-        }
-
-        if (!ValidationUtil.isNotBlank(user.getName())) {
-            throw new ValidationException("用户名不能为空");
-        }
-
-        // 验证用户名格式
-        if (!ValidationUtil.isValidUsername(user.getName())) {
-            throw new ValidationException("用户名格式无效：必须为3-20位的字母、数字或下划线");
-        }
-
-        if (!ValidationUtil.isNotBlank(user.getPassword())) {
-            throw new ValidationException("密码不能为空");
-        }
-
-        // 验证密码格式
-        if (!ValidationUtil.isValidPassword(user.getPassword())) {
-            throw new ValidationException("密码格式无效：必须为6-20位的字母、数字或特殊字符");
-        }
-
-        if (!ValidationUtil.isNotBlank(user.getRole())) {
-            throw new ValidationException("用户角色不能为空");
-        }
-
-        // 验证角色是否合法
-        if (!ValidationUtil.isValidUserRole(user.getRole())) {
-            throw new ValidationException("用户角色必须是admin或sales");
-        }
+        userValidator.check(user);
     }
 
-    // 默认权限检查器实现类
-    private static class DefaultPermissionChecker implements PermissionChecker {
+    // 默认权限检查器实现类：按用户角色查询编译好的权限位集
+    private class DefaultPermissionChecker implements PermissionChecker {
         @Override
         public boolean hasPermission(User user, String resource, String action) {
             if (user == null) {
                 return false;
             }
-
-            // 管理员拥有所有权限
-            if (user.isAdmin()) {
-                return true;
-            }
-
-            // 销售员权限
-            if (user.isSales()) {
-                // 销售员可以查看和管理商品、订单
-                if ("product".equals(resource) && ("view".equals(action) || "manage".equals(action))) {
-                    return true;
-                }
-                if ("order".equals(resource) && ("view".equals(action) || "manage".equals(action))) {
-                    return true;
-                }
-            }
-
-            return false;
+            return permissionRegistry.isGranted(user.getRole(), resource, action);
         }
     }
 
@@ -12,6 +12,11 @@ public interface UserServiceInterface {
     User login(String username, String password) throws ValidationException;
     boolean logout(String userId);
 
+    // 会话
+    Session startSession(String username, String password) throws ValidationException;
+    User getSessionUser(String token);
+    boolean logoutSession(String token);
+
     // 用户管理
     void addUser(User user) throws ValidationException;
     void updateUser(User user) throws ValidationException;
@@ -23,6 +28,7 @@ public interface UserServiceInterface {
     // 角色和权限
     List<User> getUsersByRole(String role);
     boolean checkPermission(User user, String resource, String action);
+    boolean checkPermission(User user, PermissionRegistry.Permission permission);
     boolean isAdmin(String userId) throws ValidationException;
     boolean isSales(String userId) throws ValidationException;
 
@@ -0,0 +1,168 @@
+package test;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderItem;
+import model.entity.OrderStatus;
+import model.entity.Product;
+import model.service.BulkTransitionResult;
+import model.service.BulkTransitionResult.Outcome;
+import model.service.OrderService;
+import model.service.ProductService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderService批量状态流转测试
+ * 订单数量超过分片阈值(256)，结果由多个子任务分区间写入
+ */
+public class BulkTransitionTest {
+
+    private static final int ORDER_COUNT = 600;
+
+    // 创建count个待付款订单，每个订单购买1件商品，返回订单ID
+    private static List<String> createOrders(String prefix, int count) throws Exception {
+        ProductService productService = ProductService.getInstance();
+        OrderService orderService = OrderService.getInstance();
+        String productId = "P-" + prefix;
+        Product product = new Product(productId, "批量商品", 10.0, "测试类");
+        product.setStock(count);
+        productService.addProduct(product);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(String.format("O-%s-%04d", prefix, i),
+                    new Customer("C-" + prefix, "批量客户", "13800000000"));
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setProductName("批量商品");
+            item.setPrice(10.0);
+            item.setQuantity(1);
+            item.calculateSubtotal();
+            order.addItem(item);
+            ids.add(orderService.createOrder(order).getOrderId());
+        }
+        return ids;
+    }
+
+    /**
+     * 测试1: 按订单ID批量流转，每个订单的结果记在对应的位置上
+     */
+    @Test
+    public void testBulkByIds() throws Exception {
+        System.out.println("测试1: 按订单ID批量流转");
+
+        OrderService orderService = OrderService.getInstance();
+        List<String> ids = createOrders("BULK-IDS", ORDER_COUNT);
+
+        // 先付款前一半
+        BulkTransitionResult first = orderService.bulkUpdateStatus(ids.subList(0, ORDER_COUNT / 2), OrderStatus.PAID);
+        assertEquals(ORDER_COUNT / 2, first.getSuccessCount());
+
+        // 全部订单中间穿插不存在的ID
+        List<String> request = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            request.add(ids.get(i));
+            if (i % 30 == 0) {
+                request.add("O-BULK-IDS-MISSING-" + i);
+            }
+        }
+        BulkTransitionResult result = orderService.bulkUpdateStatus(request, OrderStatus.PAID);
+        assertEquals(request.size(), result.size());
+        assertEquals(ORDER_COUNT / 2, result.getSuccessCount());
+        assertEquals(ORDER_COUNT / 2, result.count(Outcome.ILLEGAL_TRANSITION));
+        assertEquals(ORDER_COUNT / 30, result.count(Outcome.NOT_FOUND));
+        assertEquals(0, result.count(Outcome.FAILED));
+
+        for (int i = 0; i < result.size(); i++) {
+            String orderId = result.getOrderId(i);
+            assertEquals(request.get(i), orderId);
+            Outcome expected;
+            if (orderId.contains("MISSING")) {
+                expected = Outcome.NOT_FOUND;
+            } else {
+                expected = ids.indexOf(orderId) < ORDER_COUNT / 2 ? Outcome.ILLEGAL_TRANSITION : Outcome.SUCCESS;
+            }
+            assertEquals(expected, result.getOutcome(i), orderId);
+        }
+        for (String orderId : ids) {
+            assertEquals(OrderStatus.PAID, orderService.getOrderById(orderId).getOrderStatus());
+        }
+
+        System.out.println("✓ " + result);
+    }
+
+    /**
+     * 测试2: 按条件批量取消，不满足条件的订单记为SKIPPED，取消的订单恢复库存
+     */
+    @Test
+    public void testBulkByPredicate() throws Exception {
+        System.out.println("\n测试2: 按条件批量取消");
+
+        OrderService orderService = OrderService.getInstance();
+        ProductService productService = ProductService.getInstance();
+        List<String> ids = createOrders("BULK-PRED", ORDER_COUNT);
+        assertEquals(0, productService.getProductById("P-BULK-PRED").getStock());
+
+        BulkTransitionResult result = orderService.bulkUpdateStatus(order ->
+                order.getOrderId().startsWith("O-BULK-PRED-") && ids.indexOf(order.getOrderId()) % 3 == 0,
+                OrderStatus.CANCELLED);
+        int matched = ORDER_COUNT / 3;
+        assertEquals(orderService.getOrderCount(), result.size());
+        assertEquals(matched, result.getSuccessCount());
+        assertEquals(result.size() - matched, result.count(Outcome.SKIPPED));
+        assertEquals(matched, result.getOrderIds(Outcome.SUCCESS).size());
+        assertEquals(matched, productService.getProductById("P-BULK-PRED").getStock());
+
+        for (int i = 0; i < ids.size(); i++) {
+            OrderStatus expected = i % 3 == 0 ? OrderStatus.CANCELLED : OrderStatus.PENDING;
+            assertEquals(expected, orderService.getOrderById(ids.get(i)).getOrderStatus());
+        }
+
+        // 已取消的订单不能再取消
+        BulkTransitionResult again = orderService.bulkUpdateStatus(ids.subList(0, 3), OrderStatus.CANCELLED);
+        assertEquals(Outcome.ILLEGAL_TRANSITION, again.getOutcome(0));
+        assertEquals(Outcome.SUCCESS, again.getOutcome(1));
+        assertEquals(Outcome.SUCCESS, again.getOutcome(2));
+
+        System.out.println("✓ 取消" + matched + "个订单，跳过" + result.count(Outcome.SKIPPED) + "个");
+    }
+
+    /**
+     * 测试3: 把某个状态的所有订单流转到目标状态，其他状态的订单记为SKIPPED
+     */
+    @Test
+    public void testBulkByFromStatus() throws Exception {
+        System.out.println("\n测试3: 按原状态批量流转");
+
+        OrderService orderService = OrderService.getInstance();
+        List<String> ids = createOrders("BULK-FROM", ORDER_COUNT);
+        assertEquals(ORDER_COUNT, orderService.bulkUpdateStatus(ids, OrderStatus.PAID).getSuccessCount());
+        assertEquals(ORDER_COUNT, orderService.bulkUpdateStatus(ids, OrderStatus.SHIPPED).getSuccessCount());
+
+        int shipped = 0;
+        for (Order order : orderService.getAllOrders()) {
+            if (order.getOrderStatus() == OrderStatus.SHIPPED) {
+                shipped++;
+            }
+        }
+        BulkTransitionResult result = orderService.bulkUpdateStatus(OrderStatus.SHIPPED, OrderStatus.COMPLETED);
+        assertEquals(orderService.getOrderCount(), result.size());
+        assertEquals(shipped, result.getSuccessCount());
+        assertEquals(result.size() - shipped, result.count(Outcome.SKIPPED));
+        for (String orderId : ids) {
+            assertEquals(OrderStatus.COMPLETED, orderService.getOrderById(orderId).getOrderStatus());
+        }
+
+        // 没有处于原状态的订单时全部跳过
+        BulkTransitionResult none = orderService.bulkUpdateStatus(OrderStatus.SHIPPED, OrderStatus.COMPLETED);
+        assertEquals(0, none.getSuccessCount());
+        assertEquals(none.size(), none.count(Outcome.SKIPPED));
+
+        System.out.println("✓ " + result);
+    }
+}
@@ -0,0 +1,83 @@
+package test;
+
+import model.entity.Product;
+import model.repository.CachingRepository;
+import model.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CachingRepository读穿透缓存测试
+ */
+public class CachingRepositoryTest {
+
+    /**
+     * 测试1: 在写入通知期间读取缓存，不会把旧值留在缓存中
+     */
+    @Test
+    public void testReadDuringChangeNotification() {
+        System.out.println("测试1: 写入通知期间的读取不会缓存旧值");
+
+        ProductRepository repository = new ProductRepository();
+        CachingRepository<Product> cache = new CachingRepository<>(repository, Product::getId, 100);
+        repository.addChangeListener(cache);
+        Product product = new Product("P-CACHE-1", "键盘", 99.0, "外设");
+        product.setStock(5);
+        repository.add(product);
+
+        // 在缓存收到通知之后、写操作返回之前读取，模拟并发读者恰好落在这个时间点
+        repository.addChangeListener((id, item) -> cache.findById(id));
+
+        Product copy = repository.findById("P-CACHE-1").copy();
+        copy.setStock(2);
+        assertTrue(repository.update(copy, copy.getVersion()));
+
+        assertEquals(2, repository.findById("P-CACHE-1").getStock());
+        assertEquals(2, cache.findById("P-CACHE-1").getStock());
+
+        System.out.println("✓ 缓存读到的是新库存");
+    }
+
+    /**
+     * 测试2: 并发读写后缓存与仓库一致
+     */
+    @Test
+    public void testConcurrentReadersSeeLatestValue() throws InterruptedException {
+        System.out.println("\n测试2: 并发读写后缓存与仓库一致");
+
+        ProductRepository repository = new ProductRepository();
+        CachingRepository<Product> cache = new CachingRepository<>(repository, Product::getId, 100);
+        repository.addChangeListener(cache);
+        repository.add(new Product("P-CACHE-2", "鼠标", 49.0, "外设"));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (running.get()) {
+                    cache.findById("P-CACHE-2");
+                }
+            });
+            readers[i].start();
+        }
+
+        // 直接写底层仓库，缓存只靠变更通知同步
+        for (int i = 1; i <= 2000; i++) {
+            Product copy = repository.findById("P-CACHE-2").copy();
+            copy.setStock(i);
+            assertTrue(repository.update(copy, copy.getVersion()));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(2000, repository.findById("P-CACHE-2").getStock());
+        assertEquals(2000, cache.findById("P-CACHE-2").getStock());
+
+        System.out.println("✓ 缓存与仓库一致");
+    }
+}
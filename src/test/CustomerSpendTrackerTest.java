@@ -0,0 +1,109 @@
+package test;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderStatus;
+import model.service.CustomerSpend;
+import model.service.CustomerSpendTracker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CustomerSpendTracker客户消费汇总测试
+ */
+public class CustomerSpendTrackerTest {
+
+    // 区间: 0-100元、100-500元、500元以上
+    private static final long[] BANDS = {0L, 10_000L, 50_000L};
+
+    private static Order order(String orderId, String customerId, long amountCents) {
+        Customer customer = customerId == null ? null : new Customer(customerId, "客户" + customerId, "13800000000");
+        Order order = new Order(orderId, customer);
+        order.getLines().append("P-SPEND", "商品", "测试类", amountCents, 1);
+        return order;
+    }
+
+    private static List<String> ids(List<CustomerSpend> spends) {
+        List<String> ids = new ArrayList<>();
+        for (CustomerSpend spend : spends) {
+            ids.add(spend.getCustomerId());
+        }
+        return ids;
+    }
+
+    /**
+     * 测试1: 按累计消费从高到低排名，金额相同按客户ID排序，区间客户数随消费变化
+     */
+    @Test
+    public void testTopCustomersAndBands() {
+        System.out.println("测试1: 消费排行与区间分布");
+
+        CustomerSpendTracker tracker = new CustomerSpendTracker(BANDS);
+        tracker.onTransition(order("O-1", "C-1", 8_000), null, OrderStatus.PENDING);
+        tracker.onTransition(order("O-2", "C-1", 3_000), null, OrderStatus.PENDING);
+        tracker.onTransition(order("O-3", "C-4", 60_000), null, OrderStatus.PENDING);
+        tracker.onTransition(order("O-4", "C-2", 60_000), null, OrderStatus.PENDING);
+        tracker.onTransition(order("O-5", "C-3", 5_000), null, OrderStatus.PENDING);
+        // 没有客户的订单不统计
+        tracker.onTransition(order("O-6", null, 5_000), null, OrderStatus.PENDING);
+
+        assertEquals(4, tracker.getCustomerCount());
+        assertEquals(List.of("C-2", "C-4", "C-1", "C-3"), ids(tracker.getTopCustomers(10)));
+        assertEquals(List.of("C-2", "C-4"), ids(tracker.getTopCustomers(2)));
+        CustomerSpend c1 = tracker.get("C-1");
+        assertEquals(11_000, c1.getSpentCents());
+        assertEquals(2, c1.getOrderCount());
+        assertEquals("客户C-1", c1.getCustomerName());
+
+        Map<String, Integer> bands = tracker.getSpendBandCounts();
+        assertEquals(List.of("0-100", "100-500", "500以上"), new ArrayList<>(bands.keySet()));
+        assertEquals(Integer.valueOf(1), bands.get("0-100"));
+        assertEquals(Integer.valueOf(1), bands.get("100-500"));
+        assertEquals(Integer.valueOf(2), bands.get("500以上"));
+
+        System.out.println("✓ " + bands);
+    }
+
+    /**
+     * 测试2: 取消订单扣回消费金额和订单数，排名和区间随之调整
+     */
+    @Test
+    public void testCancellationMovesCustomerDown() {
+        System.out.println("\n测试2: 取消订单后排名下降");
+
+        CustomerSpendTracker tracker = new CustomerSpendTracker(BANDS);
+        Order small = order("O-S", "C-1", 3_000);
+        Order big = order("O-B", "C-2", 60_000);
+        tracker.onTransition(order("O-A", "C-1", 8_000), null, OrderStatus.PENDING);
+        tracker.onTransition(small, null, OrderStatus.PENDING);
+        tracker.onTransition(big, null, OrderStatus.PENDING);
+        tracker.onTransition(order("O-C", "C-3", 5_000), null, OrderStatus.PENDING);
+        assertEquals(List.of("C-2", "C-1", "C-3"), ids(tracker.getTopCustomers(10)));
+
+        tracker.onTransition(big, OrderStatus.PAID, OrderStatus.CANCELLED);
+        assertEquals(0, tracker.get("C-2").getSpentCents());
+        assertEquals(0, tracker.get("C-2").getOrderCount());
+        assertEquals(List.of("C-1", "C-3", "C-2"), ids(tracker.getTopCustomers(10)));
+
+        tracker.onTransition(small, OrderStatus.PENDING, OrderStatus.CANCELLED);
+        assertEquals(8_000, tracker.get("C-1").getSpentCents());
+        Map<String, Integer> bands = tracker.getSpendBandCounts();
+        assertEquals(Integer.valueOf(3), bands.get("0-100"));
+        assertEquals(Integer.valueOf(0), bands.get("100-500"));
+        assertEquals(Integer.valueOf(0), bands.get("500以上"));
+
+        // 付款等其他流转不影响消费
+        tracker.onTransition(order("O-A", "C-1", 8_000), OrderStatus.PENDING, OrderStatus.PAID);
+        assertEquals(8_000, tracker.get("C-1").getSpentCents());
+
+        assertThrows(IllegalArgumentException.class, () -> new CustomerSpendTracker(new long[]{100L, 200L}));
+        assertThrows(IllegalArgumentException.class, () -> new CustomerSpendTracker(new long[]{0L, 200L, 200L}));
+
+        System.out.println("✓ " + tracker.getTopCustomers(1).get(0));
+    }
+}
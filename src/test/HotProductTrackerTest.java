@@ -0,0 +1,85 @@
+package test;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderStatus;
+import model.service.HotProductTracker;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HotProductTracker热销商品跟踪测试
+ */
+public class HotProductTrackerTest {
+
+    // 按商品ID、数量依次添加订单项
+    private static Order order(String orderId, Object... lines) {
+        Order order = new Order(orderId, new Customer("C-HOT-TRACK", "客户", "13800000000"));
+        for (int i = 0; i < lines.length; i += 2) {
+            order.getLines().append((String) lines[i], "商品", "测试类", 100, (Integer) lines[i + 1]);
+        }
+        return order;
+    }
+
+    private static void create(HotProductTracker tracker, Order order) {
+        tracker.onTransition(order, null, OrderStatus.PENDING);
+    }
+
+    /**
+     * 测试1: 下单累加销量，按销量从高到低排名，销量相同按商品ID排序
+     */
+    @Test
+    public void testRankingBySoldQuantity() {
+        System.out.println("测试1: 按销量排名");
+
+        HotProductTracker tracker = new HotProductTracker();
+        create(tracker, order("O-1", "P-B", 5, "P-A", 3));
+        create(tracker, order("O-2", "P-A", 2, "P-C", 1));
+        // 同一商品的多行合并计算
+        create(tracker, order("O-3", "P-C", 1, "P-C", 2));
+
+        assertEquals(5, tracker.getSoldQuantity("P-A"));
+        assertEquals(5, tracker.getSoldQuantity("P-B"));
+        assertEquals(4, tracker.getSoldQuantity("P-C"));
+        assertEquals(0, tracker.getSoldQuantity("P-NONE"));
+        assertEquals(List.of("P-A", "P-B", "P-C"), tracker.getTopProductIds(10, null));
+        assertEquals(List.of("P-A", "P-B"), tracker.getTopProductIds(2, null));
+        assertEquals(List.of("P-B", "P-C"), tracker.getTopProductIds(2, id -> !id.equals("P-A")));
+
+        // 付款、发货不影响销量
+        Order o1 = order("O-1", "P-B", 5, "P-A", 3);
+        tracker.onTransition(o1, OrderStatus.PENDING, OrderStatus.PAID);
+        tracker.onTransition(o1, OrderStatus.PAID, OrderStatus.SHIPPED);
+        assertEquals(5, tracker.getSoldQuantity("P-B"));
+
+        System.out.println("✓ " + tracker.getTopProductIds(10, null));
+    }
+
+    /**
+     * 测试2: 取消订单扣回销量，销量降为0的商品移出排名
+     */
+    @Test
+    public void testCancellationRemovesQuantity() {
+        System.out.println("\n测试2: 取消订单扣回销量");
+
+        HotProductTracker tracker = new HotProductTracker();
+        Order big = order("O-BIG", "P-X", 10, "P-Y", 1);
+        Order small = order("O-SMALL", "P-Y", 4);
+        create(tracker, big);
+        create(tracker, small);
+        assertEquals(List.of("P-X", "P-Y"), tracker.getTopProductIds(10, null));
+
+        tracker.onTransition(big, OrderStatus.PAID, OrderStatus.CANCELLED);
+        assertEquals(0, tracker.getSoldQuantity("P-X"));
+        assertEquals(4, tracker.getSoldQuantity("P-Y"));
+        assertEquals(List.of("P-Y"), tracker.getTopProductIds(10, null));
+
+        tracker.onTransition(small, OrderStatus.PENDING, OrderStatus.CANCELLED);
+        assertTrue(tracker.getTopProductIds(10, null).isEmpty());
+
+        System.out.println("✓ 取消后排名为空");
+    }
+}
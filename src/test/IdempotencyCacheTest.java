@@ -0,0 +1,205 @@
+package test;
+
+import exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import util.IdempotencyCache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IdempotencyCache幂等去重缓存测试
+ */
+public class IdempotencyCacheTest {
+
+    /**
+     * 测试1: 相同幂等键只执行一次，重复请求返回首次的结果
+     */
+    @Test
+    public void testDuplicateKeyReturnsFirstResult() throws Exception {
+        System.out.println("测试1: 重复的幂等键只执行一次");
+
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60_000);
+        AtomicInteger executions = new AtomicInteger();
+
+        String first = cache.getOrCompute("key-1", () -> "订单" + executions.incrementAndGet());
+        String second = cache.getOrCompute("key-1", () -> "订单" + executions.incrementAndGet());
+        assertEquals("订单1", first);
+        assertSame(first, second);
+        assertEquals(1, executions.get());
+        assertEquals("订单1", cache.getIfPresent("key-1"));
+        assertNull(cache.getIfPresent("key-2"));
+
+        // 并发的重复请求等待首次执行的结果
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread owner = new Thread(() -> {
+            try {
+                cache.getOrCompute("key-2", () -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new BusinessException("等待被中断");
+                    }
+                    return "订单" + executions.incrementAndGet();
+                });
+            } catch (Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        owner.start();
+        running.await();
+
+        AtomicReference<String> duplicate = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                duplicate.set(cache.getOrCompute("key-2", () -> "重复执行"));
+            } catch (Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        waiter.start();
+        assertNull(cache.getIfPresent("key-2"));
+        release.countDown();
+        owner.join();
+        waiter.join();
+
+        assertEquals("订单2", duplicate.get());
+        assertEquals(2, executions.get());
+
+        System.out.println("✓ 重复请求返回首次的结果");
+    }
+
+    /**
+     * 测试2: 执行失败的结果不缓存，重试会重新执行
+     */
+    @Test
+    public void testFailuresAreNotCached() throws BusinessException {
+        System.out.println("\n测试2: 失败不缓存");
+
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60_000);
+        AtomicInteger attempts = new AtomicInteger();
+
+        BusinessException e = assertThrows(BusinessException.class, () -> cache.getOrCompute("key-f", () -> {
+            attempts.incrementAndGet();
+            throw new BusinessException("库存不足");
+        }));
+        assertEquals("库存不足", e.getMessage());
+        assertNull(cache.getIfPresent("key-f"));
+        assertEquals(0, cache.size());
+
+        assertThrows(IllegalStateException.class, () -> cache.getOrCompute("key-f", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("运行时错误");
+        }));
+
+        String result = cache.getOrCompute("key-f", () -> "第" + attempts.incrementAndGet() + "次成功");
+        assertEquals("第3次成功", result);
+        assertEquals(1, cache.size());
+
+        System.out.println("✓ 重试后执行成功");
+    }
+
+    /**
+     * 测试3: 超过存活时间的记录失效，超过容量时淘汰最早的记录
+     */
+    @Test
+    public void testTtlAndBoundEviction() throws Exception {
+        System.out.println("\n测试3: 按存活时间和容量淘汰");
+
+        IdempotencyCache<Integer> expiring = new IdempotencyCache<>(100, 50);
+        AtomicInteger executions = new AtomicInteger();
+        assertEquals(Integer.valueOf(1), expiring.getOrCompute("key-t", executions::incrementAndGet));
+        Thread.sleep(80);
+        assertNull(expiring.getIfPresent("key-t"));
+        assertEquals(Integer.valueOf(2), expiring.getOrCompute("key-t", executions::incrementAndGet));
+        assertEquals(1, expiring.size());
+
+        IdempotencyCache<Integer> bounded = new IdempotencyCache<>(2, 60_000);
+        bounded.getOrCompute("a", () -> 1);
+        bounded.getOrCompute("b", () -> 2);
+        bounded.getOrCompute("c", () -> 3);
+        assertEquals(2, bounded.size());
+        assertNull(bounded.getIfPresent("a"));
+        assertEquals(Integer.valueOf(2), bounded.getIfPresent("b"));
+        assertEquals(Integer.valueOf(3), bounded.getIfPresent("c"));
+        // 被淘汰的键再次请求会重新执行
+        assertEquals(Integer.valueOf(10), bounded.getOrCompute("a", () -> 10));
+
+        System.out.println("✓ 过期和超出容量的记录被淘汰");
+    }
+
+    /**
+     * 测试4: 执行时抛出Error，等待中的重复请求收到同一错误而不是一直阻塞，之后的请求重新执行
+     */
+    @Test
+    public void testErrorReleasesWaiters() throws Exception {
+        System.out.println("\n测试4: 执行抛出Error时唤醒等待的请求");
+
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60_000);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Throwable> ownerError = new AtomicReference<>();
+        Thread owner = new Thread(() -> {
+            try {
+                cache.getOrCompute("key-e", () -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new BusinessException("等待被中断");
+                    }
+                    throw new StackOverflowError("递归过深");
+                });
+            } catch (Throwable e) {
+                ownerError.set(e);
+            }
+        });
+        owner.setDaemon(true);
+        owner.start();
+        running.await();
+
+        AtomicReference<Throwable> waiterError = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                cache.getOrCompute("key-e", () -> "重复执行");
+            } catch (Throwable e) {
+                waiterError.set(e);
+            }
+        });
+        // 修复前等待线程会永远阻塞，设为守护线程以免测试进程无法退出
+        waiter.setDaemon(true);
+        waiter.start();
+        // 等重复请求进入等待后再让首次执行失败
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        owner.join(5_000);
+        waiter.join(5_000);
+
+        assertFalse(waiter.isAlive());
+        assertTrue(ownerError.get() instanceof StackOverflowError);
+        assertTrue(waiterError.get() instanceof StackOverflowError);
+        assertNull(cache.getIfPresent("key-e"));
+        assertEquals(0, cache.size());
+
+        AtomicInteger executions = new AtomicInteger();
+        assertThrows(AssertionError.class, () -> cache.getOrCompute("key-a", () -> {
+            executions.incrementAndGet();
+            throw new AssertionError("断言失败");
+        }));
+        assertNull(cache.getIfPresent("key-a"));
+        assertEquals("重新执行", cache.getOrCompute("key-a", () -> {
+            executions.incrementAndGet();
+            return "重新执行";
+        }));
+        assertEquals(2, executions.get());
+
+        System.out.println("✓ " + ownerError.get());
+    }
+}
@@ -0,0 +1,113 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import util.Money;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Money金额工具测试
+ */
+public class MoneyTest {
+
+    /**
+     * 测试1: 元转换为分，最多两位小数时精确转换，否则返回INVALID
+     */
+    @Test
+    public void testOfYuan() {
+        System.out.println("测试1: 元转换为分");
+
+        assertEquals(1999L, Money.ofYuan(19.99));
+        assertEquals(10L, Money.ofYuan(0.1));
+        assertEquals(-1999L, Money.ofYuan(-19.99));
+        assertEquals(0L, Money.ofYuan(0));
+        assertEquals(Money.INVALID, Money.ofYuan(19.999));
+        // 0.1+0.2不等于0.3，带有浮点误差的计算结果不能当作两位小数的金额
+        assertEquals(Money.INVALID, Money.ofYuan(0.1 + 0.2));
+        assertEquals(30L, Money.roundYuan(0.1 + 0.2));
+        assertEquals(Money.INVALID, Money.ofYuan(Double.NaN));
+        assertEquals(Money.INVALID, Money.ofYuan(Double.POSITIVE_INFINITY));
+        assertEquals(Money.INVALID, Money.ofYuan(1e13));
+        assertEquals(Money.INVALID, Money.roundYuan(Double.NaN));
+
+        assertEquals(19.99, Money.toYuan(1999), 0);
+        assertTrue(Double.isNaN(Money.toYuan(Money.INVALID)));
+
+        System.out.println("✓ 19.99元 = " + Money.ofYuan(19.99) + "分");
+    }
+
+    /**
+     * 测试2: 区间上下界取整时容忍浮点误差，不会因为误差多取或少取一分
+     */
+    @Test
+    public void testCeilAndFloor() {
+        System.out.println("\n测试2: 区间上下界取整");
+
+        // 19.99 * 100 = 1998.9999999999998
+        assertEquals(1999L, Money.ceilYuan(19.99));
+        assertEquals(1999L, Money.floorYuan(19.99));
+        // 0.1 + 0.2 = 0.30000000000000004
+        assertEquals(30L, Money.ceilYuan(0.1 + 0.2));
+        assertEquals(30L, Money.floorYuan(0.1 + 0.2));
+        assertEquals(1L, Money.ceilYuan(0.001));
+        assertEquals(0L, Money.floorYuan(0.009));
+        assertEquals(1000L, Money.ceilYuan(9.995));
+        assertEquals(999L, Money.floorYuan(9.995));
+        assertEquals(-199L, Money.ceilYuan(-1.995));
+        assertEquals(-200L, Money.floorYuan(-1.995));
+
+        System.out.println("✓ 取整结果正确");
+    }
+
+    /**
+     * 测试3: 相加、相乘溢出或任一为INVALID时结果为INVALID
+     */
+    @Test
+    public void testArithmeticOverflow() {
+        System.out.println("\n测试3: 溢出返回INVALID");
+
+        assertEquals(3000L, Money.add(1000, 2000));
+        assertEquals(-500L, Money.add(1000, -1500));
+        assertEquals(Money.INVALID, Money.add(Long.MAX_VALUE, 1));
+        assertEquals(Money.INVALID, Money.add(Long.MIN_VALUE + 1, -2));
+        assertEquals(Long.MAX_VALUE, Money.add(Long.MAX_VALUE, 0));
+        assertEquals(Money.INVALID, Money.add(Money.INVALID, 100));
+        assertEquals(Money.INVALID, Money.add(100, Money.INVALID));
+
+        assertEquals(5997L, Money.multiply(1999, 3));
+        assertEquals(-5997L, Money.multiply(-1999, 3));
+        assertEquals(0L, Money.multiply(1999, 0));
+        assertEquals(Money.INVALID, Money.multiply(Long.MAX_VALUE / 2 + 1, 2));
+        assertEquals(Money.INVALID, Money.multiply(Long.MAX_VALUE, Integer.MAX_VALUE));
+        assertEquals(Money.INVALID, Money.multiply(Long.MIN_VALUE / 2 - 1, 2));
+        assertEquals(Money.INVALID, Money.multiply(Money.INVALID, 1));
+        assertEquals(Long.MAX_VALUE - 1, Money.multiply(Long.MAX_VALUE / 2, 2));
+
+        System.out.println("✓ 溢出结果为INVALID");
+    }
+
+    /**
+     * 测试4: 按"元.角分"格式输出，包括负数和不足1元的金额
+     */
+    @Test
+    public void testFormat() {
+        System.out.println("\n测试4: 金额格式化");
+
+        assertEquals("19.99", Money.format(1999));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("0.50", Money.format(50));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("100.00", Money.format(10000));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-0.50", Money.format(-50));
+        assertEquals("-19.99", Money.format(-1999));
+        assertEquals("-", Money.format(Money.INVALID));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+
+        StringBuilder sb = new StringBuilder("合计: ");
+        assertSame(sb, Money.appendTo(sb, -1));
+        assertEquals("合计: -0.01", sb.toString());
+
+        System.out.println("✓ " + Money.format(-1999));
+    }
+}
@@ -0,0 +1,159 @@
+package test;
+
+import model.entity.Product;
+import model.repository.OffHeapProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OffHeapProductRepository堆外商品目录测试
+ */
+public class OffHeapProductRepositoryTest {
+
+    private static Product product(String id, String name, double price, String category, int stock) {
+        Product product = new Product(id, name, price, category);
+        product.setStock(stock);
+        return product;
+    }
+
+    /**
+     * 测试1: 增删改查，字符串和数值字段都能读回
+     */
+    @Test
+    public void testCrudRoundTrip() {
+        System.out.println("测试1: 堆外商品的增删改查");
+
+        OffHeapProductRepository repository = new OffHeapProductRepository();
+        assertTrue(repository.add(product("P-OH-1", "台灯", 59.9, "家居", 10)));
+        assertTrue(repository.add(product("P-OH-2", "书架", 199.0, "家居", 3)));
+
+        Product lamp = repository.findById("P-OH-1");
+        assertEquals("P-OH-1", lamp.getId());
+        assertEquals("台灯", lamp.getName());
+        assertEquals("家居", lamp.getCategory());
+        assertEquals(5990L, lamp.getPriceCents());
+        assertEquals(10, lamp.getStock());
+        assertEquals(2, repository.count());
+
+        Product renamed = lamp.copy();
+        renamed.setName("护眼台灯");
+        renamed.setStock(8);
+        assertTrue(repository.update(renamed));
+        assertEquals("护眼台灯", lamp.getName());
+        assertEquals(8, lamp.getStock());
+        assertEquals(renamed.getVersion(), lamp.getVersion());
+
+        assertTrue(repository.delete("P-OH-2"));
+        assertNull(repository.findById("P-OH-2"));
+        assertFalse(repository.exists("P-OH-2"));
+        assertEquals(1, repository.findAll().size());
+        assertEquals(1, repository.count());
+
+        System.out.println("✓ 读回的字段与写入一致");
+    }
+
+    /**
+     * 测试2: 视图只读，修改必须在副本上进行并按版本号提交
+     */
+    @Test
+    public void testViewsAreReadOnly() {
+        System.out.println("\n测试2: 视图只读，副本按版本号提交");
+
+        OffHeapProductRepository repository = new OffHeapProductRepository();
+        repository.add(product("P-OH-3", "水杯", 25.0, "厨具", 40));
+        Product view = repository.findById("P-OH-3");
+
+        assertThrows(UnsupportedOperationException.class, () -> view.setStock(1));
+        assertThrows(UnsupportedOperationException.class, () -> view.setPrice(1.0));
+        assertThrows(UnsupportedOperationException.class, () -> view.decreaseStock(1));
+        assertThrows(UnsupportedOperationException.class, () -> view.setVersion(99));
+        assertEquals(40, view.getStock());
+
+        Product first = view.copy();
+        Product second = view.copy();
+        first.setStock(39);
+        assertTrue(repository.update(first, first.getVersion()));
+
+        // 第二个副本基于旧版本，提交失败，不会覆盖第一次修改
+        second.setPrice(1.0);
+        assertFalse(repository.update(second, second.getVersion()));
+        assertEquals(39, view.getStock());
+        assertEquals(2500L, view.getPriceCents());
+
+        System.out.println("✓ 旧版本的副本提交失败");
+    }
+
+    /**
+     * 测试3: 并发写入时，copy()得到的价格、库存、版本属于同一次写入
+     */
+    @Test
+    public void testCopyIsConsistentUnderConcurrentWrites() throws InterruptedException {
+        System.out.println("\n测试3: 并发写入时副本的各字段一致");
+
+        OffHeapProductRepository repository = new OffHeapProductRepository();
+        repository.add(product("P-OH-4", "耳机", 1.0, "数码", 1));
+        Product view = repository.findById("P-OH-4");
+        long baseVersion = view.getVersion();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger mismatches = new AtomicInteger();
+        Thread[] readers = new Thread[3];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (running.get()) {
+                    Product copy = view.copy();
+                    // 每次写入都满足：价格 = 库存 * 100分，版本 = 基准版本 + 库存 - 1
+                    if (copy.getPriceCents() != copy.getStock() * 100L
+                            || copy.getVersion() != baseVersion + copy.getStock() - 1) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        for (int i = 2; i <= 20_000; i++) {
+            Product copy = view.copy();
+            copy.setStock(i);
+            copy.setPriceCents(i * 100L);
+            assertTrue(repository.update(copy, copy.getVersion()));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(0, mismatches.get());
+        assertEquals(20_000, view.getStock());
+
+        System.out.println("✓ 没有读到拼接自两次写入的副本");
+    }
+
+    /**
+     * 测试4: 按价格区间扫描，跳过已删除的商品
+     */
+    @Test
+    public void testFindByPriceRange() {
+        System.out.println("\n测试4: 按价格区间扫描");
+
+        OffHeapProductRepository repository = new OffHeapProductRepository();
+        for (int i = 1; i <= 100; i++) {
+            repository.add(product("P-OH-R" + i, "商品" + i, i, "批量", i));
+        }
+        repository.delete("P-OH-R15");
+
+        List<Product> result = repository.findByPriceRange(1000, 2000);
+        assertEquals(10, result.size());
+        for (Product product : result) {
+            assertTrue(product.getPriceCents() >= 1000 && product.getPriceCents() <= 2000);
+            assertFalse("P-OH-R15".equals(product.getId()));
+        }
+
+        System.out.println("✓ 区间内" + result.size() + "个商品");
+    }
+}
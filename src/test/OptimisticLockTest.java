@@ -0,0 +1,204 @@
+package test;
+
+import exception.OptimisticLockException;
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderItem;
+import model.entity.Product;
+import model.repository.ProductRepository;
+import model.service.InventoryService;
+import model.service.OrderService;
+import model.service.ProductService;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按版本号更新（乐观并发控制）测试
+ */
+public class OptimisticLockTest {
+
+    private static Order newOrder(String orderId, String productId, int quantity) {
+        Order order = new Order(orderId, new Customer("C-LOCK-1", "并发客户", "13800000000"));
+        OrderItem item = new OrderItem();
+        item.setProductId(productId);
+        item.setProductName("并发商品");
+        item.setPrice(10.0);
+        item.setQuantity(quantity);
+        item.calculateSubtotal();
+        order.addItem(item);
+        return order;
+    }
+
+    // 多个线程同时开始，各执行rounds次action
+    private static void runConcurrently(int threads, int rounds, ThreadAction action) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int n = 0; n < rounds; n++) {
+                        action.run(index, n);
+                    }
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadAction {
+        void run(int thread, int round) throws Exception;
+    }
+
+    /**
+     * 测试1: 仓库按版本号更新，版本一致时写入并加1，版本过期时拒绝且不修改已存的数据
+     */
+    @Test
+    public void testRepositoryRejectsStaleVersion() {
+        System.out.println("测试1: 过期版本号的更新被拒绝");
+
+        ProductRepository repository = new ProductRepository();
+        Product product = new Product("P-LOCK-REPO", "版本商品", 10.0, "测试类");
+        product.setStock(5);
+        assertTrue(repository.add(product));
+        long version = repository.findById("P-LOCK-REPO").getVersion();
+
+        Product first = repository.findById("P-LOCK-REPO").copy();
+        Product second = repository.findById("P-LOCK-REPO").copy();
+        first.setStock(8);
+        assertTrue(repository.update(first, version));
+        assertEquals(version + 1, repository.findById("P-LOCK-REPO").getVersion());
+
+        // second基于同一版本读取，提交时版本已过期
+        second.setStock(1);
+        assertFalse(repository.update(second, version));
+        assertEquals(8, repository.findById("P-LOCK-REPO").getStock());
+        assertEquals(version + 1, repository.findById("P-LOCK-REPO").getVersion());
+
+        // 无条件更新同样递增版本号，之前读取的版本随之失效
+        Product overwrite = repository.findById("P-LOCK-REPO").copy();
+        overwrite.setStock(3);
+        assertTrue(repository.update(overwrite));
+        assertEquals(version + 2, repository.findById("P-LOCK-REPO").getVersion());
+        assertFalse(repository.update(repository.findById("P-LOCK-REPO").copy(), version + 1));
+
+        Product missing = new Product("P-LOCK-NONE", "不存在", 1.0, "测试类");
+        assertFalse(repository.update(missing, 0));
+
+        System.out.println("✓ 当前版本" + repository.findById("P-LOCK-REPO").getVersion());
+    }
+
+    /**
+     * 测试2: 商品服务按版本号更新，期间被他人修改时抛出OptimisticLockException，成功时同步库存记录
+     */
+    @Test
+    public void testUpdateProductWithStaleVersion() throws Exception {
+        System.out.println("\n测试2: 商品被并发修改时抛出乐观锁异常");
+
+        ProductService productService = ProductService.getInstance();
+        InventoryService inventoryService = InventoryService.getInstance();
+        Product product = new Product("P-LOCK-SERVICE", "版本商品", 10.0, "测试类");
+        product.setStock(20);
+        productService.addProduct(product);
+
+        Product mine = productService.getProductById("P-LOCK-SERVICE").copy();
+        Product theirs = productService.getProductById("P-LOCK-SERVICE").copy();
+        long version = mine.getVersion();
+
+        theirs.setStock(30);
+        productService.updateProduct(theirs, version);
+        assertEquals(30, inventoryService.getStockQuantity("P-LOCK-SERVICE"));
+
+        mine.setName("版本商品-改名");
+        OptimisticLockException e = assertThrows(OptimisticLockException.class,
+                () -> productService.updateProduct(mine, version));
+        assertTrue(e.getMessage().contains("P-LOCK-SERVICE"));
+        assertEquals("版本商品", productService.getProductById("P-LOCK-SERVICE").getName());
+
+        // 重新读取后重试成功
+        Product retry = productService.getProductById("P-LOCK-SERVICE").copy();
+        retry.setName("版本商品-改名");
+        retry.setStock(25);
+        productService.updateProduct(retry, retry.getVersion());
+        assertEquals("版本商品-改名", productService.getProductById("P-LOCK-SERVICE").getName());
+        assertEquals(25, inventoryService.getStockQuantity("P-LOCK-SERVICE"));
+
+        System.out.println("✓ " + e.getMessage());
+    }
+
+    /**
+     * 测试3: 并发下单时扣减冲突重试，不丢失更新，商品库存与库存记录一致
+     */
+    @Test
+    public void testConcurrentOrdersRetryOnConflict() throws Exception {
+        System.out.println("\n测试3: 并发下单不丢失库存扣减");
+
+        ProductService productService = ProductService.getInstance();
+        InventoryService inventoryService = InventoryService.getInstance();
+        OrderService orderService = OrderService.getInstance();
+        Product product = new Product("P-LOCK-ORDER", "并发商品", 10.0, "测试类");
+        product.setStock(100);
+        productService.addProduct(product);
+
+        AtomicInteger seq = new AtomicInteger();
+        runConcurrently(4, 20, (thread, round) ->
+                orderService.createOrder(newOrder("O-LOCK-" + seq.incrementAndGet(), "P-LOCK-ORDER", 1)));
+
+        assertEquals(20, productService.getProductById("P-LOCK-ORDER").getStock());
+        assertEquals(20, inventoryService.getInventoryByProductId("P-LOCK-ORDER").getQuantity());
+
+        System.out.println("✓ 售出80件，剩余库存20");
+    }
+
+    /**
+     * 测试4: 并发入库、出库时库存记录按版本号重试，数量守恒，商品库存同步一致
+     */
+    @Test
+    public void testConcurrentAdjustInventoryRetryOnConflict() throws Exception {
+        System.out.println("\n测试4: 并发调整库存数量守恒");
+
+        ProductService productService = ProductService.getInstance();
+        InventoryService inventoryService = InventoryService.getInstance();
+        Product product = new Product("P-LOCK-ADJUST", "并发商品", 10.0, "测试类");
+        product.setStock(100);
+        productService.addProduct(product);
+
+        // 两个线程入库、两个线程出库，另有两个线程通过商品服务出库、入库
+        runConcurrently(6, 50, (thread, round) -> {
+            switch (thread) {
+                case 0:
+                case 1:
+                    inventoryService.adjustInventory("P-LOCK-ADJUST", 2, "in");
+                    break;
+                case 2:
+                case 3:
+                    inventoryService.adjustInventory("P-LOCK-ADJUST", 1, "out");
+                    break;
+                case 4:
+                    assertTrue(productService.stockOut("P-LOCK-ADJUST", 1));
+                    break;
+                default:
+                    productService.stockIn("P-LOCK-ADJUST", 1);
+                    break;
+            }
+        });
+
+        // 100 + 2*50*2 - 1*50*2 - 50 + 50 = 200
+        assertEquals(200, inventoryService.getInventoryByProductId("P-LOCK-ADJUST").getQuantity());
+        assertEquals(200, productService.getProductById("P-LOCK-ADJUST").getStock());
+
+        System.out.println("✓ 库存数量200");
+    }
+}
@@ -0,0 +1,178 @@
+package test;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderStatus;
+import model.entity.Product;
+import model.repository.OrderRepository;
+import model.repository.ProductRepository;
+import model.service.OrderAnalyticsEngine;
+import model.service.OrderAnalyticsEngine.Aggregate;
+import model.service.OrderAnalyticsEngine.GroupBy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderAnalyticsEngine并行分组聚合测试
+ * 订单数量超过分片大小(1024)，结果由多个分片合并得到，与顺序计算的结果比较
+ */
+public class OrderAnalyticsEngineTest {
+
+    private static final int ORDER_COUNT = 5000;
+
+    private final OrderRepository orderRepository = new OrderRepository();
+    private final ProductRepository productRepository = new ProductRepository();
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final OrderAnalyticsEngine engine;
+
+    public OrderAnalyticsEngineTest() {
+        productRepository.add(new Product("P-AE-1", "钢笔", 1.0, "文具"));
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Customer customer = i % 13 == 0 ? null : new Customer("C-AE-" + (i % 7), "客户", "13800000000");
+            Order order = new Order(String.format("O-AE-%05d", i), customer);
+            // 下单时未记录分类，按商品仓库中的分类统计
+            order.getLines().append("P-AE-1", "钢笔", null, 100 + i % 3, 1 + i % 4);
+            if (i % 2 == 0) {
+                order.getLines().append("P-AE-2", "饼干", "食品", 500, 2);
+            }
+            if (i % 10 == 0) {
+                // 商品已删除且未记录分类
+                order.getLines().append("P-AE-GONE", "旧商品", null, 50, 1);
+            }
+            order.setStatus(OrderStatus.values()[i % OrderStatus.values().length]);
+            orderRepository.add(order);
+        }
+        engine = new OrderAnalyticsEngine(orderRepository, productRepository, pool);
+    }
+
+    // 顺序计算的期望结果：{数量, 金额, 件数}
+    private Map<String, long[]> expected(Predicate<Order> filter, GroupBy groupBy) {
+        Map<String, long[]> result = new HashMap<>();
+        for (Order order : orderRepository.findAll()) {
+            if (filter != null && !filter.test(order)) {
+                continue;
+            }
+            if (groupBy == GroupBy.PRODUCT || groupBy == GroupBy.CATEGORY) {
+                for (int line = 0; line < order.getLines().size(); line++) {
+                    String key = order.getLines().getProductId(line);
+                    if (groupBy == GroupBy.CATEGORY) {
+                        key = order.getLines().getCategory(line) != null ? order.getLines().getCategory(line)
+                                : "P-AE-1".equals(key) ? "文具" : "未知";
+                    }
+                    add(result, key, order.getLines().getSubtotalCents(line), order.getLines().getQuantity(line));
+                }
+                continue;
+            }
+            String key;
+            if (groupBy == GroupBy.STATUS) {
+                key = order.getStatus();
+            } else if (groupBy == GroupBy.CUSTOMER) {
+                key = order.getCustomer() == null ? "未知" : order.getCustomer().getId();
+            } else {
+                key = OrderAnalyticsEngine.ALL;
+            }
+            add(result, key, order.getTotalCents(), order.getTotalQuantity());
+        }
+        return result;
+    }
+
+    private static void add(Map<String, long[]> result, String key, long amountCents, long quantity) {
+        long[] sums = result.computeIfAbsent(key, k -> new long[3]);
+        sums[0]++;
+        sums[1] += amountCents;
+        sums[2] += quantity;
+    }
+
+    private static void assertSameAggregates(Map<String, long[]> expected, Map<String, Aggregate> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, long[]> entry : expected.entrySet()) {
+            Aggregate aggregate = actual.get(entry.getKey());
+            assertEquals(entry.getValue()[0], aggregate.getCount(), entry.getKey());
+            assertEquals(entry.getValue()[1], aggregate.getAmountCents(), entry.getKey());
+            assertEquals(entry.getValue()[2], aggregate.getQuantity(), entry.getKey());
+        }
+    }
+
+    /**
+     * 测试1: 各个分组维度的并行聚合结果与顺序计算一致
+     */
+    @Test
+    public void testEachGroupByMatchesSequential() {
+        System.out.println("测试1: 各分组维度的聚合结果");
+
+        Predicate<Order> paidOrLater = order -> order.getOrderStatus() != OrderStatus.PENDING
+                && order.getOrderStatus() != OrderStatus.CANCELLED;
+        for (GroupBy groupBy : GroupBy.values()) {
+            assertSameAggregates(expected(null, groupBy), engine.aggregate(null, groupBy));
+            assertSameAggregates(expected(paidOrLater, groupBy), engine.aggregate(paidOrLater, groupBy));
+        }
+
+        Map<String, Aggregate> all = engine.aggregate(null, GroupBy.NONE);
+        assertEquals(ORDER_COUNT, all.get(OrderAnalyticsEngine.ALL).getCount());
+        assertEquals(OrderStatus.values().length, engine.aggregate(null, GroupBy.STATUS).size());
+
+        System.out.println("✓ " + all.get(OrderAnalyticsEngine.ALL));
+    }
+
+    /**
+     * 测试2: 未记录分类的订单项按商品仓库中的分类统计，商品不存在时归入"未知"；没有客户的订单也归入"未知"
+     */
+    @Test
+    public void testUnknownFallback() {
+        System.out.println("\n测试2: 分类、客户缺失时归入未知");
+
+        Map<String, Aggregate> byCategory = engine.aggregate(null, GroupBy.CATEGORY);
+        assertEquals(3, byCategory.size());
+        assertEquals(ORDER_COUNT, byCategory.get("文具").getCount());
+        assertEquals(ORDER_COUNT / 2, byCategory.get("食品").getCount());
+        assertEquals(ORDER_COUNT / 10, byCategory.get("未知").getCount());
+        assertEquals(50L * (ORDER_COUNT / 10), byCategory.get("未知").getAmountCents());
+
+        Map<String, Aggregate> byCustomer = engine.aggregate(null, GroupBy.CUSTOMER);
+        assertEquals((ORDER_COUNT + 12) / 13, byCustomer.get("未知").getCount());
+
+        // 各分片合并后总数不变
+        long total = 0;
+        for (Aggregate aggregate : byCustomer.values()) {
+            total += aggregate.getCount();
+        }
+        assertEquals(ORDER_COUNT, total);
+
+        System.out.println("✓ 未知分类: " + byCategory.get("未知"));
+    }
+
+    /**
+     * 测试3: 并行筛选的结果保持订单快照中的顺序
+     */
+    @Test
+    public void testSelectKeepsSnapshotOrder() {
+        System.out.println("\n测试3: 并行筛选保持顺序");
+
+        List<Order> snapshot = new ArrayList<>(orderRepository.snapshot().values());
+        Predicate<Order> filter = order -> order.getTotalQuantity() % 2 == 0;
+        List<Order> expected = new ArrayList<>();
+        for (Order order : snapshot) {
+            if (filter.test(order)) {
+                expected.add(order);
+            }
+        }
+
+        List<Order> selected = engine.select(filter);
+        assertEquals(expected.size(), selected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), selected.get(i));
+        }
+        assertEquals(snapshot, engine.select(null));
+        assertTrue(engine.select(order -> false).isEmpty());
+
+        System.out.println("✓ 筛选出" + selected.size() + "个订单");
+    }
+}
@@ -0,0 +1,116 @@
+package test;
+
+import model.entity.OrderItem;
+import model.entity.OrderLines;
+import org.junit.jupiter.api.Test;
+import util.Money;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderLines按列存储的订单项容器测试
+ */
+public class OrderLinesTest {
+
+    /**
+     * 测试1: 增删改订单项时增量维护总金额和总数量
+     */
+    @Test
+    public void testSetAndRemoveAdjustTotals() {
+        System.out.println("测试1: 修改、删除订单项后合计正确");
+
+        OrderLines lines = new OrderLines();
+        lines.append("P-OL-1", "钢笔", "文具", 1250, 2);
+        lines.append("P-OL-2", "墨水", "文具", 800, 3);
+        lines.append("P-OL-3", "笔记本", "文具", 600, 5);
+        assertEquals(2500 + 2400 + 3000, lines.getTotalCents());
+        assertEquals(10, lines.getTotalQuantity());
+
+        lines.setQuantity(1, 1);
+        assertEquals(2500 + 800 + 3000, lines.getTotalCents());
+        lines.setPriceCents(0, 1000);
+        assertEquals(2000 + 800 + 3000, lines.getTotalCents());
+
+        OrderItem replacement = new OrderItem();
+        replacement.setProductId("P-OL-4");
+        replacement.setPriceCents(100);
+        replacement.setQuantity(7);
+        OrderItem old = lines.set(2, replacement);
+        assertEquals("P-OL-3", old.getProductId());
+        assertEquals(3000, old.getSubtotalCents());
+        assertEquals(2000 + 800 + 700, lines.getTotalCents());
+        assertEquals(2 + 1 + 7, lines.getTotalQuantity());
+
+        OrderItem removed = lines.remove(0);
+        assertEquals(2000, removed.getSubtotalCents());
+        assertEquals(2, lines.size());
+        assertEquals("P-OL-2", lines.getProductId(0));
+        assertEquals(800 + 700, lines.getTotalCents());
+        assertEquals(8, lines.getTotalQuantity());
+
+        // 通过视图修改会写回数组并更新合计
+        lines.get(1).setQuantity(1);
+        assertEquals(800 + 100, lines.getTotalCents());
+        assertEquals(lines.getTotalCents(), lines.recalculateTotal());
+
+        System.out.println("✓ 合计: " + lines.getTotalCents() + "分");
+    }
+
+    /**
+     * 测试2: 合计超出long范围时为INVALID，回到范围内后恢复
+     */
+    @Test
+    public void testWideAccumulator() {
+        System.out.println("\n测试2: 128位累加超出范围后可以恢复");
+
+        OrderLines lines = new OrderLines();
+        long half = Long.MAX_VALUE / 2 + 1;
+        lines.append("P-OL-BIG1", "大额1", null, half, 1);
+        lines.append("P-OL-BIG2", "大额2", null, half, 1);
+        assertEquals(Money.INVALID, lines.getTotalCents());
+
+        lines.append("P-OL-REFUND", "抵扣", null, -half, 1);
+        assertEquals(half, lines.getTotalCents());
+
+        lines.remove(1);
+        assertEquals(0, lines.getTotalCents());
+
+        // 负方向溢出同样可以判断
+        lines.clear();
+        lines.append("P-OL-NEG1", "负1", null, -half - 1, 1);
+        lines.append("P-OL-NEG2", "负2", null, -half - 1, 1);
+        assertEquals(Money.INVALID, lines.getTotalCents());
+        lines.setQuantity(1, 0);
+        assertEquals(-half - 1, lines.getTotalCents());
+
+        System.out.println("✓ 超出范围时为INVALID，抵消后恢复");
+    }
+
+    /**
+     * 测试3: 任一行小计无效时合计为INVALID，修正或删除该行后恢复
+     */
+    @Test
+    public void testInvalidLinePropagates() {
+        System.out.println("\n测试3: 无效小计传播到合计");
+
+        OrderLines lines = new OrderLines();
+        lines.append("P-OL-5", "信封", "文具", 50, 10);
+        lines.append("P-OL-6", "邮票", "文具", Money.INVALID, 2);
+        assertEquals(Money.INVALID, lines.getSubtotalCents(1));
+        assertEquals(Money.INVALID, lines.getTotalCents());
+        assertEquals(12, lines.getTotalQuantity());
+
+        lines.setPriceCents(1, 120);
+        assertEquals(500 + 240, lines.getTotalCents());
+
+        // 单行乘积溢出也算无效
+        lines.setQuantity(0, Integer.MAX_VALUE);
+        lines.setPriceCents(0, Long.MAX_VALUE / 2);
+        assertEquals(Money.INVALID, lines.getTotalCents());
+        lines.remove(0);
+        assertEquals(240, lines.getTotalCents());
+        assertEquals(2, lines.getTotalQuantity());
+
+        System.out.println("✓ 无效行修正后合计恢复");
+    }
+}
@@ -5,9 +5,16 @@ import model.entity.Customer;
 import model.entity.OrderItem;
 import exception.ValidationException;
 import model.entity.Product;
+import model.entity.OrderStatus;
+import model.repository.ChangeListener;
 import model.service.OrderService;
+import model.service.OrderStatusListener;
 import model.service.ProductService;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -264,4 +271,71 @@ public class OrderServiceTest {
             fail("获取统计信息失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试8: 订单保存后立即被其他线程取消，监听器仍先收到创建事件
+     */
+    @Test
+    public void testCreationEventPrecedesConcurrentCancel() throws Exception {
+        System.out.println("\n测试8: 并发取消时创建事件先于取消事件送达");
+
+        OrderService orderService = OrderService.getInstance();
+        ProductService productService = ProductService.getInstance();
+
+        Product product = new Product("P-test-event", "事件测试商品", 20.0, "测试类");
+        product.setStock(10);
+        productService.addProduct(product);
+
+        String orderId = "O-test-event";
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        OrderStatusListener recorder = (order, from, to) -> {
+            if (orderId.equals(order.getOrderId())) {
+                events.add(from + "->" + to);
+            }
+        };
+        // 订单一保存就在另一个线程中取消，并等待取消完成（最多200毫秒）
+        Thread[] canceller = new Thread[1];
+        ChangeListener<Order> cancelOnAdd = (id, item) -> {
+            if (orderId.equals(id) && canceller[0] == null) {
+                canceller[0] = new Thread(() -> {
+                    try {
+                        orderService.cancelOrder(orderId);
+                    } catch (Exception e) {
+                        events.add("取消失败: " + e.getMessage());
+                    }
+                });
+                canceller[0].start();
+                try {
+                    canceller[0].join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        orderService.addStatusListener(recorder);
+        orderService.getOrderRepository().addChangeListener(cancelOnAdd);
+        try {
+            Order order = new Order(orderId, new Customer("C-test-event", "事件客户", "13800000001"));
+            OrderItem item = new OrderItem();
+            item.setProductId("P-test-event");
+            item.setProductName("事件测试商品");
+            item.setPrice(20.0);
+            item.setQuantity(1);
+            item.calculateSubtotal();
+            order.addItem(item);
+
+            orderService.createOrder(order);
+            canceller[0].join();
+        } finally {
+            orderService.getOrderRepository().removeChangeListener(cancelOnAdd);
+            orderService.removeStatusListener(recorder);
+        }
+
+        assertEquals(2, events.size());
+        assertEquals("null->" + OrderStatus.PENDING, events.get(0));
+        assertEquals(OrderStatus.PENDING + "->" + OrderStatus.CANCELLED, events.get(1));
+        assertEquals(10, productService.getProductById("P-test-event").getStock());
+
+        System.out.println("✓ 事件顺序: " + events);
+    }
+}
@@ -0,0 +1,81 @@
+package test;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderItem;
+import model.entity.Product;
+import model.service.OrderSketches;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderSketches概率统计摘要的保留期测试
+ */
+public class OrderSketchesTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static Order order(String orderId, String customerId, String productId, int quantity) {
+        Order order = new Order(orderId, new Customer(customerId, "客户" + customerId, "13800000000"));
+        Product product = new Product(productId, "商品" + productId, 10.0, "测试类");
+        order.addItem(new OrderItem(product, quantity));
+        return order;
+    }
+
+    /**
+     * 测试1: 超过保留期的天摘要合并进月摘要，仍可按时间段估计
+     */
+    @Test
+    public void testOldDaysRollUpIntoMonths() {
+        System.out.println("测试1: 较早的天摘要合并为月摘要");
+
+        OrderSketches sketches = new OrderSketches(productId -> "测试类");
+        long now = System.currentTimeMillis();
+        // 过去100天每天一笔订单，客户各不相同
+        for (int i = 0; i < 100; i++) {
+            sketches.record(order("O-SK-" + i, "C-SK-" + i, "P-SK-1", 2), now - i * DAY, now);
+        }
+
+        assertTrue(sketches.getDayCount() <= 36, "天摘要数量: " + sketches.getDayCount());
+        assertTrue(sketches.getMonthCount() >= 2 && sketches.getMonthCount() <= 4,
+                "月摘要数量: " + sketches.getMonthCount());
+
+        long from = now - 100 * DAY;
+        long to = now + 1;
+        assertEquals(100.0, sketches.estimateDistinctCustomers(from, to), 5.0);
+        assertEquals(100.0, sketches.estimateDistinctCustomers("测试类", from, to), 5.0);
+        assertTrue(sketches.estimateProductUnits("P-SK-1", from, to) >= 200);
+
+        // 保留期内的天仍按天查询
+        assertEquals(1, sketches.estimateDistinctCustomers(now - DAY / 2, to));
+
+        System.out.println("✓ 天摘要" + sketches.getDayCount() + "个，月摘要" + sketches.getMonthCount() + "个");
+    }
+
+    /**
+     * 测试2: 超过月保留期的数据被丢弃，摘要数量有上限
+     */
+    @Test
+    public void testRetentionBoundsMemory() {
+        System.out.println("\n测试2: 超过保留期的月摘要被丢弃");
+
+        OrderSketches sketches = new OrderSketches(productId -> null);
+        long start = System.currentTimeMillis() - 2000 * DAY;
+        // 模拟连续运行2000天，每天按当天时间记录
+        for (int i = 0; i <= 2000; i++) {
+            long time = start + i * DAY;
+            sketches.record(order("O-SKR-" + i, "C-SKR-" + i, "P-SKR-1", 1), time, time);
+        }
+
+        assertTrue(sketches.getDayCount() <= 36, "天摘要数量: " + sketches.getDayCount());
+        assertTrue(sketches.getMonthCount() <= 36, "月摘要数量: " + sketches.getMonthCount());
+        assertEquals(0, sketches.estimateDistinctCustomers(start, start + 30 * DAY));
+
+        // 比保留期更早的订单不再记录
+        long now = start + 2000 * DAY;
+        sketches.record(order("O-SKR-OLD", "C-SKR-OLD", "P-SKR-1", 1), start, now);
+        assertEquals(0, sketches.estimateDistinctCustomers(start, start + DAY));
+
+        System.out.println("✓ 天摘要" + sketches.getDayCount() + "个，月摘要" + sketches.getMonthCount() + "个");
+    }
+}
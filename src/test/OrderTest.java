@@ -3,6 +3,7 @@ package test;
 import model.entity.Customer;
 import model.entity.Order;
 import model.entity.OrderItem;
+import model.entity.OrderStatus;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -187,4 +188,31 @@ public class OrderTest {
 
         System.out.println("✓ 订单项移除功能正常");
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试7: 原子状态流转
+     * 测试了transition只在当前状态与期望状态一致时成功
+     */
+    @Test
+    public void testAtomicTransition() {
+        System.out.println("\n测试7: 原子状态流转测试");
+
+        Customer customer = new Customer("C006", "并发用户", "13400134000");
+        Order order = new Order("O-006", customer);
+
+        // 付款成功后，基于旧状态的取消应该失败
+        assertTrue(order.transition(OrderStatus.PENDING, OrderStatus.PAID));
+        assertFalse(order.transition(OrderStatus.PENDING, OrderStatus.CANCELLED));
+        assertEquals(OrderStatus.PAID, order.getOrderStatus());
+
+        // 流转表不允许的流转即使期望状态正确也失败
+        assertFalse(order.transition(OrderStatus.PAID, OrderStatus.COMPLETED));
+
+        // 已付款订单可以取消
+        assertTrue(order.transition(OrderStatus.PAID, OrderStatus.CANCELLED));
+        assertEquals(Order.STATUS_CANCELLED, order.getStatus());
+        assertTrue(OrderStatus.CANCELLED.isTerminal());
+
+        System.out.println("✓ 原子状态流转正常");
+    }
+}
@@ -0,0 +1,91 @@
+package test;
+
+import model.service.PermissionRegistry;
+import model.service.PermissionRegistry.Permission;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PermissionRegistry权限注册表测试
+ */
+public class PermissionRegistryTest {
+
+    /**
+     * 测试1: 超级角色拥有所有权限，包括未注册和之后才注册的权限
+     */
+    @Test
+    public void testSuperRoleIsGrantedEverything() {
+        System.out.println("测试1: 超级角色拥有所有权限");
+
+        PermissionRegistry registry = new PermissionRegistry();
+        registry.register("product", "view");
+        registry.defineSuperRole("admin");
+
+        assertTrue(registry.isGranted("admin", "product", "view"));
+        assertTrue(registry.isGranted("admin", "report", "export"));
+
+        Permission later = registry.register("report", "export");
+        assertTrue(registry.isGranted("admin", later));
+
+        // 撤销对超级角色无效
+        registry.revoke("admin", later);
+        assertTrue(registry.isGranted("admin", later));
+
+        System.out.println("✓ 超级角色通过未注册权限的检查");
+    }
+
+    /**
+     * 测试2: 自定义角色只拥有授予的权限，未注册的权限和未知角色一律拒绝
+     */
+    @Test
+    public void testCustomRole() {
+        System.out.println("\n测试2: 自定义角色的权限");
+
+        PermissionRegistry registry = new PermissionRegistry();
+        Permission view = registry.register("order", "view");
+        Permission manage = registry.register("order", "manage");
+        registry.defineRole("auditor", view);
+
+        assertTrue(registry.hasRole("auditor"));
+        assertTrue(registry.isGranted("auditor", view));
+        assertTrue(registry.isGranted("auditor", "order", "view"));
+        assertFalse(registry.isGranted("auditor", manage));
+        assertFalse(registry.isGranted("auditor", "order", "delete"));
+        assertFalse(registry.isGranted("guest", "order", "view"));
+        assertFalse(registry.isGranted(null, "order", "view"));
+        assertSame(view, registry.register("order", "view"));
+
+        System.out.println("✓ 只通过授予的权限");
+    }
+
+    /**
+     * 测试3: 授权和撤销，包括位集第一个long之外的权限
+     */
+    @Test
+    public void testGrantAndRevoke() {
+        System.out.println("\n测试3: 授权和撤销");
+
+        PermissionRegistry registry = new PermissionRegistry();
+        Permission first = registry.register("product", "view");
+        Permission far = null;
+        for (int i = 0; i < 100; i++) {
+            far = registry.register("resource" + i, "use");
+        }
+        assertTrue(far.getId() >= 64);
+
+        registry.grant("operator", first, far);
+        assertTrue(registry.isGranted("operator", first));
+        assertTrue(registry.isGranted("operator", far));
+        assertTrue(registry.isGranted("operator", "resource99", "use"));
+
+        registry.revoke("operator", far);
+        assertTrue(registry.isGranted("operator", first));
+        assertFalse(registry.isGranted("operator", far));
+
+        assertTrue(registry.removeRole("operator"));
+        assertFalse(registry.isGranted("operator", first));
+
+        System.out.println("✓ 授权、撤销后立即生效");
+    }
+}
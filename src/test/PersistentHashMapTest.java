@@ -0,0 +1,116 @@
+package test;
+
+import util.PersistentHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PersistentHashMap持久化哈希映射测试
+ */
+public class PersistentHashMapTest {
+
+    // 哈希值只有少数几种的键，用来制造哈希冲突
+    private static final class CollidingKey {
+        private final int value;
+
+        CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value % 7;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+    }
+
+    /**
+     * 测试1: 修改返回新映射，原映射不变
+     */
+    @Test
+    public void testPlusAndMinusKeepOldVersion() {
+        System.out.println("测试1: 修改返回新映射");
+
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, Integer> one = empty.plus("a", 1);
+        PersistentHashMap<String, Integer> two = one.plus("b", 2);
+        PersistentHashMap<String, Integer> replaced = two.plus("a", 10);
+        PersistentHashMap<String, Integer> removed = replaced.minus("b");
+
+        assertEquals(0, empty.size());
+        assertEquals(Map.of("a", 1), one);
+        assertEquals(Map.of("a", 1, "b", 2), two);
+        assertEquals(Map.of("a", 10, "b", 2), replaced);
+        assertEquals(Map.of("a", 10), removed);
+        assertSame(removed, removed.minus("missing"));
+        assertThrows(UnsupportedOperationException.class, () -> two.put("c", 3));
+
+        System.out.println("✓ 原映射不变");
+    }
+
+    /**
+     * 测试2: 随机增删与HashMap结果一致，包括哈希冲突的键
+     */
+    @Test
+    public void testMatchesHashMap() {
+        System.out.println("\n测试2: 与HashMap结果一致");
+
+        Random random = new Random(42);
+        Map<Object, Integer> expected = new HashMap<>();
+        PersistentHashMap<Object, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            Object key = i % 2 == 0 ? "k" + random.nextInt(500) : new CollidingKey(random.nextInt(300));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        int count = 0;
+        for (Map.Entry<Object, Integer> entry : map.entrySet()) {
+            assertEquals(expected.get(entry.getKey()), entry.getValue());
+            count++;
+        }
+        assertEquals(expected.size(), count);
+
+        System.out.println("✓ 随机增删后共" + count + "个键");
+    }
+
+    /**
+     * 测试3: 快照遍历期间继续修改，快照内容不变
+     */
+    @Test
+    public void testSnapshotIsStable() {
+        System.out.println("\n测试3: 快照内容不变");
+
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            map = map.plus(i, i);
+        }
+        PersistentHashMap<Integer, Integer> snapshot = map;
+        long sum = 0;
+        for (int value : snapshot.values()) {
+            map = map.minus(value).plus(value + 1000, value);
+            sum += value;
+        }
+        assertEquals(499500, sum);
+        assertEquals(1000, snapshot.size());
+        assertTrue(snapshot.containsKey(0));
+        assertFalse(map.containsKey(0));
+
+        System.out.println("✓ 遍历期间修改不影响快照");
+    }
+}
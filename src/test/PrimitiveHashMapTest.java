@@ -0,0 +1,194 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import util.HashUtil;
+import util.LongObjectHashMap;
+import util.ObjectIntHashMap;
+import util.ObjectLongHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ObjectIntHashMap、ObjectLongHashMap、LongObjectHashMap开放寻址哈希映射测试
+ */
+public class PrimitiveHashMapTest {
+
+    // 哈希值只有少数几种的键，用来制造哈希冲突
+    private static final class CollidingKey {
+        private final int value;
+
+        CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value % 3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+    }
+
+    /**
+     * 测试1: 探测链中间的条目被删除后，链上后续的键仍能找到，包括null键
+     */
+    @Test
+    public void testRemoveWhileColliding() {
+        System.out.println("测试1: 冲突链上删除条目");
+
+        ObjectIntHashMap<CollidingKey> ints = new ObjectIntHashMap<>();
+        ObjectLongHashMap<CollidingKey> longs = new ObjectLongHashMap<>();
+        for (int i = 0; i < 9; i++) {
+            ints.put(new CollidingKey(i), i);
+            longs.put(new CollidingKey(i), i * 1_000_000_000_000L);
+        }
+        ints.put(null, -1);
+        longs.put(null, -1L);
+
+        // 删除同一哈希值的第一个键，后面同哈希值的键需要前移
+        for (int removed = 0; removed < 3; removed++) {
+            assertEquals(removed, ints.remove(new CollidingKey(removed)));
+            assertEquals(removed * 1_000_000_000_000L, longs.remove(new CollidingKey(removed)));
+            assertFalse(ints.containsKey(new CollidingKey(removed)));
+            for (int i = removed + 1; i < 9; i++) {
+                assertEquals(i, ints.getOrDefault(new CollidingKey(i), -99), "键" + i);
+                assertEquals(i * 1_000_000_000_000L, longs.getOrDefault(new CollidingKey(i), -99L), "键" + i);
+            }
+        }
+        assertEquals(7, ints.size());
+        assertEquals(-1, ints.get(null));
+        assertEquals(-1, ints.remove(null));
+        assertFalse(ints.containsKey(null));
+        assertEquals(0, ints.remove(null));
+        assertEquals(-1L, longs.remove(null));
+        assertEquals(6, longs.size());
+
+        // 16个槽位的表中落在同一起始槽位的long键
+        List<Long> sameHome = new ArrayList<>();
+        for (long key = 0; sameHome.size() < 6; key++) {
+            if (((int) HashUtil.mix64(key) & 15) == 5) {
+                sameHome.add(key);
+            }
+        }
+        LongObjectHashMap<String> byId = new LongObjectHashMap<>();
+        for (long key : sameHome) {
+            byId.put(key, "值" + key);
+        }
+        assertEquals("值" + sameHome.get(1), byId.remove(sameHome.get(1)));
+        assertEquals("值" + sameHome.get(0), byId.remove(sameHome.get(0)));
+        assertNull(byId.remove(sameHome.get(0)));
+        for (int i = 2; i < sameHome.size(); i++) {
+            assertEquals("值" + sameHome.get(i), byId.get(sameHome.get(i)));
+        }
+        assertEquals(4, byId.size());
+
+        System.out.println("✓ 删除后冲突链上的键都能找到");
+    }
+
+    /**
+     * 测试2: 超过负载因子时扩容，扩容后原有条目不丢失
+     */
+    @Test
+    public void testResizeKeepsEntries() {
+        System.out.println("\n测试2: 扩容保留全部条目");
+
+        ObjectIntHashMap<String> ints = new ObjectIntHashMap<>(2);
+        ObjectLongHashMap<String> longs = new ObjectLongHashMap<>(2);
+        LongObjectHashMap<String> byId = new LongObjectHashMap<>(2);
+        for (int i = 0; i < 10_000; i++) {
+            ints.addTo("分类" + (i % 5000), 1);
+            longs.addTo("分类" + (i % 5000), i);
+            byId.put(Long.MIN_VALUE + i * 7919L, "订单" + i);
+        }
+        ints.addTo(null, 3);
+
+        assertEquals(5001, ints.size());
+        assertEquals(5000, longs.size());
+        assertEquals(10_000, byId.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(2, ints.get("分类" + i));
+            assertEquals(i + (i + 5000L), longs.get("分类" + i));
+        }
+        assertEquals(3, ints.get(null));
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("订单" + i, byId.get(Long.MIN_VALUE + i * 7919L));
+        }
+
+        Map<String, Integer> copied = ints.toMap();
+        assertEquals(5001, copied.size());
+        assertEquals(Integer.valueOf(3), copied.get(null));
+
+        long[] sum = {0};
+        byId.forEach((key, value) -> sum[0]++);
+        assertEquals(10_000, sum[0]);
+
+        ints.clear();
+        assertTrue(ints.isEmpty());
+        assertFalse(ints.containsKey("分类1"));
+
+        System.out.println("✓ 扩容后共" + byId.size() + "个条目");
+    }
+
+    /**
+     * 测试3: 随机增删改与HashMap结果一致
+     */
+    @Test
+    public void testMatchesHashMap() {
+        System.out.println("\n测试3: 与HashMap结果一致");
+
+        Random random = new Random(7);
+        ObjectIntHashMap<Object> ints = new ObjectIntHashMap<>();
+        ObjectLongHashMap<Object> longs = new ObjectLongHashMap<>();
+        LongObjectHashMap<Integer> byId = new LongObjectHashMap<>();
+        Map<Object, Integer> expectedInts = new HashMap<>();
+        Map<Object, Long> expectedLongs = new HashMap<>();
+        Map<Long, Integer> expectedById = new HashMap<>();
+
+        for (int n = 0; n < 50_000; n++) {
+            int r = random.nextInt(400);
+            Object key = r == 0 ? null : (r % 2 == 0 ? "k" + r : new CollidingKey(r));
+            long id = random.nextInt(400) - 200L;
+            int op = random.nextInt(4);
+            if (op == 0) {
+                assertEquals(expectedInts.getOrDefault(key, 0).intValue(), ints.remove(key));
+                expectedInts.remove(key);
+                assertEquals(expectedLongs.getOrDefault(key, 0L).longValue(), longs.remove(key));
+                expectedLongs.remove(key);
+                assertEquals(expectedById.remove(id), byId.remove(id));
+            } else if (op == 1) {
+                assertEquals(expectedInts.getOrDefault(key, 0).intValue(), ints.put(key, n));
+                expectedInts.put(key, n);
+                assertEquals(expectedLongs.getOrDefault(key, 0L).longValue(), longs.put(key, -n));
+                expectedLongs.put(key, (long) -n);
+                assertEquals(expectedById.put(id, n), byId.put(id, n));
+            } else {
+                expectedInts.merge(key, 1, Integer::sum);
+                assertEquals(expectedInts.get(key).intValue(), ints.addTo(key, 1));
+                expectedLongs.merge(key, 3L, Long::sum);
+                assertEquals(expectedLongs.get(key).longValue(), longs.addTo(key, 3));
+                Integer value = byId.computeIfAbsent(id, k -> (int) k);
+                assertEquals(expectedById.computeIfAbsent(id, k -> (int) (long) k), value);
+            }
+            assertEquals(expectedInts.size(), ints.size());
+            assertEquals(expectedLongs.size(), longs.size());
+            assertEquals(expectedById.size(), byId.size());
+        }
+
+        assertEquals(expectedInts, ints.toMap());
+        assertEquals(expectedLongs, longs.toMap());
+        Map<Long, Integer> copied = new HashMap<>();
+        byId.forEach(copied::put);
+        assertEquals(expectedById, copied);
+
+        System.out.println("✓ 结束时共" + ints.size() + "个键");
+    }
+}
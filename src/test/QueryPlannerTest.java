@@ -0,0 +1,122 @@
+package test;
+
+import model.entity.Product;
+import model.repository.Criteria;
+import model.repository.ProductRepository;
+import model.repository.Query;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询计划器与索引测试：AND求交集的截止、OR求并集、n-gram关键词查找
+ */
+public class QueryPlannerTest {
+
+    // 100个文具(价格1~100元)和20个书籍
+    private static ProductRepository catalog() {
+        ProductRepository repository = new ProductRepository();
+        for (int i = 1; i <= 100; i++) {
+            repository.add(new Product("P-QP-S" + i, "文具" + i, i, "文具"));
+        }
+        for (int i = 1; i <= 20; i++) {
+            repository.add(new Product("P-QP-B" + i, "书籍" + i, i, "书籍"));
+        }
+        return repository;
+    }
+
+    /**
+     * 测试1: AND先走估计值最小的索引，候选足够少时不再求交集
+     */
+    @Test
+    public void testAndStopsIntersectingBelowCutoff() {
+        System.out.println("测试1: AND求交集的截止");
+
+        ProductRepository repository = catalog();
+
+        // 价格10~20元只有22个候选，不再与分类索引求交集
+        Query<Product> narrow = new Query<Product>().where(Criteria.allOf(
+                Criteria.eq(ProductRepository.CATEGORY, "文具"),
+                Criteria.between(ProductRepository.PRICE, 1000L, 2000L)));
+        String plan = repository.explain(narrow);
+        assertTrue(plan.startsWith("INTERSECT(INDEX price"), plan);
+        assertFalse(plan.contains("INDEX category"), plan);
+        assertEquals(11, repository.query(narrow).size());
+
+        // 价格1~50元有70个候选，继续与分类索引求交集
+        Query<Product> wide = new Query<Product>().where(Criteria.allOf(
+                Criteria.eq(ProductRepository.CATEGORY, "文具"),
+                Criteria.between(ProductRepository.PRICE, 100L, 5000L)));
+        plan = repository.explain(wide);
+        assertTrue(plan.startsWith("INTERSECT(INDEX price"), plan);
+        assertTrue(plan.contains("INDEX category"), plan);
+        assertEquals(50, repository.query(wide).size());
+
+        // 单个条件也可以用allOf组合
+        Query<Product> single = new Query<Product>().where(
+                Criteria.allOf(Criteria.eq(ProductRepository.CATEGORY, "书籍")));
+        assertEquals(20, repository.query(single).size());
+
+        System.out.println("✓ 计划: " + plan);
+    }
+
+    /**
+     * 测试2: OR的每个分支都能走索引时取并集，否则全表扫描
+     */
+    @Test
+    public void testOrUnion() {
+        System.out.println("\n测试2: OR求并集");
+
+        ProductRepository repository = catalog();
+
+        Query<Product> union = new Query<Product>().where(Criteria.anyOf(
+                Criteria.eq(ProductRepository.CATEGORY, "书籍"),
+                Criteria.between(ProductRepository.PRICE, 9900L, 10000L)));
+        String plan = repository.explain(union);
+        assertTrue(plan.startsWith("UNION("), plan);
+        assertEquals(22, repository.query(union).size());
+
+        Query<Product> scan = new Query<Product>().where(Criteria.anyOf(
+                Criteria.eq(ProductRepository.CATEGORY, "书籍"),
+                Criteria.where("库存为0", product -> product.getStock() == 0)));
+        assertEquals("SCAN 120", repository.explain(scan));
+        assertEquals(120, repository.query(scan).size());
+
+        System.out.println("✓ 计划: " + plan);
+    }
+
+    /**
+     * 测试3: n-gram索引按关键词片段查找，不区分大小写，随名称修改更新
+     */
+    @Test
+    public void testNGramLookup() {
+        System.out.println("\n测试3: n-gram关键词查找");
+
+        ProductRepository repository = new ProductRepository();
+        repository.add(new Product("P-QP-N1", "USB数据线", 19.0, "数码"));
+        repository.add(new Product("P-QP-N2", "Type-C数据线", 29.0, "数码"));
+        repository.add(new Product("P-QP-N3", "无线鼠标", 59.0, "数码"));
+
+        Query<Product> query = new Query<Product>().where(Criteria.contains(ProductRepository.NAME, "数据线"));
+        assertTrue(repository.explain(query).startsWith("INDEX name"));
+        assertEquals(2, repository.query(query).size());
+
+        List<Product> usb = repository.searchByName("usb");
+        assertEquals(1, usb.size());
+        assertEquals("P-QP-N1", usb.get(0).getId());
+
+        // "线鼠"的片段都存在，核对后只有无线鼠标匹配
+        assertEquals(1, repository.searchByName("线鼠").size());
+        assertTrue(repository.searchByName("耳机").isEmpty());
+
+        Product renamed = repository.findById("P-QP-N3").copy();
+        renamed.setName("蓝牙耳机");
+        assertTrue(repository.update(renamed));
+        assertTrue(repository.searchByName("鼠标").isEmpty());
+        assertEquals(1, repository.searchByName("耳机").size());
+
+        System.out.println("✓ 关键词查找结果正确");
+    }
+}
@@ -0,0 +1,96 @@
+package test;
+
+import model.entity.Product;
+import model.repository.Criteria;
+import model.repository.ProductRepository;
+import model.repository.Query;
+import model.repository.QueryResultCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryResultCache查询结果缓存测试
+ */
+public class QueryResultCacheTest {
+
+    private static Query<Product> byCategory(String category) {
+        return new Query<Product>().where(Criteria.eq(ProductRepository.CATEGORY, category));
+    }
+
+    /**
+     * 测试1: 新增商品的通知期间执行的查询，不会把不含新商品的结果留在缓存中
+     */
+    @Test
+    public void testQueryDuringAddIsNotCachedStale() {
+        System.out.println("测试1: 新增商品期间的查询不会缓存旧结果");
+
+        ProductRepository repository = new ProductRepository();
+        QueryResultCache<Product> cache = new QueryResultCache<>(repository, 100);
+        Query<Product> query = byCategory("文具");
+        // 在索引版本号更新之后、add返回之前执行查询
+        repository.addChangeListener((id, item) -> cache.query("文具", query));
+
+        repository.add(new Product("P-QC-1", "铅笔", 2.0, "文具"));
+
+        assertEquals(1, repository.query(query).size());
+        assertEquals(1, cache.query("文具", query).size());
+        assertEquals(1, cache.query("文具", query).size());
+
+        System.out.println("✓ 缓存结果包含新商品");
+    }
+
+    /**
+     * 测试2: 缓存命中后，索引字段变化使结果失效
+     */
+    @Test
+    public void testIndexedChangeInvalidates() {
+        System.out.println("\n测试2: 索引字段变化使缓存结果失效");
+
+        ProductRepository repository = new ProductRepository();
+        QueryResultCache<Product> cache = new QueryResultCache<>(repository, 100);
+        repository.add(new Product("P-QC-2", "橡皮", 1.5, "文具"));
+        repository.add(new Product("P-QC-3", "尺子", 3.0, "文具"));
+        Query<Product> query = byCategory("文具");
+
+        assertEquals(2, cache.query("文具", query).size());
+        assertEquals(2, cache.query("文具", query).size());
+        assertEquals(1, cache.stats().getHitCount());
+
+        Product moved = repository.findById("P-QC-3").copy();
+        moved.setCategory("量具");
+        assertTrue(repository.update(moved));
+
+        List<Product> result = cache.query("文具", query);
+        assertEquals(1, result.size());
+        assertEquals("P-QC-2", result.get(0).getId());
+
+        System.out.println("✓ 分类变化后结果正确");
+    }
+
+    /**
+     * 测试3: 非索引字段变化不使结果失效，命中时返回实体的当前值
+     */
+    @Test
+    public void testUnindexedChangeKeepsEntry() {
+        System.out.println("\n测试3: 非索引字段变化时继续命中");
+
+        ProductRepository repository = new ProductRepository();
+        QueryResultCache<Product> cache = new QueryResultCache<>(repository, 100);
+        repository.add(new Product("P-QC-4", "胶水", 4.0, "文具"));
+        Query<Product> query = byCategory("文具");
+        cache.query("文具", query);
+
+        Product restocked = repository.findById("P-QC-4").copy();
+        restocked.setStock(30);
+        assertTrue(repository.update(restocked));
+
+        List<Product> result = cache.query("文具", query);
+        assertEquals(30, result.get(0).getStock());
+        assertEquals(1, cache.stats().getHitCount());
+
+        System.out.println("✓ 命中并返回最新库存");
+    }
+}
@@ -0,0 +1,159 @@
+package test;
+
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderStatus;
+import model.service.RevenueCube;
+import model.service.RevenueCube.Cell;
+import model.service.RevenueCube.Dimension;
+import model.service.RevenueCube.Key;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RevenueCube分类 × 状态 × 日期销售额立方体测试
+ */
+public class RevenueCubeTest {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+
+    private final long day1;
+    private final long day2;
+    private final long day3;
+    private final RevenueCube cube = new RevenueCube();
+
+    public RevenueCubeTest() {
+        // 本地时区2024-01-15零点起的三天
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, 15);
+        day1 = calendar.getTimeInMillis();
+        day2 = day1 + DAY;
+        day3 = day2 + DAY;
+
+        Order a = order("O-CUBE-A");
+        a.getLines().append("P-CUBE-1", "钢笔", "文具", 1000, 2);
+        a.getLines().append("P-CUBE-2", "饼干", "食品", 500, 1);
+        Order b = order("O-CUBE-B");
+        b.getLines().append("P-CUBE-1", "钢笔", "文具", 3000, 1);
+        Order c = order("O-CUBE-C");
+        c.getLines().append("P-CUBE-3", "旧商品", null, 700, 1);
+
+        cube.apply(a, day1 + 10 * HOUR, null, OrderStatus.PENDING);
+        cube.apply(b, day2 + 9 * HOUR, null, OrderStatus.PENDING);
+        cube.apply(c, day3 + 8 * HOUR, null, OrderStatus.PENDING);
+        // A付款，B取消
+        cube.apply(a, day1 + 10 * HOUR, OrderStatus.PENDING, OrderStatus.PAID);
+        cube.apply(b, day2 + 9 * HOUR, OrderStatus.PENDING, OrderStatus.CANCELLED);
+    }
+
+    private static Order order(String orderId) {
+        return new Order(orderId, new Customer("C-CUBE", "客户", "13800000000"));
+    }
+
+    private static Cell only(Map<Key, Cell> cells) {
+        assertEquals(1, cells.size());
+        return cells.values().iterator().next();
+    }
+
+    /**
+     * 测试1: 状态流转把订单的金额从旧状态单元格移到新状态单元格
+     */
+    @Test
+    public void testApplyMovesLinesBetweenStatuses() {
+        System.out.println("测试1: 状态流转移动单元格");
+
+        Map<Key, Cell> byStatus = cube.rollUp(null, null, day1, day3 + DAY, Dimension.STATUS);
+        List<OrderStatus> statuses = new ArrayList<>();
+        for (Key key : byStatus.keySet()) {
+            statuses.add(key.getStatus());
+        }
+        // A已移出待付款，待付款只剩C
+        assertEquals(List.of(OrderStatus.PENDING, OrderStatus.PAID, OrderStatus.CANCELLED), statuses);
+        assertEquals(700, byStatus.get(new Key(null, OrderStatus.PENDING, null)).getRevenueCents());
+        Cell paid = byStatus.get(new Key(null, OrderStatus.PAID, null));
+        assertEquals(2, paid.getLines());
+        assertEquals(3, paid.getUnits());
+        assertEquals(2500, paid.getRevenueCents());
+        assertEquals(3000, byStatus.get(new Key(null, OrderStatus.CANCELLED, null)).getRevenueCents());
+
+        // 未记录分类的订单项归入"未知"
+        Map<Key, Cell> byCategory = cube.rollUp(null, OrderStatus.PENDING, day1, day3 + DAY, Dimension.CATEGORY);
+        assertEquals(700, byCategory.get(new Key("未知", null, null)).getRevenueCents());
+
+        // 相同状态的重复通知不改变单元格
+        Order a = order("O-CUBE-A");
+        cube.onTransition(a, OrderStatus.PAID, OrderStatus.PAID);
+        assertEquals(2500, only(cube.rollUp(null, OrderStatus.PAID, day1, day3 + DAY)).getRevenueCents());
+
+        System.out.println("✓ " + byStatus);
+    }
+
+    /**
+     * 测试2: 按日期范围上卷，起始日期所在的天计入、结束时间所在的天不计入
+     */
+    @Test
+    public void testRollUpOverDayRanges() {
+        System.out.println("\n测试2: 按日期范围上卷");
+
+        Cell firstTwoDays = only(cube.rollUp(null, null, day1, day3));
+        assertEquals(3, firstTwoDays.getLines());
+        assertEquals(5500, firstTwoDays.getRevenueCents());
+
+        Map<Key, Cell> byDay = cube.rollUp(null, null, day2, day3 + DAY, Dimension.DAY);
+        assertEquals(2, byDay.size());
+        assertEquals(3000, byDay.get(new Key(null, null, day2)).getRevenueCents());
+        assertEquals(700, byDay.get(new Key(null, null, day3)).getRevenueCents());
+
+        // 起点在当天中午仍包含当天
+        Map<Key, Cell> fromNoon = cube.rollUp(null, null, day2 + 12 * HOUR, day3, Dimension.DAY);
+        assertEquals(3000, only(fromNoon).getRevenueCents());
+
+        Map<Key, Cell> stationery = cube.rollUp("文具", null, day1, day3 + DAY, Dimension.DAY);
+        assertEquals(2, stationery.size());
+        assertEquals(2000, stationery.get(new Key(null, null, day1)).getRevenueCents());
+
+        Map<Key, Cell> paidByCategoryAndDay = cube.rollUp(null, OrderStatus.PAID, day1, day3 + DAY,
+                Dimension.CATEGORY, Dimension.DAY);
+        assertEquals(2, paidByCategoryAndDay.size());
+        assertEquals(500, paidByCategoryAndDay.get(new Key("食品", null, day1)).getRevenueCents());
+        assertTrue(cube.rollUp(null, null, day3 + DAY, day3 + 2 * DAY).isEmpty());
+
+        System.out.println("✓ 前两天合计" + firstTwoDays);
+    }
+
+    /**
+     * 测试3: 下钻时固定父单元格的维度，日期限定在父单元格那一天
+     */
+    @Test
+    public void testDrillDown() {
+        System.out.println("\n测试3: 下钻");
+
+        Map<Key, Cell> stationeryByDay = cube.drillDown(new Key("文具", null, null), Dimension.DAY, day1, day3 + DAY);
+        assertEquals(2, stationeryByDay.size());
+        assertEquals(2000, stationeryByDay.get(new Key("文具", null, day1)).getRevenueCents());
+        assertEquals(3000, stationeryByDay.get(new Key("文具", null, day2)).getRevenueCents());
+
+        Map<Key, Cell> day2ByCategory = cube.drillDown(new Key(null, null, day2), Dimension.CATEGORY, day1, day3 + DAY);
+        assertEquals(3000, only(day2ByCategory).getRevenueCents());
+        assertEquals(new Key("文具", null, day2), day2ByCategory.keySet().iterator().next());
+
+        Map<Key, Cell> paidDay1 = cube.drillDown(new Key(null, OrderStatus.PAID, day1), Dimension.CATEGORY,
+                day1, day3 + DAY);
+        assertEquals(2, paidDay1.size());
+        assertEquals(2000, paidDay1.get(new Key("文具", OrderStatus.PAID, day1)).getRevenueCents());
+        assertEquals(500, paidDay1.get(new Key("食品", OrderStatus.PAID, day1)).getRevenueCents());
+
+        // 父单元格的日期不在查询范围内时没有结果
+        assertTrue(cube.drillDown(new Key(null, null, day1), Dimension.CATEGORY, day2, day3 + DAY).isEmpty());
+
+        System.out.println("✓ " + stationeryByDay);
+    }
+}
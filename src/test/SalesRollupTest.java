@@ -0,0 +1,129 @@
+package test;
+
+import model.service.SalesBucket;
+import model.service.SalesRollup;
+import model.service.SalesRollup.Resolution;
+import org.junit.jupiter.api.Test;
+
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SalesRollup按时间分桶的销售汇总测试
+ * 传入固定的当前时间，模拟时间流逝
+ */
+public class SalesRollupTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    // 本地时区2024-01-15零点
+    private static long baseDay() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, 15);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 测试1: 按不同粒度查询，时间段起点所在的桶计入、终点所在的桶不计入
+     */
+    @Test
+    public void testRangeQueriesAcrossBoundaries() {
+        System.out.println("测试1: 跨桶边界的区间查询");
+
+        long base = baseDay();
+        long now = base + 10 * HOUR;
+        SalesRollup rollup = new SalesRollup();
+        long lastMinute = base + 9 * HOUR + 59 * MINUTE;
+        rollup.recordOrder(lastMinute + 5_000, 1000, 1, now);
+        rollup.recordOrder(lastMinute + 50_000, 2000, 2, now);
+        rollup.recordOrder(base + 10 * HOUR + 10_000, 500, 1, now);
+
+        List<SalesBucket> minutes = rollup.query(Resolution.MINUTE, lastMinute, base + 10 * HOUR + MINUTE);
+        assertEquals(2, minutes.size());
+        assertEquals(lastMinute, minutes.get(0).getStartTime());
+        assertEquals(2, minutes.get(0).getOrderCount());
+        assertEquals(3000, minutes.get(0).getRevenueCents());
+        assertEquals(Resolution.MINUTE, minutes.get(0).getResolution());
+        assertEquals(500, minutes.get(1).getRevenueCents());
+
+        List<SalesBucket> hours = rollup.query(Resolution.HOUR, base + 9 * HOUR, base + 11 * HOUR);
+        assertEquals(2, hours.size());
+        assertEquals(base + 9 * HOUR, hours.get(0).getStartTime());
+        assertEquals(3, hours.get(0).getUnitsSold());
+        assertEquals(Resolution.HOUR, hours.get(0).getResolution());
+        assertEquals(base + 10 * HOUR, hours.get(1).getStartTime());
+
+        // 起点落在桶中间时包含该桶，终点正好是桶起点时不包含
+        List<SalesBucket> partial = rollup.query(Resolution.HOUR, base + 9 * HOUR + 30 * MINUTE, base + 10 * HOUR);
+        assertEquals(1, partial.size());
+        assertEquals(2, partial.get(0).getOrderCount());
+
+        List<SalesBucket> days = rollup.query(Resolution.DAY, base, base + DAY);
+        assertEquals(1, days.size());
+        assertEquals(3, days.get(0).getOrderCount());
+        assertEquals(3500, days.get(0).getRevenueCents());
+        assertEquals(4, days.get(0).getUnitsSold());
+        assertTrue(rollup.query(Resolution.DAY, base + DAY, base + 2 * DAY).isEmpty());
+
+        rollup.recordCancellation(base + 10 * HOUR + 20_000, 500, now);
+        SalesBucket tenOClock = rollup.total(base + 10 * HOUR, base + 11 * HOUR);
+        assertEquals(1, tenOClock.getOrderCount());
+        assertEquals(1, tenOClock.getCancellations());
+        assertEquals(0.0, tenOClock.getNetRevenue(), 0);
+
+        System.out.println("✓ " + days.get(0));
+    }
+
+    /**
+     * 测试2: 分钟桶超过保留期合并为小时桶，小时桶再合并为天桶，合并前后总量不变
+     */
+    @Test
+    public void testCompaction() {
+        System.out.println("\n测试2: 分钟→小时→天逐级压缩");
+
+        long base = baseDay();
+        long start = base + HOUR;
+        SalesRollup rollup = new SalesRollup();
+        rollup.recordOrder(start + 1_000, 100, 1, start + MINUTE);
+        rollup.recordOrder(start + 5 * MINUTE, 200, 1, start + 6 * MINUTE);
+        assertEquals(2, rollup.getBucketCount());
+
+        // 3小时后，两个分钟桶超过2小时的保留期，合并进同一个小时桶
+        long later = start + 3 * HOUR;
+        rollup.recordOrder(later, 300, 1, later);
+        assertEquals(2, rollup.getBucketCount());
+        List<SalesBucket> compacted = rollup.query(Resolution.MINUTE, start, start + HOUR);
+        assertEquals(1, compacted.size());
+        assertEquals(Resolution.HOUR, compacted.get(0).getResolution());
+        assertEquals(start, compacted.get(0).getStartTime());
+        assertEquals(2, compacted.get(0).getOrderCount());
+        assertEquals(300, compacted.get(0).getRevenueCents());
+
+        // 36天后，小时桶超过35天的保留期，合并进天桶
+        long muchLater = start + 36 * DAY;
+        rollup.recordOrder(muchLater, 400, 1, muchLater);
+        assertEquals(2, rollup.getBucketCount());
+        List<SalesBucket> byHour = rollup.query(Resolution.HOUR, base, base + DAY);
+        assertEquals(1, byHour.size());
+        assertEquals(Resolution.DAY, byHour.get(0).getResolution());
+        assertEquals(base, byHour.get(0).getStartTime());
+        assertEquals(3, byHour.get(0).getOrderCount());
+        assertEquals(600, byHour.get(0).getRevenueCents());
+
+        SalesBucket total = rollup.total(base, muchLater + MINUTE);
+        assertEquals(4, total.getOrderCount());
+        assertEquals(1000, total.getRevenueCents());
+
+        // 超过保留期的迟到数据直接记入天桶
+        rollup.recordOrder(base + 2 * HOUR, 50, 1, muchLater);
+        assertEquals(2, rollup.getBucketCount());
+        assertEquals(4, rollup.total(base, base + DAY).getOrderCount());
+
+        System.out.println("✓ 剩余" + rollup.getBucketCount() + "个桶");
+    }
+}
@@ -0,0 +1,137 @@
+package test;
+
+import model.service.Session;
+import model.service.SessionManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SessionManager会话管理器测试
+ * 不启动后台线程，通过expireIdleSessions手动推进时间轮
+ */
+public class SessionManagerTest {
+
+    /**
+     * 测试1: 空闲超过超时时间的会话过期
+     */
+    @Test
+    public void testIdleSessionExpires() {
+        System.out.println("测试1: 空闲会话过期");
+
+        SessionManager manager = new SessionManager(1000, 10);
+        Session session = manager.create("U-S1");
+        assertEquals(1, manager.getSessionCount("U-S1"));
+
+        // 期间没有访问
+        manager.expireIdleSessions(session.getCreateTime() + 500);
+        assertEquals(1, manager.size());
+
+        manager.expireIdleSessions(session.getCreateTime() + 1100);
+        assertEquals(0, manager.size());
+        assertEquals(0, manager.getSessionCount("U-S1"));
+        assertNull(manager.get(session.getToken()));
+
+        System.out.println("✓ 空闲会话已移除");
+    }
+
+    /**
+     * 测试2: 期间有过访问的会话到期时按新的过期时间重新挂上
+     */
+    @Test
+    public void testAccessRearmsIdleCheck() throws InterruptedException {
+        System.out.println("\n测试2: 访问后顺延过期时间");
+
+        SessionManager manager = new SessionManager(300, 10);
+        Session session = manager.create("U-S2");
+        long created = session.getLastAccessTime();
+        Thread.sleep(100);
+        assertNotNull(manager.get(session.getToken()));
+        long touched = session.getLastAccessTime();
+        assertTrue(touched > created);
+
+        // 原来的检查任务到期，但期间有访问，不过期
+        manager.expireIdleSessions(created + 320);
+        assertEquals(1, manager.size());
+
+        // 顺延后的检查任务到期
+        manager.expireIdleSessions(touched + 320);
+        assertEquals(0, manager.size());
+
+        System.out.println("✓ 按最近访问时间过期");
+    }
+
+    /**
+     * 测试3: 注销单个会话和用户的全部会话
+     */
+    @Test
+    public void testRevokeAndRevokeAll() {
+        System.out.println("\n测试3: 注销会话");
+
+        SessionManager manager = new SessionManager(60_000, 100);
+        Session first = manager.create("U-S3");
+        Session second = manager.create("U-S3");
+        Session third = manager.create("U-S3");
+        Session other = manager.create("U-S4");
+        assertEquals(3, manager.getSessionCount("U-S3"));
+
+        assertTrue(manager.revoke(first.getToken()));
+        assertFalse(manager.revoke(first.getToken()));
+        assertEquals(2, manager.getSessionCount("U-S3"));
+
+        assertEquals(2, manager.revokeAll("U-S3"));
+        assertNull(manager.get(second.getToken()));
+        assertNull(manager.get(third.getToken()));
+        assertEquals(0, manager.getSessionCount("U-S3"));
+        assertEquals(0, manager.revokeAll("U-S3"));
+        assertSame(other, manager.get(other.getToken()));
+        assertEquals(1, manager.size());
+
+        System.out.println("✓ 只注销指定用户的会话");
+    }
+
+    /**
+     * 测试4: 登录与注销全部会话并发进行，会话表与用户索引保持一致，没有遗漏的会话
+     */
+    @Test
+    public void testLoginRacingLogout() throws InterruptedException {
+        System.out.println("\n测试4: 登录与注销并发");
+
+        SessionManager manager = new SessionManager(60_000, 100);
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            boolean logout = i % 2 == 1;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 0; n < 5_000; n++) {
+                    if (logout) {
+                        manager.revokeAll("U-S5");
+                    } else {
+                        manager.create("U-S5");
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // 用户索引中的会话数与会话表一致，全部注销后不留下会话
+        assertEquals(manager.size(), manager.getSessionCount("U-S5"));
+        assertEquals(manager.size(), manager.revokeAll("U-S5"));
+        assertEquals(0, manager.size());
+        assertEquals(0, manager.getSessionCount("U-S5"));
+
+        System.out.println("✓ 会话表与用户索引一致");
+    }
+}
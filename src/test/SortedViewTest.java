@@ -0,0 +1,107 @@
+package test;
+
+import util.SortedView;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SortedView有序视图测试
+ * 元素为int数组，第一个元素作为排序键
+ */
+public class SortedViewTest {
+
+    private SortedView<int[], Integer> newView() {
+        return new SortedView<>(item -> item[0], Comparator.naturalOrder());
+    }
+
+    private List<Integer> keys(List<int[]> items) {
+        List<Integer> keys = new ArrayList<>();
+        for (int[] item : items) {
+            keys.add(item[0]);
+        }
+        return keys;
+    }
+
+    /**
+     * 测试1: 元素按排序键排列，替换元素后移动到新位置
+     */
+    @Test
+    public void testPutAndReorder() {
+        System.out.println("测试1: 按排序键排列");
+
+        SortedView<int[], Integer> view = newView();
+        view.put("a", new int[]{30});
+        view.put("b", new int[]{10});
+        view.put("c", new int[]{20});
+        assertEquals(List.of(10, 20, 30), keys(view.page(0, 10, false)));
+
+        view.put("b", new int[]{40});
+        assertEquals(List.of(20, 30, 40), keys(view.page(0, 10, false)));
+        assertEquals(3, view.size());
+        assertEquals(2, view.rankOf("b"));
+
+        System.out.println("✓ 替换后移动到新位置");
+    }
+
+    /**
+     * 测试2: 从两端分页
+     */
+    @Test
+    public void testPagingFromBothEnds() {
+        System.out.println("\n测试2: 从两端分页");
+
+        SortedView<int[], Integer> view = newView();
+        for (int i = 0; i < 100; i++) {
+            view.put("k" + i, new int[]{i});
+        }
+        assertEquals(List.of(20, 21, 22), keys(view.page(20, 3, false)));
+        assertEquals(List.of(79, 78, 77), keys(view.page(20, 3, true)));
+        assertEquals(List.of(98, 99), keys(view.page(98, 10, false)));
+        assertTrue(view.page(100, 10, false).isEmpty());
+        assertEquals(50, view.get(50)[0]);
+
+        System.out.println("✓ 正序和倒序分页正确");
+    }
+
+    /**
+     * 测试3: 元素在视图外被修改时，按加入时的键删除，不会破坏顺序
+     */
+    @Test
+    public void testRemoveUsesSnapshotKey() {
+        System.out.println("\n测试3: 按加入时的键删除");
+
+        SortedView<int[], Integer> view = newView();
+        int[] item = {5};
+        view.put("x", item);
+        view.put("y", new int[]{7});
+        item[0] = 100;
+        assertTrue(view.remove("x"));
+        assertFalse(view.remove("x"));
+        assertEquals(1, view.size());
+        assertEquals(-1, view.rankOf("x"));
+
+        System.out.println("✓ 元素被修改后仍能删除");
+    }
+
+    /**
+     * 测试4: 带筛选条件分页时，跳过数量按满足条件的元素计算
+     */
+    @Test
+    public void testFilteredPage() {
+        System.out.println("\n测试4: 带筛选条件分页");
+
+        SortedView<int[], Integer> view = newView();
+        for (int i = 0; i < 20; i++) {
+            view.put("k" + i, new int[]{i});
+        }
+        assertEquals(List.of(4, 6, 8), keys(view.page(2, 3, false, item -> item[0] % 2 == 0)));
+        assertEquals(List.of(15, 13), keys(view.page(2, 2, true, item -> item[0] % 2 == 1)));
+
+        System.out.println("✓ 跳过数量按满足条件的元素计算");
+    }
+}
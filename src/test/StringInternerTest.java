@@ -0,0 +1,51 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import util.StringInterner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StringInterner字符串驻留测试
+ */
+public class StringInternerTest {
+
+    /**
+     * 测试1: 内容相同的字符串返回同一个实例
+     */
+    @Test
+    public void testInternReturnsSharedInstance() {
+        System.out.println("测试1: 相同内容返回共享实例");
+
+        String first = StringInterner.intern(new String("文具-驻留测试"));
+        String second = StringInterner.intern(new String("文具-驻留测试"));
+        assertSame(first, second);
+        assertNull(StringInterner.intern(null));
+
+        System.out.println("✓ 返回同一个实例");
+    }
+
+    /**
+     * 测试2: 不再被引用的字符串可以被回收，池不会一直增长
+     */
+    @Test
+    public void testUnreferencedStringsAreEvicted() throws InterruptedException {
+        System.out.println("\n测试2: 不再引用的字符串从池中移除");
+
+        int before = StringInterner.size();
+        for (int i = 0; i < 100_000; i++) {
+            StringInterner.intern("P-EVICT-" + i);
+        }
+        assertTrue(StringInterner.size() > before);
+
+        int after = StringInterner.size();
+        for (int attempt = 0; attempt < 20 && after >= before + 50_000; attempt++) {
+            System.gc();
+            Thread.sleep(50);
+            after = StringInterner.size();
+        }
+        assertTrue(after < before + 50_000, "池中仍有" + after + "个字符串");
+
+        System.out.println("✓ 回收后池中剩余" + after + "个字符串");
+    }
+}
@@ -0,0 +1,214 @@
+package test;
+
+import exception.OptimisticLockException;
+import model.entity.Customer;
+import model.entity.Order;
+import model.entity.OrderItem;
+import model.entity.Product;
+import model.service.InventoryService;
+import model.service.OrderService;
+import model.service.ProductService;
+import org.junit.jupiter.api.Test;
+import util.StripedStockCounter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StripedStockCounter分段库存计数器与热点模式切换测试
+ */
+public class StripedStockCounterTest {
+
+    /**
+     * 测试1: 并发扣减与关闭，关闭时取走的余量加上成功扣减的数量等于初始库存
+     */
+    @Test
+    public void testCloseDuringDecrementsIsExact() throws InterruptedException {
+        System.out.println("测试1: 并发扣减时关闭计数器，库存不多不少");
+
+        StripedStockCounter counter = new StripedStockCounter(8, 10_000);
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(4);
+        Thread[] workers = new Thread[4];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(() -> {
+                started.countDown();
+                while (counter.tryDecrement(3)) {
+                    taken.addAndGet(3);
+                }
+            });
+            workers[i].start();
+        }
+        started.await();
+        int remaining = counter.close();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(counter.isClosed());
+        assertEquals(10_000, remaining + taken.get());
+        assertEquals(remaining, counter.sum());
+        assertFalse(counter.increment(1));
+        assertFalse(counter.tryDecrement(1));
+
+        System.out.println("✓ 关闭时余量" + remaining + "，已扣减" + taken.get());
+    }
+
+    /**
+     * 测试2: 分段之间搬运库存时，sum()不会少算
+     */
+    @Test
+    public void testSumDuringRebalanceNeverUndercounts() throws InterruptedException {
+        System.out.println("\n测试2: 搬运库存期间总量保持不变");
+
+        StripedStockCounter counter = new StripedStockCounter(16, 1_600);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger wrongSums = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                if (counter.sum() != 1_600) {
+                    wrongSums.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        // 扣减超过总量的数量一定失败，但会把其他分段的库存都搬到本线程的分段，总量不变
+        Thread[] workers = new Thread[4];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(() -> {
+                for (int round = 0; round < 2_000; round++) {
+                    assertFalse(counter.tryDecrement(1_601));
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        running.set(false);
+        reader.join();
+
+        assertEquals(0, wrongSums.get());
+        assertEquals(1_600, counter.sum());
+
+        System.out.println("✓ 搬运期间没有少算库存");
+    }
+
+    /**
+     * 测试3: 下单与开启、关闭热点模式并发进行，不超卖，商品库存与库存记录一致
+     */
+    @Test
+    public void testHotSkuSwitchRacingOrdersDoesNotOversell() throws Exception {
+        System.out.println("\n测试3: 切换热点模式期间并发下单不超卖");
+
+        ProductService productService = ProductService.getInstance();
+        InventoryService inventoryService = InventoryService.getInstance();
+        OrderService orderService = OrderService.getInstance();
+
+        String productId = "P-HOT-SWITCH";
+        Product product = new Product(productId, "秒杀商品", 10.0, "测试类");
+        product.setStock(200);
+        productService.addProduct(product);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger orderSeq = new AtomicInteger();
+        AtomicBoolean switching = new AtomicBoolean(true);
+        Thread switcher = new Thread(() -> {
+            try {
+                while (switching.get()) {
+                    inventoryService.enableHotSku(productId, 4);
+                    Thread.yield();
+                    inventoryService.disableHotSku(productId);
+                }
+            } catch (Exception e) {
+                fail("切换热点模式失败: " + e.getMessage());
+            }
+        });
+        switcher.start();
+
+        Thread[] buyers = new Thread[4];
+        for (int i = 0; i < buyers.length; i++) {
+            buyers[i] = new Thread(() -> {
+                for (int n = 0; n < 100; n++) {
+                    Order order = new Order("O-HOT-" + orderSeq.incrementAndGet(),
+                            new Customer("C-HOT-1", "抢购客户", "13800000000"));
+                    OrderItem item = new OrderItem();
+                    item.setProductId(productId);
+                    item.setProductName("秒杀商品");
+                    item.setPrice(10.0);
+                    item.setQuantity(1);
+                    item.calculateSubtotal();
+                    order.addItem(item);
+                    try {
+                        orderService.createOrder(order);
+                        sold.incrementAndGet();
+                    } catch (Exception e) {
+                        // 库存不足时下单失败
+                    }
+                }
+            });
+            buyers[i].start();
+        }
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+        switching.set(false);
+        switcher.join();
+        inventoryService.disableHotSku(productId);
+
+        int stock = productService.getProductById(productId).getStock();
+        int quantity = inventoryService.getStockQuantity(productId);
+        assertEquals(200, sold.get());
+        assertEquals(0, stock);
+        assertEquals(stock, quantity);
+
+        System.out.println("✓ 售出" + sold.get() + "件，剩余库存" + stock);
+    }
+
+    /**
+     * 测试4: 热点商品的入库、出库记到计数器上，回写库存会递增版本号，之前读取的副本不能再覆盖库存
+     */
+    @Test
+    public void testHotStockPublishBumpsVersion() throws Exception {
+        System.out.println("\n测试4: 热点库存回写递增版本号");
+
+        ProductService productService = ProductService.getInstance();
+        InventoryService inventoryService = InventoryService.getInstance();
+
+        String productId = "P-HOT-PUBLISH";
+        Product product = new Product(productId, "热点商品", 10.0, "测试类");
+        product.setStock(50);
+        productService.addProduct(product);
+        inventoryService.enableHotSku(productId, 4);
+
+        // 商品管理界面在扣减之前读取的副本
+        Product stale = productService.getProductById(productId).copy();
+        long staleVersion = stale.getVersion();
+
+        assertTrue(productService.stockOut(productId, 20));
+        assertFalse(productService.stockOut(productId, 31));
+        productService.stockIn(productId, 5);
+        assertEquals(35, inventoryService.getStockQuantity(productId));
+
+        Product published = productService.getProductById(productId);
+        assertEquals(35, published.getStock());
+        assertTrue(published.getVersion() > staleVersion);
+        assertEquals(35, inventoryService.getInventoryByProductId(productId).getQuantity());
+
+        // 过期副本按旧版本提交被拒绝，计数器的结果不被覆盖
+        stale.setName("热点商品-改名");
+        assertThrows(OptimisticLockException.class, () -> productService.updateProduct(stale, staleVersion));
+
+        // 关闭热点模式后计数器的余量写回，入库、出库改走普通模式
+        inventoryService.disableHotSku(productId);
+        assertTrue(productService.stockOut(productId, 5));
+        assertEquals(30, productService.getProductById(productId).getStock());
+        assertEquals(30, inventoryService.getStockQuantity(productId));
+
+        System.out.println("✓ 剩余库存" + productService.getProductById(productId).getStock());
+    }
+}
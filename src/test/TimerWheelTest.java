@@ -0,0 +1,91 @@
+package test;
+
+import util.TimerWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TimerWheel时间轮测试
+ * 通过手动推进时间模拟时间流逝，不依赖后台线程
+ */
+public class TimerWheelTest {
+
+    /**
+     * 测试1: 任务在到期时间之后才执行，且只执行一次
+     */
+    @Test
+    public void testExpireOnDeadline() {
+        System.out.println("测试1: 任务到期执行");
+
+        TimerWheel wheel = new TimerWheel(10, 0, Runnable::run);
+        AtomicInteger fired = new AtomicInteger();
+        wheel.scheduleAt(fired::incrementAndGet, 1000);
+
+        wheel.advanceTo(990);
+        assertEquals(0, fired.get());
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(1000);
+        assertEquals(1, fired.get());
+        assertEquals(0, wheel.size());
+
+        wheel.advanceTo(5000);
+        assertEquals(1, fired.get());
+
+        System.out.println("✓ 到期后只执行一次");
+    }
+
+    /**
+     * 测试2: 取消的任务不会执行
+     */
+    @Test
+    public void testCancel() {
+        System.out.println("\n测试2: 取消任务");
+
+        TimerWheel wheel = new TimerWheel(10, 0, Runnable::run);
+        AtomicInteger fired = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.scheduleAt(fired::incrementAndGet, 500);
+        wheel.advanceTo(100);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel()); // 重复取消返回false
+        wheel.advanceTo(1000);
+
+        assertEquals(0, fired.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, wheel.size());
+
+        System.out.println("✓ 取消的任务未执行");
+    }
+
+    /**
+     * 测试3: 跨越多层的远期任务经过逐层下放后按时执行
+     */
+    @Test
+    public void testCascadeAcrossLevels() {
+        System.out.println("\n测试3: 跨层下放");
+
+        TimerWheel wheel = new TimerWheel(1, 0, Runnable::run);
+        long[] deadlines = {63, 64, 4095, 4096, 262_143, 262_144, 20_000_000};
+        long[] firedAt = new long[deadlines.length];
+        long[] now = {0};
+        for (int i = 0; i < deadlines.length; i++) {
+            int index = i;
+            wheel.scheduleAt(() -> firedAt[index] = now[0], deadlines[i]);
+        }
+
+        for (now[0] = 0; now[0] <= 20_000_000; now[0] += 1000) {
+            wheel.advanceTo(now[0]);
+        }
+
+        for (int i = 0; i < deadlines.length; i++) {
+            assertTrue(firedAt[i] >= deadlines[i], "任务不能提前执行: " + deadlines[i]);
+            assertTrue(firedAt[i] - deadlines[i] < 1000, "任务应在推进到期后立即执行: " + deadlines[i]);
+        }
+
+        System.out.println("✓ " + deadlines.length + "个远期任务按时执行");
+    }
+}
@@ -0,0 +1,126 @@
+package test;
+
+import exception.ValidationException;
+import model.entity.Product;
+import org.junit.jupiter.api.Test;
+import util.Validator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Validator实体验证器与ValidationException测试
+ */
+public class ValidatorTest {
+
+    private static final Validator<Product> VALIDATOR = Validator.<Product>builder("商品不能为空")
+            .field()
+            .notBlank(Product::getId, "商品ID不能为空")
+            .chars(Product::getId, "A-Z0-9-", 2, 10, "商品ID格式无效")
+            .field()
+            .notBlank(Product::getName, "商品名称不能为空")
+            .length(Product::getName, 1, 8, "商品名称过长")
+            .field()
+            .longRange(Product::getPriceCents, 1, 1_000_000, "价格必须在0.01到10000元之间")
+            .field()
+            .range(Product::getStock, 0, 999, "库存必须在0到999之间")
+            .build();
+
+    private static Product product(String id, String name, double price, int stock) {
+        Product product = new Product(id, name, price, "测试类");
+        product.setStock(stock);
+        return product;
+    }
+
+    /**
+     * 测试1: 全部规则通过时没有错误
+     */
+    @Test
+    public void testValidEntity() throws ValidationException {
+        System.out.println("测试1: 合法商品通过验证");
+
+        Product product = product("P-100", "钢笔", 12.5, 10);
+        assertTrue(VALIDATOR.validate(product).isEmpty());
+        assertTrue(VALIDATOR.isValid(product));
+        VALIDATOR.check(product);
+
+        System.out.println("✓ 没有错误");
+    }
+
+    /**
+     * 测试2: 同一组只报告第一条不通过的规则，不同组的错误全部报告
+     */
+    @Test
+    public void testGroupsReportFirstViolationEach() {
+        System.out.println("\n测试2: 按组报告错误");
+
+        // ID为空时不再报告格式错误
+        List<String> violations = VALIDATOR.validate(product("  ", "钢笔", 0, 1000));
+        assertEquals(3, violations.size());
+        assertEquals("商品ID不能为空", violations.get(0));
+        assertEquals("价格必须在0.01到10000元之间", violations.get(1));
+        assertEquals("库存必须在0到999之间", violations.get(2));
+
+        // ID不为空但含非法字符
+        violations = VALIDATOR.validate(product("p_1", "一支很长很长的钢笔啊", 1, 1));
+        assertEquals(2, violations.size());
+        assertEquals("商品ID格式无效", violations.get(0));
+        assertEquals("商品名称过长", violations.get(1));
+        assertFalse(VALIDATOR.isValid(product("p_1", "钢笔", 1, 1)));
+
+        assertEquals(List.of("商品不能为空"), VALIDATOR.validate(null));
+        assertFalse(VALIDATOR.isValid(null));
+
+        System.out.println("✓ 每组最多一条错误");
+    }
+
+    /**
+     * 测试3: check抛出的ValidationException包含全部错误
+     */
+    @Test
+    public void testCheckReportsAllViolations() {
+        System.out.println("\n测试3: 异常包含全部错误");
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> VALIDATOR.check(product("", "", 0, -1)));
+        assertEquals(4, e.getViolations().size());
+        assertEquals("商品ID不能为空；商品名称不能为空；价格必须在0.01到10000元之间；库存必须在0到999之间",
+                e.getMessage());
+
+        // 异常保存错误列表的副本，且不可修改
+        List<String> source = new ArrayList<>(List.of("错误1", "错误2"));
+        ValidationException copied = new ValidationException(source);
+        source.add("错误3");
+        assertEquals(2, copied.getViolations().size());
+        assertThrows(UnsupportedOperationException.class, () -> copied.getViolations().add("错误4"));
+
+        ValidationException single = new ValidationException("单条错误");
+        assertEquals(List.of("单条错误"), single.getViolations());
+
+        System.out.println("✓ " + e.getMessage());
+    }
+
+    /**
+     * 测试4: 字符集规则支持范围，字符集无效时构建失败
+     */
+    @Test
+    public void testCharsetRule() {
+        System.out.println("\n测试4: 字符集规则");
+
+        Validator<String> code = Validator.<String>builder("编码不能为空")
+                .chars(value -> value, "a-c0-9_", 1, 4, "编码格式无效")
+                .build();
+        assertTrue(code.isValid("ab_1"));
+        assertFalse(code.isValid("abd"));
+        assertFalse(code.isValid("abcde"));
+        assertFalse(code.isValid("a中"));
+        assertFalse(code.isValid(""));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Validator.<String>builder("x").chars(value -> value, "z-a", 1, 2, "无效"));
+
+        System.out.println("✓ 字符集规则正确");
+    }
+}
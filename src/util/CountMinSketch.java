@@ -0,0 +1,99 @@
+package util;
+
+/**
+ * Count-Min频率估计 - 用固定大小的计数矩阵估计每个元素出现的次数
+ * 估计值不会小于真实值；宽度为w时，以1-(1/2)^depth的概率误差不超过 总次数*2/w
+ * 宽度和深度相同的两个实例可以合并（逐格相加），因此可以按天、按分片分别维护后再汇总
+ */
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counts;
+    private long totalCount;
+
+    /**
+     * @param width 每行计数器个数，越大误差越小
+     * @param depth 行数（哈希函数个数），越大误差超限的概率越低
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("宽度和深度必须大于0");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[width * depth];
+    }
+
+    /**
+     * 元素出现次数加count
+     */
+    public void add(String value, long count) {
+        addHash(HashUtil.hash64(value), count);
+    }
+
+    public void addHash(long hash, long count) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + bucket(h1, h2, row)] += count;
+        }
+        totalCount += count;
+    }
+
+    /**
+     * 估计元素出现的次数
+     */
+    public long estimate(String value) {
+        return estimateHash(HashUtil.hash64(value));
+    }
+
+    public long estimateHash(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts[row * width + bucket(h1, h2, row)]);
+        }
+        return Math.max(0, min);
+    }
+
+    /**
+     * 把另一个实例合并进来，两者宽度和深度必须相同
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("尺寸不同的CountMinSketch不能合并");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public CountMinSketch copy() {
+        CountMinSketch copy = new CountMinSketch(width, depth);
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.totalCount = totalCount;
+        return copy;
+    }
+
+    /**
+     * 所有元素的次数之和
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // 用两个哈希值线性组合出每一行的哈希函数
+    private int bucket(int h1, int h2, int row) {
+        return ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+    }
+}
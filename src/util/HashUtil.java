@@ -0,0 +1,39 @@
+package util;
+
+/**
+ * 64位哈希工具 - 供基数估计、频率估计等概率数据结构使用
+ * String.hashCode只有32位且分布不够均匀，这里对字符逐个做FNV-1a后再做一次雪崩混合
+ */
+public final class HashUtil {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private HashUtil() {
+    }
+
+    /**
+     * 计算字符串的64位哈希，null视为空串
+     */
+    public static long hash64(CharSequence value) {
+        long hash = FNV_OFFSET;
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * MurmurHash3的64位终结混合，使每一位输入都能影响所有输出位
+     */
+    public static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
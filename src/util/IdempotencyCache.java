@@ -0,0 +1,149 @@
+package util;
+
+import exception.BusinessException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 幂等去重缓存
+ * 以客户端提供的幂等键缓存首次执行的结果，重复请求直接返回原结果
+ * 容量有上限，超过存活时间(TTL)的记录会被淘汰
+ * 并发的重复请求通过putIfAbsent竞争，只有一个线程真正执行，其余线程等待其结果，不使用全局锁
+ * @param <V> 结果类型
+ */
+public class IdempotencyCache<V> {
+
+    /**
+     * 需要去重执行的业务操作
+     */
+    public interface Computation<V> {
+        V compute() throws BusinessException;
+    }
+
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    // 按完成顺序排列的记录，用于按TTL和容量淘汰
+    private final ConcurrentLinkedQueue<Entry<V>> completionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public IdempotencyCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("缓存容量和存活时间必须大于0");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 按幂等键执行操作
+     * 首次请求执行computation并缓存结果；重复请求返回首次的结果
+     * 执行失败的结果不缓存，之后的重试会重新执行
+     */
+    public V getOrCompute(String key, Computation<V> computation) throws BusinessException {
+        long now = System.currentTimeMillis();
+        Entry<V> mine = new Entry<>(key, now + ttlMillis);
+
+        while (true) {
+            Entry<V> existing = entries.putIfAbsent(key, mine);
+            if (existing == null) {
+                break; // 由当前线程负责执行
+            }
+            if (existing.isExpired(now)) {
+                entries.remove(key, existing);
+                continue;
+            }
+            return existing.await();
+        }
+
+        V result;
+        try {
+            result = computation.compute();
+        } catch (Throwable e) {
+            // 失败不缓存，同时唤醒正在等待的重复请求；Error也要处理，否则等待的线程永远阻塞
+            entries.remove(key, mine);
+            mine.future.completeExceptionally(e);
+            throw e;
+        }
+
+        mine.future.complete(result);
+        completionOrder.add(mine);
+        size.incrementAndGet();
+        evict(now);
+        return result;
+    }
+
+    /**
+     * 查询幂等键对应的已完成结果，不存在、未完成或已过期时返回null
+     */
+    public V getIfPresent(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())
+                || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.future.getNow(null);
+    }
+
+    /**
+     * 当前缓存的已完成记录数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // 淘汰过期记录和超出容量的最早记录
+    private void evict(long now) {
+        Entry<V> head;
+        while ((head = completionOrder.peek()) != null
+                && (size.get() > maxSize || head.isExpired(now))) {
+            Entry<V> polled = completionOrder.poll();
+            if (polled == null) {
+                break;
+            }
+            size.decrementAndGet();
+            entries.remove(polled.key, polled);
+        }
+    }
+
+    private static class Entry<V> {
+        private final String key;
+        private final long expiresAt;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        Entry(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        // 等待首次请求的结果，首次请求失败时抛出相同的异常
+        V await() throws BusinessException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("等待重复请求结果时被中断");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof BusinessException) {
+                    throw (BusinessException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new BusinessException("重复请求执行失败: " + cause.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package util;
+
+/**
+ * 金额工具 - 金额统一以long类型的"分"表示
+ * 所有方法都是静态的基本类型运算，不创建对象；合计、汇总都是精确的整数加法，不会累积浮点误差
+ * 无法精确表示为分的金额（超过两位小数、NaN、无穷大、超出范围）用INVALID表示，INVALID参与运算的结果仍是INVALID
+ */
+public final class Money {
+    // 无效金额
+    public static final long INVALID = Long.MIN_VALUE;
+    // 元与分的换算
+    public static final long CENTS_PER_YUAN = 100;
+    // 可以精确换算的最大金额（元），超过后double已无法精确表示到分
+    private static final double MAX_YUAN = 1e13;
+
+    private Money() {
+    }
+
+    /**
+     * 元转换为分，超过两位小数时返回INVALID
+     * 例如19.99 -> 1999，19.999 -> INVALID
+     */
+    public static long ofYuan(double yuan) {
+        if (!(Math.abs(yuan) < MAX_YUAN)) {
+            return INVALID;
+        }
+        long cents = Math.round(yuan * CENTS_PER_YUAN);
+        // 分换算回元与原值完全相等，说明原值最多两位小数
+        return cents / (double) CENTS_PER_YUAN == yuan ? cents : INVALID;
+    }
+
+    /**
+     * 元转换为分，四舍五入到分；用于已知可能带有浮点误差的计算结果
+     */
+    public static long roundYuan(double yuan) {
+        if (!(Math.abs(yuan) < MAX_YUAN)) {
+            return INVALID;
+        }
+        return Math.round(yuan * CENTS_PER_YUAN);
+    }
+
+    /**
+     * 元转换为分并向上取整，用于区间下界；容忍元换算带来的浮点误差
+     */
+    public static long ceilYuan(double yuan) {
+        return (long) Math.ceil(yuan * CENTS_PER_YUAN - 1e-6);
+    }
+
+    /**
+     * 元转换为分并向下取整，用于区间上界
+     */
+    public static long floorYuan(double yuan) {
+        return (long) Math.floor(yuan * CENTS_PER_YUAN + 1e-6);
+    }
+
+    /**
+     * 分转换为元，INVALID转换为NaN
+     */
+    public static double toYuan(long cents) {
+        return cents == INVALID ? Double.NaN : cents / (double) CENTS_PER_YUAN;
+    }
+
+    public static boolean isValid(long cents) {
+        return cents != INVALID;
+    }
+
+    /**
+     * 金额相加，任一为INVALID或溢出时返回INVALID
+     */
+    public static long add(long a, long b) {
+        if (a == INVALID || b == INVALID) {
+            return INVALID;
+        }
+        long sum = a + b;
+        // 两个同号数相加得到异号结果说明溢出
+        return ((a ^ sum) & (b ^ sum)) < 0 ? INVALID : sum;
+    }
+
+    /**
+     * 单价乘以数量，INVALID或溢出时返回INVALID
+     */
+    public static long multiply(long cents, int quantity) {
+        if (cents == INVALID) {
+            return INVALID;
+        }
+        long high = Math.multiplyHigh(cents, quantity);
+        long product = cents * quantity;
+        return (high == 0 && product >= 0) || (high == -1 && product < 0) ? product : INVALID;
+    }
+
+    /**
+     * 把金额按"元.角分"格式追加到sb，INVALID追加"-"
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents == INVALID) {
+            return sb.append('-');
+        }
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % CENTS_PER_YUAN;
+        sb.append(cents / CENTS_PER_YUAN).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * 格式化为"元.角分"
+     */
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+}
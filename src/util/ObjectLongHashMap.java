@@ -0,0 +1,201 @@
+package util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 对象到long的哈希映射 - 值直接存放在long数组中，累加数量、金额时不装箱
+ * 开放寻址、线性探测，容量为2的幂，负载超过3/4时扩容；删除时把后续条目前移，不留墓碑
+ * 支持null键；不是线程安全的，适合在单个方法或锁内做分组计数
+ * @param <K> 键类型
+ */
+public class ObjectLongHashMap<K> {
+    private static final int DEFAULT_CAPACITY = 16;
+    // 表示null键，空槽位为null
+    private static final Object NULL_KEY = new Object();
+
+    private Object[] keys;
+    private long[] values;
+    private int size;
+    private int threshold;
+
+    public ObjectLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize 预计的条目数，达到这个数量前不会扩容
+     */
+    public ObjectLongHashMap(int expectedSize) {
+        allocate(ObjectIntHashMap.tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return slot(mask(key)) >= 0;
+    }
+
+    /**
+     * 取键对应的值，不存在时返回0
+     */
+    public long get(Object key) {
+        return getOrDefault(key, 0);
+    }
+
+    public long getOrDefault(Object key, long defaultValue) {
+        int slot = slot(mask(key));
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    /**
+     * 设置键对应的值，返回原来的值，不存在时返回0
+     */
+    public long put(K key, long value) {
+        Object k = mask(key);
+        int slot = slot(k);
+        if (slot >= 0) {
+            long old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        insert(k, value);
+        return 0;
+    }
+
+    /**
+     * 把键对应的值加上delta，不存在时从0开始，返回相加后的值
+     */
+    public long addTo(K key, long delta) {
+        Object k = mask(key);
+        int slot = slot(k);
+        if (slot >= 0) {
+            return values[slot] += delta;
+        }
+        insert(k, delta);
+        return delta;
+    }
+
+    /**
+     * 删除键，返回原来的值，不存在时返回0
+     */
+    public long remove(Object key) {
+        int slot = slot(mask(key));
+        if (slot < 0) {
+            return 0;
+        }
+        long old = values[slot];
+        shiftBack(slot);
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            Object key = keys[i];
+            if (key != null) {
+                action.accept(key == NULL_KEY ? null : (K) key, values[i]);
+            }
+        }
+    }
+
+    /**
+     * 复制为普通的Map，供需要Map接口的调用方使用
+     */
+    public Map<K, Long> toMap() {
+        Map<K, Long> map = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+        forEach(map::put);
+        return map;
+    }
+
+    private static Object mask(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // 键所在的槽位，不存在时返回-1
+    private int slot(Object key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object current = keys[i];
+            if (current == null) {
+                return -1;
+            }
+            if (current == key || current.equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    private void insert(Object key, long value) {
+        if (size >= threshold) {
+            rehash(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    // 删除槽位上的条目，把探测链上后续的条目前移填补空位
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            // home不在(gap, i]之间时，条目可以移到gap
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = null;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            Object key = oldKeys[j];
+            if (key != null) {
+                int i = hash(key) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new long[capacity];
+        threshold = capacity - (capacity >>> 2);
+    }
+}
@@ -0,0 +1,264 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 有序视图 - 按排序键维护的实时有序集合，支持按名次分页
+ * 内部是按子树大小增强的Treap，插入、删除、按名次定位都是O(log n)，取一页是O(log n + 页大小)
+ * 元素加入时保存一份排序键的快照，元素在视图外被修改不会破坏树的结构，重新put后才按新键排序
+ * 排序键相同的元素按ID排序，因此顺序是确定的
+ * @param <T> 元素类型
+ * @param <K> 排序键类型
+ */
+public class SortedView<T, K> {
+
+    private static final class Node<T, K> {
+        final String id;
+        final K key;
+        final T item;
+        final int priority;
+        int size = 1;
+        Node<T, K> left;
+        Node<T, K> right;
+
+        Node(String id, K key, T item) {
+            this.id = id;
+            this.key = key;
+            this.item = item;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Function<? super T, ? extends K> sortKey;
+    private final Comparator<? super K> keyOrder;
+    // ID -> 节点，删除时用节点中保存的旧排序键定位
+    private final Map<String, Node<T, K>> nodes = new HashMap<>();
+    private Node<T, K> root;
+
+    /**
+     * @param sortKey 从元素中取排序键
+     * @param keyOrder 排序键的顺序
+     */
+    public SortedView(Function<? super T, ? extends K> sortKey, Comparator<? super K> keyOrder) {
+        this.sortKey = sortKey;
+        this.keyOrder = keyOrder;
+    }
+
+    /**
+     * 加入或替换元素，item为null时等同于删除
+     */
+    public synchronized void put(String id, T item) {
+        Node<T, K> old = nodes.remove(id);
+        if (old != null) {
+            root = delete(root, old);
+        }
+        if (item != null) {
+            Node<T, K> node = new Node<>(id, sortKey.apply(item), item);
+            nodes.put(id, node);
+            root = insert(root, node);
+        }
+    }
+
+    public synchronized boolean remove(String id) {
+        Node<T, K> old = nodes.remove(id);
+        if (old == null) {
+            return false;
+        }
+        root = delete(root, old);
+        return true;
+    }
+
+    public synchronized T get(String id) {
+        Node<T, K> node = nodes.get(id);
+        return node == null ? null : node.item;
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * 按名次取元素，0为最小
+     */
+    public synchronized T get(int rank) {
+        Node<T, K> node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node.item;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 元素的名次，不存在时返回-1
+     */
+    public synchronized int rankOf(String id) {
+        Node<T, K> target = nodes.get(id);
+        if (target == null) {
+            return -1;
+        }
+        int rank = 0;
+        Node<T, K> node = root;
+        while (node != null) {
+            int cmp = compare(target, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left);
+                if (cmp == 0) {
+                    return rank;
+                }
+                rank++;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 取一页元素
+     * @param offset 跳过的元素数
+     * @param limit 最多返回的元素数
+     * @param descending true表示从最大的一端开始
+     */
+    public List<T> page(int offset, int limit, boolean descending) {
+        return page(offset, limit, descending, null);
+    }
+
+    /**
+     * 取一页满足条件的元素，offset按满足条件的元素计数
+     */
+    public synchronized List<T> page(int offset, int limit, boolean descending, Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(limit, size(root) - Math.max(0, offset))));
+        if (limit > 0) {
+            collect(root, Math.max(0, offset), limit, descending, filter, result);
+        }
+        return result;
+    }
+
+    // 中序遍历收集元素，返回剩余需要跳过的数量；没有筛选条件时整棵子树可以按大小直接跳过
+    private int collect(Node<T, K> node, int skip, int limit, boolean descending,
+                        Predicate<? super T> filter, List<T> out) {
+        if (node == null || out.size() >= limit) {
+            return skip;
+        }
+        if (filter == null && skip >= node.size) {
+            return skip - node.size;
+        }
+        skip = collect(descending ? node.right : node.left, skip, limit, descending, filter, out);
+        if (out.size() >= limit) {
+            return skip;
+        }
+        if (filter == null || filter.test(node.item)) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                out.add(node.item);
+            }
+        }
+        return collect(descending ? node.left : node.right, skip, limit, descending, filter, out);
+    }
+
+    private Node<T, K> insert(Node<T, K> node, Node<T, K> added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T, K> delete(Node<T, K> node, Node<T, K> removed) {
+        if (node == null) {
+            return null;
+        }
+        if (node == removed) {
+            return merge(node.left, node.right);
+        }
+        if (compare(removed, node) < 0) {
+            node.left = delete(node.left, removed);
+        } else {
+            node.right = delete(node.right, removed);
+        }
+        update(node);
+        return node;
+    }
+
+    // 合并两棵树，a中的元素都小于b中的元素
+    private Node<T, K> merge(Node<T, K> a, Node<T, K> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node<T, K> rotateRight(Node<T, K> node) {
+        Node<T, K> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node<T, K> rotateLeft(Node<T, K> node) {
+        Node<T, K> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private int compare(Node<T, K> a, Node<T, K> b) {
+        int cmp = keyOrder.compare(a.key, b.key);
+        return cmp != 0 ? cmp : a.id.compareTo(b.id);
+    }
+
+    private static void update(Node<?, ?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,70 @@
+package util;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * 字符串驻留工具类
+ * 分类、商品名称、商品ID等取值有限的字符串在实体中大量重复（每个订单项都保存一份），
+ * 实体在构造和赋值时通过intern换成池中的共享实例，相同内容只在堆上保留一份
+ * 与String.intern不同，池不经过JVM的全局字符串表；池对字符串只持有弱引用，
+ * 实体不再引用某个字符串后它会被垃圾回收并从池中移除，高基数的数据（如已删除商品的ID）不会一直占用内存
+ * 池按哈希分为多段，每段一个WeakHashMap并各自加锁
+ */
+public class StringInterner {
+
+    // 分段数量，必须是2的幂
+    private static final int STRIPES = 64;
+
+    // 一段字符串池；值是指向键本身的弱引用，不会阻止键被回收
+    private static final class Stripe extends WeakHashMap<String, WeakReference<String>> {
+    }
+
+    private static final Stripe[] pools = new Stripe[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            pools[i] = new Stripe();
+        }
+    }
+
+    private StringInterner() {
+    }
+
+    /**
+     * 返回与value内容相同的共享实例，value为null时返回null
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Stripe pool = pools[stripe(value)];
+        synchronized (pool) {
+            WeakReference<String> ref = pool.get(value);
+            String shared = ref == null ? null : ref.get();
+            if (shared != null) {
+                return shared;
+            }
+            pool.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /**
+     * 池中字符串的数量，包括已不再被引用但尚未清理的条目
+     */
+    public static int size() {
+        int size = 0;
+        for (Stripe pool : pools) {
+            synchronized (pool) {
+                size += pool.size();
+            }
+        }
+        return size;
+    }
+
+    private static int stripe(String value) {
+        int h = value.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
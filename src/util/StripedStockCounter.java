@@ -0,0 +1,200 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段库存计数器 - 用于秒杀等热点商品
+ * 把一个商品的可用库存拆分到多个分段(cell)中，不同线程优先扣减自己所在的分段，避免所有线程争抢同一个计数器
+ * 本地分段不足时，从其他分段把库存搬到本地分段后再扣减；库存总量始终等于所有分段之和
+ * 搬运在锁内进行并用序号标记，sum()遇到正在进行的搬运时重读，不会因为库存在两个分段之间“在途”而少算
+ * close()逐个分段原子地取走余量并封闭计数器，之后的扣减和增加都失败，取走的总量就是关闭时的精确库存
+ */
+public class StripedStockCounter {
+    // 每个分段之间间隔16个int(64字节)，避免伪共享
+    private static final int PADDING = 16;
+    // 关闭后分段的值，小于任何扣减数量，也不能再增加
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+    private final int mask;
+    // 借用库存的慢路径串行执行，快路径不加锁
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+    // 搬运序号，搬运进行中为奇数；只在rebalanceLock内修改
+    private volatile int moveSequence;
+    private volatile boolean closed;
+    // 关闭时取走的库存总量
+    private volatile int closedTotal;
+
+    /**
+     * @param stripes 分段数量，会向上取整为2的幂
+     * @param initialQuantity 初始库存，平均分配到各个分段
+     */
+    public StripedStockCounter(int stripes, int initialQuantity) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("分段数量必须大于0");
+        }
+        if (initialQuantity < 0) {
+            throw new IllegalArgumentException("初始库存不能为负数");
+        }
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = size;
+        this.mask = size - 1;
+        this.cells = new AtomicIntegerArray(size * PADDING);
+
+        int share = initialQuantity / size;
+        int remainder = initialQuantity % size;
+        for (int i = 0; i < size; i++) {
+            cells.set(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * 尝试扣减库存，库存不足时返回false且不扣减
+     */
+    public boolean tryDecrement(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("扣减数量必须大于0");
+        }
+        int home = homeIndex();
+        if (tryTake(home, amount)) {
+            return true;
+        }
+
+        // 慢路径：从其他分段搬运库存到本地分段
+        rebalanceLock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            for (int i = 1; i < stripes; i++) {
+                if (tryTake(home, amount)) {
+                    return true;
+                }
+                int need = amount - cells.get(home);
+                if (need > 0) {
+                    moveToHome((home + i * PADDING) & (stripes * PADDING - 1), home, need);
+                }
+            }
+            return tryTake(home, amount);
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * 增加库存（入库、取消订单恢复库存），加到本地分段；计数器已关闭时返回false且不增加
+     */
+    public boolean increment(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("增加数量必须大于0");
+        }
+        int home = homeIndex();
+        while (true) {
+            int current = cells.get(home);
+            if (current == CLOSED) {
+                return false;
+            }
+            if (cells.compareAndSet(home, current, current + amount)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 所有分段的库存总和；关闭后为关闭时的库存
+     */
+    public int sum() {
+        while (true) {
+            if (closed) {
+                return closedTotal;
+            }
+            int sequence = moveSequence;
+            if ((sequence & 1) == 0) {
+                int total = 0;
+                for (int i = 0; i < stripes; i++) {
+                    total += cells.get(i * PADDING);
+                }
+                if (moveSequence == sequence && !closed) {
+                    return total;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 关闭计数器并返回剩余的库存总量；每个分段的余量被原子地取走，与并发的扣减、增加不会重复或遗漏
+     */
+    public int close() {
+        rebalanceLock.lock();
+        try {
+            if (!closed) {
+                // 与搬运一样用奇数序号标记，sum()不会读到取走一半的分段
+                moveSequence++;
+                int total = 0;
+                for (int i = 0; i < stripes; i++) {
+                    total += cells.getAndSet(i * PADDING, CLOSED);
+                }
+                closedTotal = total;
+                closed = true;
+                moveSequence++;
+            }
+            return closedTotal;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    // 在指定分段上CAS扣减，余量不足时返回false
+    private boolean tryTake(int index, int amount) {
+        while (true) {
+            int current = cells.get(index);
+            if (current < amount) {
+                return false;
+            }
+            if (cells.compareAndSet(index, current, current - amount)) {
+                return true;
+            }
+        }
+    }
+
+    // 从source分段最多搬运need个库存到home分段，在rebalanceLock内调用
+    private void moveToHome(int source, int home, int need) {
+        moveSequence++;
+        try {
+            while (true) {
+                int available = cells.get(source);
+                if (available <= 0) {
+                    return;
+                }
+                int moved = Math.min(available, need);
+                if (cells.compareAndSet(source, available, available - moved)) {
+                    cells.addAndGet(home, moved);
+                    return;
+                }
+            }
+        } finally {
+            moveSequence++;
+        }
+    }
+
+    // 当前线程对应的分段下标
+    private int homeIndex() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & mask) * PADDING;
+    }
+}
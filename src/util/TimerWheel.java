@@ -0,0 +1,333 @@
+package util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分层时间轮定时器
+ * 共4层、每层64个槽，第0层每槽一个tick，上层每槽覆盖下层一整圈；到期时间较远的定时任务放在上层，
+ * 随时间推进逐层下放(cascade)到第0层后到期执行
+ * 添加和取消都是O(1)：调用线程只把任务放入无锁队列，由推进时间轮的线程统一挂入或摘出槽位，
+ * 适合同时存在数百万个定时任务的场景（如未付款订单超时、会话过期）
+ */
+public class TimerWheel {
+    private static final int LEVEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << LEVEL_BITS;      // 每层64个槽
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    // 可精确表示的最大延迟tick数，更远的任务先放在最高层，下放时重新计算
+    private static final long MAX_SPAN = 1L << (LEVEL_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Executor taskExecutor;
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+
+    // 新增和已取消的任务，由推进线程批量处理
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final ReentrantLock advanceLock = new ReentrantLock();
+
+    // 下一个待处理的tick，仅在advanceLock内访问
+    private long nextTick;
+
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    /**
+     * @param tickMillis 每个tick的毫秒数，即定时精度
+     */
+    public TimerWheel(long tickMillis) {
+        this(tickMillis, System.currentTimeMillis(), Runnable::run);
+    }
+
+    /**
+     * @param tickMillis 每个tick的毫秒数
+     * @param startMillis 时间轮的起始时间
+     * @param taskExecutor 到期任务的执行器，默认在推进线程中直接执行
+     */
+    public TimerWheel(long tickMillis, long startMillis, Executor taskExecutor) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tick时长必须大于0");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.taskExecutor = taskExecutor;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * 在delayMillis毫秒后执行任务
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return scheduleAt(task, System.currentTimeMillis() + Math.max(0, delayMillis));
+    }
+
+    /**
+     * 在指定时间点执行任务
+     */
+    public Timeout scheduleAt(Runnable task, long deadlineMillis) {
+        if (task == null) {
+            throw new IllegalArgumentException("定时任务不能为空");
+        }
+        Timeout timeout = new Timeout(this, task, deadlineMillis,
+                Math.max(0, (deadlineMillis - startMillis + tickMillis - 1) / tickMillis));
+        outstanding.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 把时间轮推进到指定时间，执行期间所有到期的任务
+     * 后台线程会定期调用；也可以手动调用（如测试中模拟时间流逝）
+     */
+    public void advanceTo(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        advanceLock.lock();
+        try {
+            processCancelled();
+            processPending();
+            while (nextTick <= targetTick) {
+                int index = (int) (nextTick & WHEEL_MASK);
+                // 第0层转完一圈时，依次把上层当前槽的任务下放
+                if (index == 0) {
+                    for (int level = 1; level < LEVELS; level++) {
+                        int slot = (int) ((nextTick >>> (LEVEL_BITS * level)) & WHEEL_MASK);
+                        cascade(wheels[level][slot]);
+                        if (slot != 0) {
+                            break;
+                        }
+                    }
+                }
+                expire(wheels[0][index]);
+                nextTick++;
+            }
+        } finally {
+            advanceLock.unlock();
+        }
+    }
+
+    /**
+     * 启动后台线程按tick推进时间轮
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                }
+                try {
+                    advanceTo(System.currentTimeMillis());
+                } catch (RuntimeException e) {
+                    System.err.println("时间轮推进失败: " + e.getMessage());
+                }
+            }
+        }, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止后台线程，未到期的任务不再执行
+     */
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * 尚未到期也未取消的定时任务数量
+     */
+    public int size() {
+        return outstanding.get();
+    }
+
+    // 把新增的任务挂到对应的槽位
+    private void processPending() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state.get() == Timeout.ST_INIT) {
+                place(timeout);
+            }
+        }
+    }
+
+    // 把已取消的任务从槽位中摘除
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    // 按到期tick与当前tick的距离选择层级和槽位
+    private void place(Timeout timeout) {
+        long deadline = Math.max(timeout.deadlineTick, nextTick);
+        long delta = deadline - nextTick;
+        if (delta >= MAX_SPAN) {
+            deadline = nextTick + MAX_SPAN - 1;
+            delta = MAX_SPAN - 1;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (LEVEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (LEVEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][slot].add(timeout);
+    }
+
+    // 把上层槽中的任务重新放置到更低的层
+    private void cascade(Bucket bucket) {
+        Timeout timeout = bucket.clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            if (timeout.state.get() == Timeout.ST_INIT) {
+                place(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    // 执行第0层当前槽中的所有到期任务
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            if (timeout.state.compareAndSet(Timeout.ST_INIT, Timeout.ST_EXPIRED)) {
+                outstanding.decrementAndGet();
+                Timeout expired = timeout;
+                try {
+                    taskExecutor.execute(() -> {
+                        try {
+                            expired.task.run();
+                        } catch (RuntimeException e) {
+                            System.err.println("定时任务执行失败: " + e.getMessage());
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    System.err.println("定时任务提交失败: " + e.getMessage());
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * 定时任务句柄，可用于取消
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // 槽内双向链表，仅由推进线程修改
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadlineMillis, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * 取消定时任务，已到期或已取消时返回false
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            wheel.outstanding.decrementAndGet();
+            wheel.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+
+    // 时间轮的一个槽：双向链表
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // 取出整个链表并清空槽位
+        Timeout clear() {
+            Timeout first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 有界并发缓存 - W-TinyLFU淘汰策略
+ * 新条目先进入约占1%容量的窗口区(LRU)，被挤出窗口后与主区(分段LRU：试用区+保护区)中最久未用的条目比较访问频率，
+ * 频率高的留下；访问频率由带衰减的4位Count-Min草图估计，因此偶尔被扫描到的冷数据无法挤掉热数据
+ * 读操作不加锁；淘汰策略的维护在锁内完成，读时锁被占用就跳过本次记录，只损失少量频率信息
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class TinyLfuCache<K, V> {
+
+    /**
+     * 缓存命中统计
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long loadCount;
+        private final long evictionCount;
+
+        public Stats(long hitCount, long missCount, long loadCount, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadCount = loadCount;
+            this.evictionCount = evictionCount;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("命中: %d, 未命中: %d, 加载: %d, 淘汰: %d, 命中率: %.2f%%",
+                    hitCount, missCount, loadCount, evictionCount, getHitRate() * 100);
+        }
+    }
+
+    // 条目所在的区
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        int queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // 双向链表，头部是最久未使用的条目
+    private static final class AccessQueue<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+        private int size;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+
+    private final int maximumSize;
+    private final int windowMax;
+    private final int protectedMax;
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final FrequencySketch sketch;
+    // 每次失效加1，加载期间发生过失效的结果不放入缓存，避免写入旧值
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TinyLfuCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMax = Math.max(1, maximumSize / 100);
+        this.protectedMax = (int) ((maximumSize - windowMax) * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * 读取缓存，不存在时返回null
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            recordMiss(key);
+            return null;
+        }
+        hits.increment();
+        recordAccess(node);
+        return node.value;
+    }
+
+    /**
+     * 读取缓存，不存在时调用loader加载并放入缓存；loader返回null时不缓存
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long generation = invalidations.get();
+        value = loader.apply(key);
+        loads.increment();
+        if (value != null) {
+            policyLock.lock();
+            try {
+                if (invalidations.get() == generation && !data.containsKey(key)) {
+                    insert(key, value);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 放入或替换缓存
+     */
+    public void put(K key, V value) {
+        policyLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                node.value = value;
+                onAccess(node);
+            } else {
+                insert(key, value);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * 已缓存时替换为新值，未缓存时不放入；不改变条目的访问频率
+     */
+    public void replace(K key, V value) {
+        policyLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                node.value = value;
+            } else {
+                // 使正在进行的加载作废，避免之后放入旧值
+                invalidations.incrementAndGet();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * 使缓存失效
+     */
+    public void invalidate(K key) {
+        policyLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                queueOf(node).remove(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), loads.sum(), evictions.sum());
+    }
+
+    private void recordMiss(K key) {
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void recordAccess(Node<K, V> node) {
+        if (policyLock.tryLock()) {
+            try {
+                // 条目可能刚被淘汰或失效
+                if (data.get(node.key) == node) {
+                    onAccess(node);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    // 以下方法都在policyLock内调用
+
+    private void insert(K key, V value) {
+        Node<K, V> node = new Node<>(key, value);
+        node.queue = WINDOW;
+        data.put(key, node);
+        window.addLast(node);
+        sketch.increment(key.hashCode());
+        evict();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key.hashCode());
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROBATION) {
+            // 试用区的条目再次被访问，晋升到保护区
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            while (protectedQueue.size > protectedMax) {
+                Node<K, V> demoted = protectedQueue.peekFirst();
+                protectedQueue.remove(demoted);
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            protectedQueue.moveToLast(node);
+        }
+    }
+
+    // 窗口区超出容量时，把最久未用的条目移出窗口，与主区的淘汰候选比较频率决定去留
+    private void evict() {
+        while (window.size > windowMax) {
+            Node<K, V> candidate = window.peekFirst();
+            window.remove(candidate);
+            if (probation.size + protectedQueue.size < maximumSize - windowMax) {
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+                continue;
+            }
+            Node<K, V> victim = probation.peekFirst() != null ? probation.peekFirst() : protectedQueue.peekFirst();
+            if (victim != null && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                queueOf(victim).remove(victim);
+                remove(victim);
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+            } else {
+                remove(candidate);
+            }
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key, node);
+        evictions.increment();
+    }
+
+    private AccessQueue<K, V> queueOf(Node<K, V> node) {
+        return node.queue == WINDOW ? window : (node.queue == PROBATION ? probation : protectedQueue);
+    }
+
+    /**
+     * 访问频率草图：4行4位计数器，计数达到上限后不再增加；
+     * 累计记录次数达到容量的10倍时所有计数减半，使频率随时间衰减
+     */
+    private static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int size = 1;
+            // 每个long存16个计数器
+            while (size * 16L < maximumSize * 4L && size < (1 << 24)) {
+                size <<= 1;
+            }
+            this.table = new long[size];
+            this.tableMask = size - 1;
+            this.sampleSize = (int) Math.min(10L * maximumSize, Integer.MAX_VALUE);
+        }
+
+        int frequency(int hashCode) {
+            long hash = HashUtil.mix64(hashCode);
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < 4; row++) {
+                frequency = Math.min(frequency, counter(hash, row));
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            long hash = HashUtil.mix64(hashCode);
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                int slot = slot(hash, row);
+                int shift = shift(hash, row);
+                if (((table[slot] >>> shift) & 0xFL) < 15) {
+                    table[slot] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int counter(long hash, int row) {
+            return (int) ((table[slot(hash, row)] >>> shift(hash, row)) & 0xFL);
+        }
+
+        // 每行使用哈希的不同16位选择槽位和槽内的计数器
+        private int slot(long hash, int row) {
+            int bits = (int) (hash >>> (row * 16));
+            return (bits * 0x9E3779B9 + row) >>> 4 & tableMask;
+        }
+
+        private int shift(long hash, int row) {
+            return (((int) (hash >>> (row * 16)) & 3) + row * 4) << 2;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions >>>= 1;
+        }
+    }
+}
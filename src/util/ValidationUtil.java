@@ -1,5 +1,7 @@
 package util;
 
+import model.entity.OrderStatus;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -26,7 +28,7 @@ public class ValidationUtil {
      * 验证字符串不为空且不为空白
      */
     public static boolean isNotBlank(String str) {
-        return str != null && !str.trim().isEmpty();
+        return str != null && trimmedLength(str) > 0;
     }
 
     /**
@@ -34,10 +36,55 @@ public class ValidationUtil {
      */
     public static boolean isValidLength(String str, int min, int max) {
         if (str == null) return false;
-        int length = str.trim().length();
+        int length = trimmedLength(str);
         return length >= min && length <= max;
     }
 
+    /**
+     * 去掉首尾空白后的长度，与trim()的规则相同，但不创建新字符串
+     */
+    public static int trimmedLength(String str) {
+        int start = 0;
+        int end = str.length();
+        while (start < end && str.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end - start;
+    }
+
+    /**
+     * 验证数字为正数；基本类型的重载避免装箱
+     */
+    public static boolean isPositiveNumber(int number) {
+        return number > 0;
+    }
+
+    public static boolean isPositiveNumber(long number) {
+        return number > 0;
+    }
+
+    public static boolean isPositiveNumber(double number) {
+        return number > 0;
+    }
+
+    /**
+     * 验证数字为非负数；基本类型的重载避免装箱
+     */
+    public static boolean isNonNegativeNumber(int number) {
+        return number >= 0;
+    }
+
+    public static boolean isNonNegativeNumber(long number) {
+        return number >= 0;
+    }
+
+    public static boolean isNonNegativeNumber(double number) {
+        return number >= 0;
+    }
+
     /**
      * 验证数字为正数
      */
@@ -77,14 +124,14 @@ public class ValidationUtil {
      * 验证价格格式（两位小数）
      */
     public static boolean isValidPrice(double price) {
-        if (price <= 0) return false;
-        // 检查是否最多两位小数
-        String priceStr = String.valueOf(price);
-        int dotIndex = priceStr.indexOf('.');
-        if (dotIndex != -1 && priceStr.substring(dotIndex + 1).length() > 2) {
-            return false;
-        }
-        return true;
+        return price > 0 && Money.isValid(Money.ofYuan(price));
+    }
+
+    /**
+     * 验证以分表示的价格：大于0且不是无效金额
+     */
+    public static boolean isValidPrice(long priceCents) {
+        return priceCents > 0 && Money.isValid(priceCents);
     }
 
     /**
@@ -142,26 +189,11 @@ public class ValidationUtil {
 
     /**
      * 验证订单状态流转是否合法
-     * 状态顺序：待付款 → 待发货 → 已发货 → 已完成
-     *               ↘ 已取消
+     * 规则由OrderStatus的状态流转表统一定义
      */
     public static boolean isValidStatusTransition(String fromStatus, String toStatus) {
-        if (fromStatus == null || toStatus == null) return false;
-
-        // 状态流转规则
-        switch (fromStatus) {
-            case "待付款":
-                return "待发货".equals(toStatus) || "已取消".equals(toStatus);
-            case "待发货":
-                return "已发货".equals(toStatus) || "已取消".equals(toStatus);
-            case "已发货":
-                return "已完成".equals(toStatus);
-            case "已完成":
-            case "已取消":
-                return false; // 终态不可再改变
-            default:
-                return false;
-        }
+        OrderStatus from = OrderStatus.fromLabel(fromStatus);
+        return from != null && from.canTransitionTo(OrderStatus.fromLabel(toStatus));
     }
 
     /**
@@ -0,0 +1,216 @@
+package util;
+
+import exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 实体验证器 - 把一个实体类型的验证规则一次编译成不可变的规则列表，验证时一遍检查全部规则并报告所有错误
+ * 规则按字段分组：同一组内按顺序检查，遇到第一条不通过的规则就跳过本组其余规则（如为空时不再报告长度）；
+ * 不同组互不影响，每组最多报告一条错误
+ * 数值通过ToIntFunction、ToLongFunction取值，字符串直接按字符检查，不调用trim、不使用正则，
+ * 全部通过时不分配任何对象；验证器创建后不可变，可以作为静态常量在多个线程间共享
+ * @param <T> 实体类型
+ */
+public final class Validator<T> {
+
+    private static final class Rule<T> {
+        final Predicate<? super T> test;
+        final String message;
+        // 本组之后第一条规则的位置
+        int groupEnd;
+
+        Rule(Predicate<? super T> test, String message) {
+            this.test = test;
+            this.message = message;
+        }
+    }
+
+    private final String nullMessage;
+    // 不可变列表，按下标访问，验证时不创建迭代器
+    private final List<Rule<T>> rules;
+
+    private Validator(String nullMessage, List<Rule<T>> rules) {
+        this.nullMessage = nullMessage;
+        this.rules = rules;
+    }
+
+    /**
+     * @param nullMessage 被验证的对象为null时的错误信息
+     */
+    public static <T> Builder<T> builder(String nullMessage) {
+        return new Builder<>(nullMessage);
+    }
+
+    /**
+     * 检查全部规则，返回所有错误信息；全部通过时返回空列表
+     */
+    public List<String> validate(T target) {
+        if (target == null) {
+            return Collections.singletonList(nullMessage);
+        }
+        List<String> violations = null;
+        int i = 0;
+        while (i < rules.size()) {
+            Rule<T> rule = rules.get(i);
+            if (rule.test.test(target)) {
+                i++;
+            } else {
+                if (violations == null) {
+                    violations = new ArrayList<>(4);
+                }
+                violations.add(rule.message);
+                i = rule.groupEnd;
+            }
+        }
+        return violations == null ? Collections.emptyList() : violations;
+    }
+
+    public boolean isValid(T target) {
+        if (target == null) {
+            return false;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            if (!rules.get(i).test.test(target)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 有任何错误时抛出包含全部错误信息的ValidationException
+     */
+    public void check(T target) throws ValidationException {
+        List<String> violations = validate(target);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations);
+        }
+    }
+
+    /**
+     * 验证器构建器，规则按添加顺序检查
+     */
+    public static final class Builder<T> {
+        private final String nullMessage;
+        private final List<Rule<T>> rules = new ArrayList<>();
+        private int groupStart;
+
+        private Builder(String nullMessage) {
+            this.nullMessage = nullMessage;
+        }
+
+        /**
+         * 开始新的一组规则，之后添加的规则属于这一组
+         */
+        public Builder<T> field() {
+            closeGroup();
+            return this;
+        }
+
+        public Builder<T> notNull(Function<? super T, ?> getter, String message) {
+            return rule(target -> getter.apply(target) != null, message);
+        }
+
+        /**
+         * 字符串不为null且去掉首尾空白后不为空
+         */
+        public Builder<T> notBlank(Function<? super T, String> getter, String message) {
+            return rule(target -> ValidationUtil.isNotBlank(getter.apply(target)), message);
+        }
+
+        /**
+         * 去掉首尾空白后的长度在[min, max]之间
+         */
+        public Builder<T> length(Function<? super T, String> getter, int min, int max, String message) {
+            return rule(target -> ValidationUtil.isValidLength(getter.apply(target), min, max), message);
+        }
+
+        /**
+         * 字符串长度在[min, max]之间，且每个字符都在字符集中
+         * @param charset 允许的字符，如"a-zA-Z0-9_"，两个字符之间的'-'表示范围；只支持ASCII字符
+         */
+        public Builder<T> chars(Function<? super T, String> getter, String charset, int min, int max,
+                                String message) {
+            boolean[] allowed = compileCharset(charset);
+            return rule(target -> {
+                String value = getter.apply(target);
+                if (value == null || value.length() < min || value.length() > max) {
+                    return false;
+                }
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c >= allowed.length || !allowed[c]) {
+                        return false;
+                    }
+                }
+                return true;
+            }, message);
+        }
+
+        /**
+         * int值在[min, max]之间
+         */
+        public Builder<T> range(ToIntFunction<? super T> getter, int min, int max, String message) {
+            return rule(target -> {
+                int value = getter.applyAsInt(target);
+                return value >= min && value <= max;
+            }, message);
+        }
+
+        /**
+         * long值在[min, max]之间
+         */
+        public Builder<T> longRange(ToLongFunction<? super T> getter, long min, long max, String message) {
+            return rule(target -> {
+                long value = getter.applyAsLong(target);
+                return value >= min && value <= max;
+            }, message);
+        }
+
+        /**
+         * 自定义规则，条件不成立时报告message
+         */
+        public Builder<T> rule(Predicate<? super T> test, String message) {
+            rules.add(new Rule<>(test, message));
+            return this;
+        }
+
+        public Validator<T> build() {
+            closeGroup();
+            return new Validator<>(nullMessage, List.copyOf(rules));
+        }
+
+        private void closeGroup() {
+            for (int i = groupStart; i < rules.size(); i++) {
+                rules.get(i).groupEnd = rules.size();
+            }
+            groupStart = rules.size();
+        }
+
+        private static boolean[] compileCharset(String charset) {
+            boolean[] allowed = new boolean[128];
+            for (int i = 0; i < charset.length(); i++) {
+                char from = charset.charAt(i);
+                char to = from;
+                if (i + 2 < charset.length() && charset.charAt(i + 1) == '-') {
+                    to = charset.charAt(i + 2);
+                    i += 2;
+                }
+                if (to >= allowed.length || from > to) {
+                    throw new IllegalArgumentException("无效的字符集: " + charset);
+                }
+                for (char c = from; c <= to; c++) {
+                    allowed[c] = true;
+                }
+            }
+            return allowed;
+        }
+    }
+}